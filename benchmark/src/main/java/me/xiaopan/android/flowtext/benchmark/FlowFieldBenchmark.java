@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2013 Peng fei Pan <sky@xiaopan.me>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.xiaopan.android.flowtext.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import me.xiaopan.android.flowtext.CollisionGrid;
+import me.xiaopan.android.flowtext.FlowField;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 漂流场每帧推进的耗时以及加上网格碰撞检测之后的耗时，60fps下每帧的预算是16.67毫秒，加上-prof gc可以确认推进过程中没有分配
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FlowFieldBenchmark {
+	private static final long SEED = 20131111L;
+	private static final int CONTAINER_WIDTH = 1080;
+	private static final int CONTAINER_HEIGHT = 1920;
+	
+	@Param({"20", "200", "2000"})
+	public int keywordCount;
+	
+	@Param({"WRAP", "BOUNCE"})
+	public FlowField.Edge edge;
+	
+	private FlowField flowField;
+	private int[] faded;
+	private CollisionGrid collisionGrid;
+	
+	@Setup
+	public void setUp(){
+		Random random = new Random(SEED);
+		flowField = new FlowField();
+		flowField.setCount(keywordCount);
+		for(int w = 0; w < keywordCount; w++){
+			int textSize = (14 + random.nextInt(11)) * 2;
+			int charCount = 2 + random.nextInt(7);
+			flowField.setBounds(w, random.nextInt(CONTAINER_WIDTH), random.nextInt(CONTAINER_HEIGHT), charCount * textSize, textSize * 5 / 4);
+			flowField.setRandomVelocity(w, 48, random);
+			flowField.setAlpha(w, 1, 0);
+		}
+		faded = new int[keywordCount];
+		collisionGrid = new CollisionGrid();
+	}
+	
+	/**
+	 * 按60fps推进一帧
+	 */
+	@Benchmark
+	public int step(){
+		return flowField.step(1 / 60f, CONTAINER_WIDTH, CONTAINER_HEIGHT, edge, faded);
+	}
+	
+	/**
+	 * 按60fps推进一帧并推开重叠的关键字
+	 */
+	@Benchmark
+	public int stepWithCollisions(){
+		flowField.step(1 / 60f, CONTAINER_WIDTH, CONTAINER_HEIGHT, edge, faded);
+		return collisionGrid.resolve(flowField, CONTAINER_WIDTH, CONTAINER_HEIGHT);
+	}
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2013 Peng fei Pan <sky@xiaopan.me>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.xiaopan.android.flowtext.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import me.xiaopan.android.flowtext.KeywordLayoutEngine;
+import me.xiaopan.android.flowtext.KeywordPlacer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 布局引擎的吞吐量基准测试，加上-prof gc可以同时得到每次布局的分配量
+ * <br>关键字的尺寸按照FlowText默认的文字大小范围（14～25sp，2倍密度）和2～8个字随机生成，所有的随机数都使用固定的种子，每次调用前重置，保证结果可以复现
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class KeywordLayoutBenchmark {
+	private static final long SEED = 20131111L;
+	
+	@Param({"20", "200", "2000"})
+	public int keywordCount;
+	
+	@Param({"480x800", "1080x1920"})
+	public String containerSize;
+	
+	private int containerWidth;
+	private int containerHeight;
+	private int[] widths;
+	private int[] heights;
+	private int[] lefts;
+	private int[] tops;
+	private int[] quadrants;
+	private Random random;
+	private KeywordLayoutEngine gridEngine;
+	private KeywordLayoutEngine distributeEngine;
+	
+	@Setup
+	public void setUp(){
+		int separator = containerSize.indexOf('x');
+		containerWidth = Integer.parseInt(containerSize.substring(0, separator));
+		containerHeight = Integer.parseInt(containerSize.substring(separator + 1));
+		
+		Random sizeRandom = new Random(SEED);
+		widths = new int[keywordCount];
+		heights = new int[keywordCount];
+		for(int w = 0; w < keywordCount; w++){
+			int textSize = (14 + sizeRandom.nextInt(11)) * 2;
+			int charCount = 2 + sizeRandom.nextInt(7);
+			widths[w] = charCount * textSize;
+			heights[w] = textSize * 5 / 4;
+		}
+		lefts = new int[keywordCount];
+		tops = new int[keywordCount];
+		quadrants = new int[keywordCount];
+		random = new Random(SEED);
+		gridEngine = new KeywordLayoutEngine(new KeywordPlacer());
+		distributeEngine = new KeywordLayoutEngine(null);
+	}
+	
+	/**
+	 * 均匀网格布局器，互不重叠
+	 */
+	@Benchmark
+	public int placeGrid(){
+		random.setSeed(SEED);
+		int placedCount = gridEngine.place(keywordCount, widths, heights, containerWidth, containerHeight, random, lefts, tops);
+		KeywordLayoutEngine.computeQuadrants(keywordCount, lefts, tops, containerWidth, containerHeight, quadrants);
+		return placedCount;
+	}
+	
+	/**
+	 * 原来的按平均宽、高随机分配，不保证互不重叠
+	 */
+	@Benchmark
+	public int distribute(){
+		random.setSeed(SEED);
+		int placedCount = distributeEngine.place(keywordCount, widths, heights, containerWidth, containerHeight, random, lefts, tops);
+		KeywordLayoutEngine.computeQuadrants(keywordCount, lefts, tops, containerWidth, containerHeight, quadrants);
+		return placedCount;
+	}
+	
+	/**
+	 * 按权重计算文字大小时搜索缩放比例，包括多次网格布局
+	 */
+	@Benchmark
+	public float fitGrid(){
+		random.setSeed(SEED);
+		float scale = gridEngine.fit(keywordCount, widths, heights, containerWidth, containerHeight, random, lefts, tops);
+		KeywordLayoutEngine.computeQuadrants(keywordCount, lefts, tops, containerWidth, containerHeight, quadrants);
+		return scale;
+	}
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2013 Peng fei Pan <sky@xiaopan.me>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.xiaopan.android.flowtext;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * CollisionGrid的单元测试，网格找到的重叠以及推开之后的位置和逐对检查的结果一致
+ */
+public class CollisionGridTest {
+	/**
+	 * 关键字所在的格子的间距，远大于关键字的尺寸，推开重叠的一对关键字不会碰到其它的关键字
+	 */
+	private static final int SLOT = 200;
+	
+	@Test
+	public void collisionsMatchBruteForce(){
+		Random random = new Random(12);
+		CollisionGrid collisionGrid = new CollisionGrid();
+		for(int round = 0; round < 50; round++){
+			FlowField field = createField(random, 6 + random.nextInt(6), 6 + random.nextInt(6));
+			int containerWidth = 12 * SLOT;
+			int containerHeight = 12 * SLOT;
+			int n = field.getCount();
+			//重叠的关键字两两成对，互不影响，所以逐对检查并推开的结果和网格处理的顺序无关
+			float[] expectedXs = new float[n];
+			float[] expectedYs = new float[n];
+			int expected = resolveBruteForce(field, expectedXs, expectedYs);
+			assertEquals(expected, collisionGrid.resolve(field, containerWidth, containerHeight));
+			assertEquals(expected, collisionGrid.getCollisionCount());
+			assertTrue(collisionGrid.getPairCount() <= n * (n - 1) / 2);
+			for(int w = 0; w < n; w++){
+				assertEquals(expectedXs[w], field.getX(w), 0);
+				assertEquals(expectedYs[w], field.getY(w), 0);
+			}
+		}
+	}
+	
+	@Test
+	public void transparentKeywordsAreIgnored(){
+		FlowField field = new FlowField();
+		field.setCount(2);
+		field.setBounds(0, 10, 10, 40, 20);
+		field.setBounds(1, 20, 15, 40, 20);
+		field.setAlpha(0, 1, 0);
+		field.setAlpha(1, 0, 0);
+		CollisionGrid collisionGrid = new CollisionGrid();
+		assertEquals(0, collisionGrid.resolve(field, 200, 200));
+		field.setAlpha(1, 1, 0);
+		assertEquals(1, collisionGrid.resolve(field, 200, 200));
+	}
+	
+	/**
+	 * 每个格子放一个关键字，部分格子再放一个和它部分重叠的关键字
+	 */
+	private static FlowField createField(Random random, int columns, int rows){
+		FlowField field = new FlowField();
+		field.setCount(columns * rows * 2);
+		int count = 0;
+		for(int row = 0; row < rows; row++){
+			for(int column = 0; column < columns; column++){
+				int x = column * SLOT + random.nextInt(SLOT / 4);
+				int y = row * SLOT + random.nextInt(SLOT / 4);
+				int width = 10 + random.nextInt(40);
+				int height = 10 + random.nextInt(20);
+				field.setBounds(count, x, y, width, height);
+				field.setAlpha(count++, 1, 0);
+				if(random.nextBoolean()){
+					field.setBounds(count, x + random.nextInt(width), y + random.nextInt(height), 10 + random.nextInt(40), 10 + random.nextInt(20));
+					field.setAlpha(count++, 1, 0);
+				}
+			}
+		}
+		field.setCount(count);
+		return field;
+	}
+	
+	/**
+	 * 所有关键字两两检查，重叠的沿重叠较少的方向各推开一半，结果放在给定的数组中，不修改漂流场
+	 * @return 重叠的对数
+	 */
+	private static int resolveBruteForce(FlowField field, float[] outXs, float[] outYs){
+		int n = field.getCount();
+		System.arraycopy(field.xs, 0, outXs, 0, n);
+		System.arraycopy(field.ys, 0, outYs, 0, n);
+		int overlaps = 0;
+		for(int w = 0; w < n; w++){
+			for(int other = w + 1; other < n; other++){
+				float overlapX = Math.min(field.xs[w] + field.widths[w], field.xs[other] + field.widths[other]) - Math.max(field.xs[w], field.xs[other]);
+				float overlapY = Math.min(field.ys[w] + field.heights[w], field.ys[other] + field.heights[other]) - Math.max(field.ys[w], field.ys[other]);
+				if(overlapX <= 0 || overlapY <= 0){
+					continue;
+				}
+				overlaps++;
+				if(overlapX < overlapY){
+					float direction = field.xs[w] + field.widths[w] / 2 < field.xs[other] + field.widths[other] / 2 ? -1 : 1;
+					outXs[w] += direction * overlapX / 2;
+					outXs[other] -= direction * overlapX / 2;
+				}else{
+					float direction = field.ys[w] + field.heights[w] / 2 < field.ys[other] + field.heights[other] / 2 ? -1 : 1;
+					outYs[w] += direction * overlapY / 2;
+					outYs[other] -= direction * overlapY / 2;
+				}
+			}
+		}
+		return overlaps;
+	}
+}
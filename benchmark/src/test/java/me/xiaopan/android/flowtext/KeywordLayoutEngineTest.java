@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2013 Peng fei Pan <sky@xiaopan.me>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.xiaopan.android.flowtext;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * KeywordLayoutEngine.fit()的单元测试，缩放比例随容器增大而单调不减，最宽、最高的关键字缩放之后不超出容器
+ */
+public class KeywordLayoutEngineTest {
+	private static final int COUNT = 40;
+	
+	@Test
+	public void scaleIsMonotonicInContainerSize(){
+		assertMonotonic(new KeywordLayoutEngine(new KeywordPlacer()));
+	}
+	
+	@Test
+	public void scaleIsMonotonicInContainerSizeWithoutPlacer(){
+		assertMonotonic(new KeywordLayoutEngine(null));
+	}
+	
+	@Test
+	public void fittedKeywordsAreAllPlacedWithoutOverlap(){
+		KeywordLayoutEngine keywordLayoutEngine = new KeywordLayoutEngine(new KeywordPlacer());
+		Random random = new Random(8);
+		for(int round = 0; round < 10; round++){
+			int[] widths = new int[COUNT];
+			int[] heights = new int[COUNT];
+			randomExtents(random, widths, heights);
+			int containerWidth = 300 + random.nextInt(700);
+			int containerHeight = 300 + random.nextInt(700);
+			int[] lefts = new int[COUNT];
+			int[] tops = new int[COUNT];
+			float scale = keywordLayoutEngine.fit(COUNT, widths, heights, containerWidth, containerHeight, new Random(round), lefts, tops);
+			assertTrue(scale > 0);
+			for(int w = 0; w < COUNT; w++){
+				int width = KeywordLayoutEngine.scaleExtent(widths[w], scale);
+				int height = KeywordLayoutEngine.scaleExtent(heights[w], scale);
+				assertTrue(lefts[w] >= 0 && lefts[w] + width <= containerWidth);
+				assertTrue(tops[w] >= 0 && tops[w] + height <= containerHeight);
+				for(int other = w + 1; other < COUNT; other++){
+					int otherWidth = KeywordLayoutEngine.scaleExtent(widths[other], scale);
+					int otherHeight = KeywordLayoutEngine.scaleExtent(heights[other], scale);
+					assertFalse(lefts[w] < lefts[other] + otherWidth && lefts[other] < lefts[w] + width
+							&& tops[w] < tops[other] + otherHeight && tops[other] < tops[w] + height);
+				}
+			}
+		}
+	}
+	
+	@Test
+	public void scaleIsClampedToTheWidestKeyword(){
+		int containerWidth = 480;
+		int containerHeight = 800;
+		int[] widths = new int[]{2000, 40, 60, 80};
+		int[] heights = new int[]{30, 30, 30, 30};
+		int[] lefts = new int[widths.length];
+		int[] tops = new int[widths.length];
+		
+		//有布局器时最宽的关键字缩放之后也要放得下
+		float scale = new KeywordLayoutEngine(new KeywordPlacer()).fit(widths.length, widths, heights, containerWidth, containerHeight, new Random(9), lefts, tops);
+		assertTrue(scale <= (float) containerWidth / widths[0]);
+		assertTrue(KeywordLayoutEngine.scaleExtent(widths[0], scale) <= containerWidth);
+		for(int w = 0; w < widths.length; w++){
+			assertTrue(lefts[w] != KeywordPlacer.NOT_PLACED);
+		}
+		
+		//没有布局器时直接使用上限，最宽的关键字缩放之后正好放得下
+		scale = new KeywordLayoutEngine(null).fit(widths.length, widths, heights, containerWidth, containerHeight, new Random(9), lefts, tops);
+		assertEquals((float) (containerWidth - 1) / widths[0], scale, 1e-6f);
+		for(int w = 0; w < widths.length; w++){
+			assertTrue(lefts[w] >= 0 && lefts[w] + KeywordLayoutEngine.scaleExtent(widths[w], scale) <= containerWidth);
+			assertTrue(tops[w] >= 0 && tops[w] + KeywordLayoutEngine.scaleExtent(heights[w], scale) <= containerHeight);
+		}
+	}
+	
+	@Test
+	public void scaleIsClampedToTheTallestKeyword(){
+		int containerWidth = 800;
+		int containerHeight = 300;
+		int[] widths = new int[]{30, 30, 30};
+		int[] heights = new int[]{1200, 20, 20};
+		float scale = new KeywordLayoutEngine(new KeywordPlacer()).fit(widths.length, widths, heights, containerWidth, containerHeight, new Random(10), new int[3], new int[3]);
+		assertTrue(scale <= (float) containerHeight / heights[0]);
+		assertTrue(KeywordLayoutEngine.scaleExtent(heights[0], scale) <= containerHeight);
+	}
+	
+	/**
+	 * 同一组关键字，容器的宽、高同时放大时缩放比例不会变小
+	 */
+	private static void assertMonotonic(KeywordLayoutEngine keywordLayoutEngine){
+		Random random = new Random(11);
+		int[] widths = new int[COUNT];
+		int[] heights = new int[COUNT];
+		randomExtents(random, widths, heights);
+		int[] lefts = new int[COUNT];
+		int[] tops = new int[COUNT];
+		float previousScale = 0;
+		for(int size = 200; size <= 3200; size <<= 1){
+			float scale = keywordLayoutEngine.fit(COUNT, widths, heights, size, size * 4 / 3, new Random(size), lefts, tops);
+			assertTrue("scale " + scale + " at " + size + " is smaller than " + previousScale, scale >= previousScale);
+			previousScale = scale;
+		}
+	}
+	
+	private static void randomExtents(Random random, int[] widths, int[] heights){
+		for(int w = 0; w < widths.length; w++){
+			widths[w] = 40 + random.nextInt(160);
+			heights[w] = 24 + random.nextInt(24);
+		}
+	}
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2013 Peng fei Pan <sky@xiaopan.me>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.xiaopan.android.flowtext;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * KeywordPlacer的单元测试，放置的关键字互不重叠且不超出容器，放不下的关键字的坐标是NOT_PLACED
+ */
+public class KeywordPlacerTest {
+	private static final int CONTAINER_WIDTH = 720;
+	private static final int CONTAINER_HEIGHT = 960;
+	
+	@Test
+	public void placedKeywordsDoNotOverlap(){
+		Random random = new Random(1);
+		for(int round = 0; round < 20; round++){
+			int count = 20 + random.nextInt(60);
+			int[] widths = new int[count];
+			int[] heights = new int[count];
+			randomExtents(random, widths, heights);
+			int[] lefts = new int[count];
+			int[] tops = new int[count];
+			KeywordPlacer keywordPlacer = new KeywordPlacer();
+			keywordPlacer.setSpacing(round % 3);
+			int placedCount = keywordPlacer.place(count, widths, heights, CONTAINER_WIDTH, CONTAINER_HEIGHT, random, lefts, tops);
+			assertEquals(countPlaced(0, count, lefts, tops), placedCount);
+			assertValid(count, widths, heights, lefts, tops, keywordPlacer.getSpacing());
+		}
+	}
+	
+	@Test
+	public void keywordsThatDoNotFitAreNotPlaced(){
+		Random random = new Random(2);
+		int count = 400;
+		int[] widths = new int[count];
+		int[] heights = new int[count];
+		randomExtents(random, widths, heights);
+		//比容器还大的关键字肯定放不下
+		widths[0] = CONTAINER_WIDTH + 1;
+		heights[1] = CONTAINER_HEIGHT + 1;
+		int[] lefts = new int[count];
+		int[] tops = new int[count];
+		int placedCount = new KeywordPlacer().place(count, widths, heights, CONTAINER_WIDTH, CONTAINER_HEIGHT, random, lefts, tops);
+		assertTrue(placedCount < count);
+		assertEquals(countPlaced(0, count, lefts, tops), placedCount);
+		assertEquals(KeywordPlacer.NOT_PLACED, lefts[0]);
+		assertEquals(KeywordPlacer.NOT_PLACED, tops[0]);
+		assertEquals(KeywordPlacer.NOT_PLACED, lefts[1]);
+		assertEquals(KeywordPlacer.NOT_PLACED, tops[1]);
+		assertValid(count, widths, heights, lefts, tops, 0);
+	}
+	
+	@Test
+	public void fixedKeywordsStayInPlace(){
+		Random random = new Random(3);
+		KeywordPlacer keywordPlacer = new KeywordPlacer();
+		for(int round = 0; round < 20; round++){
+			int count = 40 + random.nextInt(40);
+			int[] widths = new int[count];
+			int[] heights = new int[count];
+			randomExtents(random, widths, heights);
+			int[] lefts = new int[count];
+			int[] tops = new int[count];
+			//先放置前一半，把放得下的作为固定的关键字移到前面
+			int half = count / 2;
+			keywordPlacer.place(half, widths, heights, CONTAINER_WIDTH, CONTAINER_HEIGHT, random, lefts, tops);
+			int fixedCount = 0;
+			for(int w = 0; w < half; w++){
+				if(lefts[w] != KeywordPlacer.NOT_PLACED){
+					swap(widths, w, fixedCount);
+					swap(heights, w, fixedCount);
+					swap(lefts, w, fixedCount);
+					swap(tops, w, fixedCount);
+					fixedCount++;
+				}
+			}
+			int[] fixedLefts = new int[fixedCount];
+			int[] fixedTops = new int[fixedCount];
+			System.arraycopy(lefts, 0, fixedLefts, 0, fixedCount);
+			System.arraycopy(tops, 0, fixedTops, 0, fixedCount);
+			
+			int placedCount = keywordPlacer.place(count, fixedCount, widths, heights, CONTAINER_WIDTH, CONTAINER_HEIGHT, random, lefts, tops);
+			//返回值不包括已经放置好的
+			assertEquals(countPlaced(fixedCount, count, lefts, tops), placedCount);
+			for(int w = 0; w < fixedCount; w++){
+				assertEquals(fixedLefts[w], lefts[w]);
+				assertEquals(fixedTops[w], tops[w]);
+			}
+			assertValid(count, widths, heights, lefts, tops, 0);
+		}
+	}
+	
+	@Test
+	public void emptyInputPlacesNothing(){
+		assertEquals(0, new KeywordPlacer().place(0, new int[0], new int[0], CONTAINER_WIDTH, CONTAINER_HEIGHT, new Random(4), new int[0], new int[0]));
+	}
+	
+	private static void randomExtents(Random random, int[] widths, int[] heights){
+		for(int w = 0; w < widths.length; w++){
+			widths[w] = 20 + random.nextInt(200);
+			heights[w] = 16 + random.nextInt(48);
+		}
+	}
+	
+	private static int countPlaced(int start, int end, int[] lefts, int[] tops){
+		int placedCount = 0;
+		for(int w = start; w < end; w++){
+			assertEquals(lefts[w] == KeywordPlacer.NOT_PLACED, tops[w] == KeywordPlacer.NOT_PLACED);
+			if(lefts[w] != KeywordPlacer.NOT_PLACED){
+				placedCount++;
+			}
+		}
+		return placedCount;
+	}
+	
+	/**
+	 * 逐对检查放置好的关键字没有超出容器，相互之间的距离不小于给定的间距
+	 */
+	private static void assertValid(int count, int[] widths, int[] heights, int[] lefts, int[] tops, int spacing){
+		for(int w = 0; w < count; w++){
+			if(lefts[w] == KeywordPlacer.NOT_PLACED){
+				continue;
+			}
+			assertTrue(lefts[w] >= 0 && lefts[w] + widths[w] <= CONTAINER_WIDTH);
+			assertTrue(tops[w] >= 0 && tops[w] + heights[w] <= CONTAINER_HEIGHT);
+			for(int other = w + 1; other < count; other++){
+				if(lefts[other] == KeywordPlacer.NOT_PLACED){
+					continue;
+				}
+				boolean overlaps = lefts[w] < lefts[other] + widths[other] + spacing && lefts[other] < lefts[w] + widths[w] + spacing
+						&& tops[w] < tops[other] + heights[other] + spacing && tops[other] < tops[w] + heights[w] + spacing;
+				assertFalse("keyword " + w + " overlaps " + other, overlaps);
+			}
+		}
+	}
+	
+	private static void swap(int[] values, int i, int j){
+		int value = values[i];
+		values[i] = values[j];
+		values[j] = value;
+	}
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2013 Peng fei Pan <sky@xiaopan.me>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.xiaopan.android.flowtext;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import me.xiaopan.android.flowtext.KeywordPool.Sampling;
+
+import org.junit.Test;
+
+/**
+ * KeywordPool的单元测试，每种取样方式取出的一页都互不相同
+ */
+public class KeywordPoolTest {
+	private static final int POOL_SIZE = 500;
+	
+	@Test
+	public void sequentialPagesAreDistinct(){
+		assertDistinctPages(Sampling.SEQUENTIAL, false);
+	}
+	
+	@Test
+	public void uniformPagesAreDistinct(){
+		assertDistinctPages(Sampling.UNIFORM, false);
+	}
+	
+	@Test
+	public void weightedPagesAreDistinct(){
+		assertDistinctPages(Sampling.WEIGHTED, false);
+	}
+	
+	@Test
+	public void weightedPagesAreDistinctWithSkewedWeights(){
+		//少数几个权重极大的关键字会被反复取到，必须靠顺序补齐才能凑够一页
+		assertDistinctPages(Sampling.WEIGHTED, true);
+	}
+	
+	@Test
+	public void sequentialPagesRotateThroughAllKeywords(){
+		KeywordPool keywordPool = createPool(false);
+		int[] indexes = new int[30];
+		int expected = 0;
+		for(int page = 0; page < 50; page++){
+			assertEquals(indexes.length, keywordPool.nextPage(indexes.length, new Random(page), indexes));
+			for(int w = 0; w < indexes.length; w++){
+				assertEquals(expected, indexes[w]);
+				expected = (expected + 1) % POOL_SIZE;
+			}
+		}
+	}
+	
+	@Test
+	public void smallPoolReturnsEverything(){
+		for(Sampling sampling : Sampling.values()){
+			KeywordPool keywordPool = new KeywordPool(4);
+			keywordPool.setSampling(sampling);
+			for(int w = 0; w < 5; w++){
+				keywordPool.add("keyword" + w, w);
+			}
+			int[] indexes = new int[10];
+			assertEquals(5, keywordPool.nextPage(10, new Random(5), indexes));
+			for(int w = 0; w < 5; w++){
+				assertEquals(w, indexes[w]);
+			}
+		}
+	}
+	
+	@Test
+	public void keywordsAreStoredInOrder(){
+		KeywordPool keywordPool = createPool(false);
+		assertEquals(POOL_SIZE, keywordPool.size());
+		for(int w = 0; w < POOL_SIZE; w++){
+			assertEquals("keyword" + w, keywordPool.get(w));
+		}
+	}
+	
+	private static KeywordPool createPool(boolean skewed){
+		KeywordPool keywordPool = new KeywordPool(8);
+		Random random = new Random(6);
+		for(int w = 0; w < POOL_SIZE; w++){
+			float weight = skewed ? (w < 3 ? 1000000 : 0.001f) : 1 + random.nextInt(10);
+			keywordPool.add("keyword" + w, weight);
+		}
+		return keywordPool;
+	}
+	
+	private static void assertDistinctPages(Sampling sampling, boolean skewed){
+		KeywordPool keywordPool = createPool(skewed);
+		keywordPool.setSampling(sampling);
+		Random random = new Random(7);
+		boolean[] seen = new boolean[POOL_SIZE];
+		for(int page = 0; page < 200; page++){
+			int count = 1 + random.nextInt(POOL_SIZE - 1);
+			int[] indexes = new int[count];
+			assertEquals(count, keywordPool.nextPage(count, random, indexes));
+			for(int w = 0; w < count; w++){
+				assertTrue(indexes[w] >= 0 && indexes[w] < POOL_SIZE);
+				assertFalse(sampling + " returned " + indexes[w] + " twice", seen[indexes[w]]);
+				seen[indexes[w]] = true;
+			}
+			for(int w = 0; w < count; w++){
+				seen[indexes[w]] = false;
+			}
+		}
+	}
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright (C) 2013 Peng fei Pan <sky@xiaopan.me>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.xiaopan.android.flowtext;
+
+/**
+ * 碰撞检测网格，把容器划分为边长不小于最大关键字尺寸的均匀网格，每个关键字按左上角归入一个格子，只需检查相邻9个格子中的关键字
+ * <br>每帧只移动换了格子的关键字，重叠的两个关键字沿重叠较少的方向各退一半，相向运动的话交换这个方向上的速度
+ * <br>只依赖Java标准库，每帧不分配任何对象，同一个网格不能同时在多个线程中使用
+ */
+public class CollisionGrid {
+	/**
+	 * 格子的边长
+	 */
+	private float cellSize;
+	/**
+	 * 列数和行数，四周各多出一格，容纳部分移出容器的关键字
+	 */
+	private int columns, rows;
+	/**
+	 * 每个格子中第一个关键字的位置，-1表示空格子
+	 */
+	private int[] heads;
+	/**
+	 * 每个关键字在格子链表中的下一个和上一个，-1表示没有
+	 */
+	private int[] nexts, prevs;
+	/**
+	 * 每个关键字所在的格子，-1表示不在网格中
+	 */
+	private int[] cells;
+	/**
+	 * 网格中的关键字个数
+	 */
+	private int count;
+	/**
+	 * 上一帧精确检查的关键字对数
+	 */
+	private int pairCount;
+	/**
+	 * 上一帧发现并处理的重叠次数
+	 */
+	private int collisionCount;
+	
+	public CollisionGrid(){
+		heads = nexts = prevs = cells = new int[0];
+	}
+	
+	/**
+	 * 更新网格并处理所有重叠的关键字，完全透明的关键字不参与
+	 * @param field 漂流场
+	 * @param containerWidth 容器的宽
+	 * @param containerHeight 容器的高
+	 * @return 发现并处理的重叠次数
+	 */
+	public int resolve(FlowField field, float containerWidth, float containerHeight){
+		update(field, containerWidth, containerHeight);
+		pairCount = 0;
+		collisionCount = 0;
+		float[] xs = field.xs, ys = field.ys, widths = field.widths, heights = field.heights;
+		for(int w = 0; w < count; w++){
+			int cell = cells[w];
+			if(cell < 0){
+				continue;
+			}
+			int column = cell % columns;
+			int row = cell / columns;
+			for(int r = Math.max(row - 1, 0); r <= Math.min(row + 1, rows - 1); r++){
+				for(int c = Math.max(column - 1, 0); c <= Math.min(column + 1, columns - 1); c++){
+					for(int other = heads[r * columns + c]; other != -1; other = nexts[other]){
+						//每一对只检查一次
+						if(other <= w){
+							continue;
+						}
+						pairCount++;
+						float overlapX = Math.min(xs[w] + widths[w], xs[other] + widths[other]) - Math.max(xs[w], xs[other]);
+						float overlapY = Math.min(ys[w] + heights[w], ys[other] + heights[other]) - Math.max(ys[w], ys[other]);
+						if(overlapX > 0 && overlapY > 0){
+							separate(field, w, other, overlapX, overlapY);
+							collisionCount++;
+						}
+					}
+				}
+			}
+		}
+		return collisionCount;
+	}
+	
+	/**
+	 * 获取上一帧精确检查的关键字对数
+	 * @return 关键字对数，所有关键字两两检查的话是n*(n-1)/2
+	 */
+	public int getPairCount(){
+		return pairCount;
+	}
+	
+	/**
+	 * 获取上一帧发现并处理的重叠次数
+	 * @return 重叠次数
+	 */
+	public int getCollisionCount(){
+		return collisionCount;
+	}
+	
+	/**
+	 * 清空网格，下次处理时重新放入所有的关键字
+	 */
+	public void clear(){
+		count = 0;
+		cellSize = 0;
+	}
+	
+	/**
+	 * 更新网格，关键字个数、容器尺寸变化或者有关键字比格子大的话全部重新放入，否则只移动换了格子的关键字
+	 */
+	private void update(FlowField field, float containerWidth, float containerHeight){
+		int fieldCount = field.getCount();
+		float maxSize = 0;
+		for(int w = 0; w < fieldCount; w++){
+			maxSize = Math.max(maxSize, Math.max(field.widths[w], field.heights[w]));
+		}
+		maxSize = Math.max(maxSize, 1);
+		int newColumns = (int) Math.ceil(containerWidth / Math.max(maxSize, cellSize)) + 2;
+		int newRows = (int) Math.ceil(containerHeight / Math.max(maxSize, cellSize)) + 2;
+		if(fieldCount != count || maxSize > cellSize || newColumns != columns || newRows != rows){
+			rebuild(fieldCount, maxSize, containerWidth, containerHeight);
+		}
+		
+		for(int w = 0; w < count; w++){
+			int cell = field.alphas[w] > 0 ? getCell(field.xs[w], field.ys[w]) : -1;
+			if(cell != cells[w]){
+				unlink(w);
+				link(w, cell);
+			}
+		}
+	}
+	
+	/**
+	 * 按照新的格子边长重新创建网格
+	 */
+	private void rebuild(int newCount, float newCellSize, float containerWidth, float containerHeight){
+		cellSize = newCellSize;
+		columns = (int) Math.ceil(containerWidth / cellSize) + 2;
+		rows = (int) Math.ceil(containerHeight / cellSize) + 2;
+		if(heads.length < columns * rows){
+			heads = new int[columns * rows];
+		}
+		for(int w = 0; w < columns * rows; w++){
+			heads[w] = -1;
+		}
+		if(cells.length < newCount){
+			int capacity = Math.max(newCount, cells.length << 1);
+			nexts = new int[capacity];
+			prevs = new int[capacity];
+			cells = new int[capacity];
+		}
+		for(int w = 0; w < newCount; w++){
+			nexts[w] = -1;
+			prevs[w] = -1;
+			cells[w] = -1;
+		}
+		count = newCount;
+	}
+	
+	/**
+	 * 获取给定坐标所在的格子，超出网格的归入最近的格子
+	 */
+	private int getCell(float x, float y){
+		int column = Math.max(0, Math.min((int) Math.floor(x / cellSize) + 1, columns - 1));
+		int row = Math.max(0, Math.min((int) Math.floor(y / cellSize) + 1, rows - 1));
+		return row * columns + column;
+	}
+	
+	private void link(int index, int cell){
+		cells[index] = cell;
+		if(cell < 0){
+			return;
+		}
+		prevs[index] = -1;
+		nexts[index] = heads[cell];
+		if(heads[cell] != -1){
+			prevs[heads[cell]] = index;
+		}
+		heads[cell] = index;
+	}
+	
+	private void unlink(int index){
+		int cell = cells[index];
+		if(cell < 0){
+			return;
+		}
+		if(prevs[index] != -1){
+			nexts[prevs[index]] = nexts[index];
+		}else{
+			heads[cell] = nexts[index];
+		}
+		if(nexts[index] != -1){
+			prevs[nexts[index]] = prevs[index];
+		}
+		nexts[index] = -1;
+		prevs[index] = -1;
+		cells[index] = -1;
+	}
+	
+	/**
+	 * 把重叠的两个关键字沿重叠较少的方向各推开一半，相向运动的话交换这个方向上的速度
+	 */
+	private void separate(FlowField field, int first, int second, float overlapX, float overlapY){
+		if(overlapX < overlapY){
+			//第一个在左边的话向左推
+			float direction = field.xs[first] + field.widths[first] / 2 < field.xs[second] + field.widths[second] / 2 ? -1 : 1;
+			field.xs[first] += direction * overlapX / 2;
+			field.xs[second] -= direction * overlapX / 2;
+			if((field.velocityXs[first] - field.velocityXs[second]) * -direction > 0){
+				float velocityX = field.velocityXs[first];
+				field.velocityXs[first] = field.velocityXs[second];
+				field.velocityXs[second] = velocityX;
+			}
+		}else{
+			float direction = field.ys[first] + field.heights[first] / 2 < field.ys[second] + field.heights[second] / 2 ? -1 : 1;
+			field.ys[first] += direction * overlapY / 2;
+			field.ys[second] -= direction * overlapY / 2;
+			if((field.velocityYs[first] - field.velocityYs[second]) * -direction > 0){
+				float velocityY = field.velocityYs[first];
+				field.velocityYs[first] = field.velocityYs[second];
+				field.velocityYs[second] = velocityY;
+			}
+		}
+	}
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright (C) 2013 Peng fei Pan <sky@xiaopan.me>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.xiaopan.android.flowtext;
+
+import java.util.Random;
+
+/**
+ * 漂流场，用基本类型数组按列存放每个关键字的位置、速度、透明度和淡入淡出速度，每帧推进一次，推进过程中不分配任何对象
+ * <br>只依赖Java标准库，同一个漂流场不能同时在多个线程中使用
+ * <br>数组是包内可见的，CollisionGrid直接读写
+ */
+public class FlowField {
+	/**
+	 * 每个关键字的左上角坐标
+	 */
+	float[] xs, ys;
+	/**
+	 * 每个关键字的速度，单位像素每秒
+	 */
+	float[] velocityXs, velocityYs;
+	/**
+	 * 每个关键字的透明度，0～1
+	 */
+	float[] alphas;
+	/**
+	 * 每个关键字的透明度变化速度，每秒变化多少，正数是淡入，负数是淡出，0是不变
+	 */
+	private float[] fades;
+	/**
+	 * 每个关键字的宽和高
+	 */
+	float[] widths, heights;
+	/**
+	 * 关键字的个数
+	 */
+	private int count;
+	
+	public FlowField(){
+		xs = ys = velocityXs = velocityYs = alphas = fades = widths = heights = new float[0];
+	}
+	
+	/**
+	 * 设置关键字的个数，容量不够的话扩充，已有的数据保留
+	 * @param count 关键字的个数
+	 */
+	public void setCount(int count){
+		if(xs.length < count){
+			int capacity = Math.max(count, xs.length << 1);
+			xs = copyOf(xs, capacity);
+			ys = copyOf(ys, capacity);
+			velocityXs = copyOf(velocityXs, capacity);
+			velocityYs = copyOf(velocityYs, capacity);
+			alphas = copyOf(alphas, capacity);
+			fades = copyOf(fades, capacity);
+			widths = copyOf(widths, capacity);
+			heights = copyOf(heights, capacity);
+		}
+		this.count = count;
+	}
+	
+	public int getCount(){
+		return count;
+	}
+	
+	/**
+	 * 设置给定关键字的位置和尺寸
+	 * @param index 位置
+	 * @param x 左上角的X轴坐标
+	 * @param y 左上角的Y轴坐标
+	 * @param width 宽
+	 * @param height 高
+	 */
+	public void setBounds(int index, float x, float y, float width, float height){
+		xs[index] = x;
+		ys[index] = y;
+		widths[index] = width;
+		heights[index] = height;
+	}
+	
+	/**
+	 * 为给定的关键字随机选择一个方向，速度在给定速度的一半到给定速度之间
+	 * @param index 位置
+	 * @param speed 最大速度，单位像素每秒
+	 * @param random 随机数生成器
+	 */
+	public void setRandomVelocity(int index, float speed, Random random){
+		double angle = random.nextDouble() * Math.PI * 2;
+		float magnitude = speed * (0.5f + 0.5f * random.nextFloat());
+		velocityXs[index] = (float) (Math.cos(angle) * magnitude);
+		velocityYs[index] = (float) (Math.sin(angle) * magnitude);
+	}
+	
+	/**
+	 * 设置给定关键字的透明度和透明度变化速度
+	 * @param index 位置
+	 * @param alpha 透明度
+	 * @param fade 透明度每秒变化多少，正数是淡入，负数是淡出，0是不变
+	 */
+	public void setAlpha(int index, float alpha, float fade){
+		alphas[index] = alpha;
+		fades[index] = fade;
+	}
+	
+	/**
+	 * 推进一帧，移动所有的关键字并在碰到边缘时按照给定的方式处理，同时更新透明度
+	 * @param seconds 距离上一帧的时间，单位秒
+	 * @param containerWidth 容器的宽
+	 * @param containerHeight 容器的高
+	 * @param edge 碰到边缘时的处理方式
+	 * @param outFaded 用来存放这一帧完全淡出的关键字的位置，长度至少是getCount()
+	 * @return 这一帧完全淡出的关键字的个数
+	 */
+	public int step(float seconds, float containerWidth, float containerHeight, Edge edge, int[] outFaded){
+		int fadedCount = 0;
+		boolean bounce = edge == Edge.BOUNCE;
+		for(int w = 0; w < count; w++){
+			float x = xs[w] + velocityXs[w] * seconds;
+			float y = ys[w] + velocityYs[w] * seconds;
+			if(bounce){
+				//碰到边缘的话反弹，并且拉回容器内
+				float maxX = containerWidth - widths[w];
+				float maxY = containerHeight - heights[w];
+				if(x < 0 || x > maxX){
+					velocityXs[w] = x < 0 ? Math.abs(velocityXs[w]) : -Math.abs(velocityXs[w]);
+					x = Math.max(0, Math.min(x, Math.max(maxX, 0)));
+				}
+				if(y < 0 || y > maxY){
+					velocityYs[w] = y < 0 ? Math.abs(velocityYs[w]) : -Math.abs(velocityYs[w]);
+					y = Math.max(0, Math.min(y, Math.max(maxY, 0)));
+				}
+			}else{
+				//完全移出一边的话从另一边进入
+				if(x > containerWidth){
+					x = -widths[w];
+				}else if(x < -widths[w]){
+					x = containerWidth;
+				}
+				if(y > containerHeight){
+					y = -heights[w];
+				}else if(y < -heights[w]){
+					y = containerHeight;
+				}
+			}
+			xs[w] = x;
+			ys[w] = y;
+			
+			if(fades[w] != 0){
+				float alpha = alphas[w] + fades[w] * seconds;
+				if(alpha >= 1){
+					alpha = 1;
+					fades[w] = 0;
+				}else if(alpha <= 0){
+					alpha = 0;
+					fades[w] = 0;
+					outFaded[fadedCount++] = w;
+				}
+				alphas[w] = alpha;
+			}
+		}
+		return fadedCount;
+	}
+	
+	public float getX(int index){
+		return xs[index];
+	}
+	
+	public float getY(int index){
+		return ys[index];
+	}
+	
+	public float getAlpha(int index){
+		return alphas[index];
+	}
+	
+	/**
+	 * 给定的关键字是否正在淡入或淡出
+	 * @param index 位置
+	 * @return 是否正在淡入或淡出
+	 */
+	public boolean isFading(int index){
+		return fades[index] != 0;
+	}
+	
+	private static float[] copyOf(float[] array, int length){
+		float[] newArray = new float[length];
+		System.arraycopy(array, 0, newArray, 0, Math.min(array.length, length));
+		return newArray;
+	}
+	
+	/**
+	 * 碰到边缘时的处理方式
+	 */
+	public enum Edge{
+		/**
+		 * 完全移出一边之后从另一边进入
+		 */
+		WRAP, 
+		
+		/**
+		 * 碰到边缘时反弹
+		 */
+		BOUNCE;
+	}
+}
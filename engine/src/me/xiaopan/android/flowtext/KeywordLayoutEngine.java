@@ -0,0 +1,298 @@
+/*
+ * Copyright (C) 2013 Peng fei Pan <sky@xiaopan.me>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.xiaopan.android.flowtext;
+
+import java.util.Random;
+
+/**
+ * 关键字布局引擎，只依赖Java标准库，输入每个关键字的宽和高，输出每个关键字的坐标、所在象限以及过渡动画的方向
+ * <br>FlowText用它计算布局，也可以直接在普通的JVM上使用，例如做基准测试
+ * <br>所有的数组都会被复用，因此同一个引擎不能同时在多个线程中使用
+ */
+public class KeywordLayoutEngine {
+	/**
+	 * 象限的个数，包括正好在X轴或Y轴上的
+	 */
+	public static final int QUADRANT_COUNT = 5;
+	/**
+	 * 正好在X轴或Y轴上
+	 */
+	public static final int QUADRANT_AXIS = 4;
+	/**
+	 * 搜索缩放比例时，二分查找的次数
+	 */
+	private static final int FIT_ITERATIONS = 6;
+	/**
+	 * 搜索缩放比例时，缩放比例的最小值
+	 */
+	private static final float MIN_FIT_SCALE = 0.25f;
+	/**
+	 * 关键字布局器，为null时按平均宽、高随机分配坐标
+	 */
+	private KeywordPlacer keywordPlacer;
+	/**
+	 * 搜索缩放比例时尝试用的宽、高和坐标
+	 */
+	private int[] trialWidths, trialHeights, trialLefts, trialTops;
+	/**
+	 * 随机分配坐标时剩余的X、Y轴坐标
+	 */
+	private int[] slotXs, slotYs;
+	
+	/**
+	 * 创建关键字布局引擎
+	 * @param keywordPlacer 关键字布局器，为null时按平均宽、高随机分配坐标，不保证互不重叠
+	 */
+	public KeywordLayoutEngine(KeywordPlacer keywordPlacer){
+		setKeywordPlacer(keywordPlacer);
+		trialWidths = trialHeights = trialLefts = trialTops = new int[0];
+		slotXs = slotYs = new int[0];
+	}
+	
+	/**
+	 * 为给定的关键字分配坐标
+	 * @param count 关键字的个数
+	 * @param widths 每个关键字的宽
+	 * @param heights 每个关键字的高
+	 * @param containerWidth 容器的宽
+	 * @param containerHeight 容器的高
+	 * @param random 随机数分配器
+	 * @param outLefts 用来存放每个关键字的左外边距，无法放置的关键字为KeywordPlacer.NOT_PLACED
+	 * @param outTops 用来存放每个关键字的顶外边距，无法放置的关键字为KeywordPlacer.NOT_PLACED
+	 * @return 成功放置的关键字的个数
+	 */
+	public int place(int count, int[] widths, int[] heights, int containerWidth, int containerHeight, Random random, int[] outLefts, int[] outTops){
+		if(keywordPlacer != null){
+			return keywordPlacer.place(count, widths, heights, containerWidth, containerHeight, random, outLefts, outTops);
+		}else{
+			distribute(count, widths, heights, containerWidth, containerHeight, random, outLefts, outTops);
+			return count;
+		}
+	}
+	
+	/**
+	 * 搜索能让所有关键字都放得下的最大的缩放比例，并按照这个比例分配坐标
+	 * <br>文字的宽、高和文字大小成正比，因此每次尝试只是按比例缩放给定的宽、高再交给布局器
+	 * <br>先用总面积和最大的宽、高算出缩放比例的上限，上限放得下就直接使用，否则先折半找到一个放得下的下限，再在上下限之间二分查找。没有布局器的话无法验证，直接使用上限
+	 * @param count 关键字的个数
+	 * @param widths 每个关键字缩放之前的宽
+	 * @param heights 每个关键字缩放之前的高
+	 * @param containerWidth 容器的宽
+	 * @param containerHeight 容器的高
+	 * @param random 随机数分配器
+	 * @param outLefts 用来存放每个关键字的左外边距，无法放置的关键字为KeywordPlacer.NOT_PLACED
+	 * @param outTops 用来存放每个关键字的顶外边距，无法放置的关键字为KeywordPlacer.NOT_PLACED
+	 * @return 缩放比例，缩放之后的宽、高用scaleExtent()计算
+	 */
+	public float fit(int count, int[] widths, int[] heights, int containerWidth, int containerHeight, Random random, int[] outLefts, int[] outTops){
+		long totalArea = 0;
+		int maxWidth = 1;
+		int maxHeight = 1;
+		for(int w = 0; w < count; w++){
+			totalArea += (long) widths[w] * heights[w];
+			maxWidth = Math.max(maxWidth, widths[w]);
+			maxHeight = Math.max(maxHeight, heights[w]);
+		}
+		float high = (float) Math.sqrt((double) containerWidth * containerHeight / Math.max(1, totalArea));
+		//scaleExtent()会多留一个像素，所以最宽、最高的关键字按容器的宽、高减一计算，否则缩放之后正好比容器大一个像素
+		high = Math.min(high, Math.min((float) (containerWidth - 1) / maxWidth, (float) (containerHeight - 1) / maxHeight));
+		
+		ensureTrialArrays(count);
+		if(keywordPlacer == null){
+			scaleExtents(count, widths, heights, high);
+			distribute(count, trialWidths, trialHeights, containerWidth, containerHeight, random, outLefts, outTops);
+			return high;
+		}
+		
+		float low = high;
+		//先找到一个放得下的下限，最小的比例都放不下的话就按最小的比例显示放得下的
+		while(true){
+			boolean fitted = tryScale(count, widths, heights, low, containerWidth, containerHeight, random);
+			if(fitted || low <= MIN_FIT_SCALE){
+				System.arraycopy(trialLefts, 0, outLefts, 0, count);
+				System.arraycopy(trialTops, 0, outTops, 0, count);
+				if(!fitted){
+					high = low;
+				}
+				break;
+			}
+			high = low;
+			low = Math.max(MIN_FIT_SCALE, low * 0.5f);
+		}
+		//再在上下限之间二分查找
+		for(int w = 0; w < FIT_ITERATIONS && low < high; w++){
+			float middle = (low + high) * 0.5f;
+			if(tryScale(count, widths, heights, middle, containerWidth, containerHeight, random)){
+				System.arraycopy(trialLefts, 0, outLefts, 0, count);
+				System.arraycopy(trialTops, 0, outTops, 0, count);
+				low = middle;
+			}else{
+				high = middle;
+			}
+		}
+		return low;
+	}
+	
+	/**
+	 * 按照给定的缩放比例尝试放置所有的关键字
+	 * @return 是否全部放得下
+	 */
+	private boolean tryScale(int count, int[] widths, int[] heights, float scale, int containerWidth, int containerHeight, Random random){
+		scaleExtents(count, widths, heights, scale);
+		return keywordPlacer.place(count, trialWidths, trialHeights, containerWidth, containerHeight, random, trialLefts, trialTops) == count;
+	}
+	
+	private void scaleExtents(int count, int[] widths, int[] heights, float scale){
+		for(int w = 0; w < count; w++){
+			trialWidths[w] = scaleExtent(widths[w], scale);
+			trialHeights[w] = scaleExtent(heights[w], scale);
+		}
+	}
+	
+	private void ensureTrialArrays(int count){
+		if(trialWidths.length < count){
+			trialWidths = new int[count];
+			trialHeights = new int[count];
+			trialLefts = new int[count];
+			trialTops = new int[count];
+		}
+	}
+	
+	/**
+	 * 根据平均宽、高为所有的关键字随机分配坐标，不保证互不重叠，但保证不超出容器，多行的关键字也不会超出底边
+	 */
+	private void distribute(int count, int[] widths, int[] heights, int containerWidth, int containerHeight, Random random, int[] outLefts, int[] outTops){
+		int averageWidth = containerWidth / count;
+		int averageHeight = containerHeight / count;
+		//根据平均宽、高将当前容器平均分成count份并分别记录其X、Y轴坐标值
+		if(slotXs.length < count){
+			slotXs = new int[count];
+			slotYs = new int[count];
+		}
+		for(int w = 0; w < count; w++){
+			slotXs[w] = w * averageWidth;
+			slotYs[w] = w * averageHeight;
+		}
+		
+		//为每一个关键字随机取出一个坐标并修正左外边距，取出的位置用最后一个补上
+		int leftPadding = averageWidth >> 1;
+		int rightPadding = containerWidth - (averageWidth >> 1);
+		int revise = Math.max(1, averageWidth >> 1);
+		for(int w = 0; w < count; w++){
+			int remain = count - w;
+			int x = random.nextInt(remain);
+			outLefts[w] = slotXs[x];
+			slotXs[x] = slotXs[remain - 1];
+			int y = random.nextInt(remain);
+			outTops[w] = slotYs[y];
+			slotYs[y] = slotYs[remain - 1];
+			//如果当前关键字的左外边距小于左内边距
+			if(outLefts[w] < leftPadding){
+				outLefts[w] = averageWidth + random.nextInt(revise);
+			//如果当前关键字的右外边距超出了当前容器的右内边距
+			}else if(outLefts[w] + widths[w] > rightPadding){
+				outLefts[w] = rightPadding - random.nextInt(revise) - widths[w];
+			}
+			//修正之后还是超出容器的话贴着容器的边缘，比容器还宽的关键字靠左
+			outLefts[w] = Math.max(0, Math.min(outLefts[w], containerWidth - widths[w]));
+			outTops[w] = Math.max(0, Math.min(outTops[w], containerHeight - heights[w]));
+		}
+	}
+	
+	/**
+	 * 按照给定的缩放比例缩放宽或高，多留一个像素，以免按比例放大文字之后的实际尺寸比估算的略大
+	 * @param extent 宽或高
+	 * @param scale 缩放比例
+	 * @return 缩放之后的宽或高
+	 */
+	public static int scaleExtent(int extent, float scale){
+		return (int) Math.ceil(extent * scale) + 1;
+	}
+	
+	/**
+	 * 获取给定坐标所在的象限
+	 * @param left 左外边距
+	 * @param top 顶外边距
+	 * @param centerX X轴中心坐标
+	 * @param centerY Y轴中心坐标
+	 * @return 0～3分别是第1～4象限，正好在X轴或Y轴上时返回QUADRANT_AXIS
+	 */
+	public static int getQuadrant(int left, int top, int centerX, int centerY){
+		//如果是在第1象限
+		if(left < centerX && top < centerY){
+			return 0;
+		//如果是在第2象限
+		}else if(left > centerX && top < centerY){
+			return 1;
+		//如果是在第3象限
+		}else if(left < centerX && top > centerY){
+			return 2;
+		//如果是在第4象限
+		}else if(left > centerX && top > centerY){
+			return 3;
+		}else{
+			return QUADRANT_AXIS;
+		}
+	}
+	
+	/**
+	 * 获取给定象限的过渡动画在X轴上的方向，第1、3象限从左边进入，第2、4象限从右边进入，退出时方向相同
+	 * @param quadrant 象限
+	 * @return -1：左边；1：右边；0：不移动
+	 */
+	public static int getDirectionX(int quadrant){
+		return quadrant == QUADRANT_AXIS ? 0 : (quadrant == 0 || quadrant == 2 ? -1 : 1);
+	}
+	
+	/**
+	 * 获取给定象限的过渡动画在Y轴上的方向，第1、2象限从上边进入，第3、4象限从下边进入，退出时方向相同
+	 * @param quadrant 象限
+	 * @return -1：上边；1：下边；0：不移动
+	 */
+	public static int getDirectionY(int quadrant){
+		return quadrant == QUADRANT_AXIS ? 0 : (quadrant == 0 || quadrant == 1 ? -1 : 1);
+	}
+	
+	/**
+	 * 计算每个关键字所在的象限，用来选择过渡动画
+	 * @param count 关键字的个数
+	 * @param lefts 每个关键字的左外边距
+	 * @param tops 每个关键字的顶外边距
+	 * @param containerWidth 容器的宽
+	 * @param containerHeight 容器的高
+	 * @param outQuadrants 用来存放每个关键字所在的象限
+	 */
+	public static void computeQuadrants(int count, int[] lefts, int[] tops, int containerWidth, int containerHeight, int[] outQuadrants){
+		int centerX = containerWidth >> 1;
+		int centerY = containerHeight >> 1;
+		for(int w = 0; w < count; w++){
+			outQuadrants[w] = getQuadrant(lefts[w], tops[w], centerX, centerY);
+		}
+	}
+	
+	public KeywordPlacer getKeywordPlacer() {
+		return keywordPlacer;
+	}
+	
+	/**
+	 * 设置关键字布局器
+	 * @param keywordPlacer 关键字布局器，为null时按平均宽、高随机分配坐标，不保证互不重叠
+	 */
+	public void setKeywordPlacer(KeywordPlacer keywordPlacer) {
+		this.keywordPlacer = keywordPlacer;
+	}
+}
@@ -0,0 +1,346 @@
+/*
+ * Copyright (C) 2013 Peng fei Pan <sky@xiaopan.me>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.xiaopan.android.flowtext;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * 关键字布局器，用均匀网格作为空间索引，为每个关键字寻找一个互不重叠的位置
+ * <br>先按面积从大到小排序，再为每个关键字随机尝试若干个位置，都不行的话再按网格逐行扫描，扫描也放不下的关键字就算作无法放置
+ * <br>所有的数组都会被复用，因此同一个布局器不能同时在多个线程中使用
+ */
+public class KeywordPlacer {
+	/**
+	 * 无法放置的关键字的坐标
+	 */
+	public static final int NOT_PLACED = Integer.MIN_VALUE;
+	/**
+	 * 网格单元格的最大个数
+	 */
+	private static final int MAX_CELL_COUNT = 16384;
+	/**
+	 * 随机尝试的最大次数
+	 */
+	private int maxAttempts;
+	/**
+	 * 关键字之间的最小间距
+	 */
+	private int spacing;
+	/**
+	 * 网格单元格的宽
+	 */
+	private int cellWidth;
+	/**
+	 * 网格单元格的高
+	 */
+	private int cellHeight;
+	/**
+	 * 网格的列数
+	 */
+	private int columnCount;
+	/**
+	 * 网格的行数
+	 */
+	private int rowCount;
+	/**
+	 * 每个单元格中第一个条目的下标，-1表示没有
+	 */
+	private int[] cellHeads;
+	/**
+	 * 每个条目对应的关键字的下标
+	 */
+	private int[] entryKeywords;
+	/**
+	 * 每个条目在同一个单元格中的下一个条目的下标，-1表示没有
+	 */
+	private int[] entryNexts;
+	/**
+	 * 条目的个数
+	 */
+	private int entryCount;
+	/**
+	 * 按面积从大到小排好序的关键字下标
+	 */
+	private int[] order;
+	/**
+	 * 排序用的面积
+	 */
+	private long[] areas;
+
+	public KeywordPlacer(){
+		setMaxAttempts(40);
+		setSpacing(0);
+		cellHeads = new int[0];
+		entryKeywords = new int[0];
+		entryNexts = new int[0];
+		order = new int[0];
+		areas = new long[0];
+	}
+
+	/**
+	 * 为给定的关键字寻找互不重叠的位置
+	 * @param count 关键字的个数
+	 * @param widths 每个关键字的宽
+	 * @param heights 每个关键字的高
+	 * @param containerWidth 容器的宽
+	 * @param containerHeight 容器的高
+	 * @param random 随机数分配器
+	 * @param outLefts 用来存放每个关键字的左外边距，无法放置的关键字为NOT_PLACED
+	 * @param outTops 用来存放每个关键字的顶外边距，无法放置的关键字为NOT_PLACED
+	 * @return 成功放置的关键字的个数
+	 */
+	public int place(int count, int[] widths, int[] heights, int containerWidth, int containerHeight, Random random, int[] outLefts, int[] outTops){
+		return place(count, 0, widths, heights, containerWidth, containerHeight, random, outLefts, outTops);
+	}
+
+	/**
+	 * 在已经放置好的关键字之间的空白处为其余的关键字寻找互不重叠的位置
+	 * @param count 关键字的个数
+	 * @param fixedCount 前fixedCount个关键字已经放置好了，它们的坐标已经在outLefts和outTops中，不会被移动
+	 * @param widths 每个关键字的宽
+	 * @param heights 每个关键字的高
+	 * @param containerWidth 容器的宽
+	 * @param containerHeight 容器的高
+	 * @param random 随机数分配器
+	 * @param outLefts 用来存放每个关键字的左外边距，无法放置的关键字为NOT_PLACED
+	 * @param outTops 用来存放每个关键字的顶外边距，无法放置的关键字为NOT_PLACED
+	 * @return 新放置的关键字的个数，不包括已经放置好的
+	 */
+	public int place(int count, int fixedCount, int[] widths, int[] heights, int containerWidth, int containerHeight, Random random, int[] outLefts, int[] outTops){
+		if(count <= 0){
+			return 0;
+		}
+		prepareGrid(count, widths, heights, containerWidth, containerHeight);
+		//已经放置好的关键字先加入网格
+		for(int w = 0; w < fixedCount; w++){
+			insert(w, outLefts[w], outTops[w], widths[w], heights[w]);
+		}
+		sortByArea(fixedCount, count, widths, heights);
+
+		int placedCount = 0;
+		//扫描失败的最小尺寸，比它还大的关键字肯定也放不下，不用再扫描
+		int failedWidth = Integer.MAX_VALUE;
+		int failedHeight = Integer.MAX_VALUE;
+		for(int w = 0; w < count - fixedCount; w++){
+			int index = order[w];
+			int width = widths[index];
+			int height = heights[index];
+			outLefts[index] = NOT_PLACED;
+			outTops[index] = NOT_PLACED;
+
+			//比容器还大的关键字肯定放不下
+			if(width > containerWidth || height > containerHeight){
+				continue;
+			}
+
+			int rangeX = containerWidth - width + 1;
+			int rangeY = containerHeight - height + 1;
+			boolean placed = false;
+
+			//先随机尝试若干次
+			for(int attempt = 0; attempt < maxAttempts && !placed; attempt++){
+				int left = random.nextInt(rangeX);
+				int top = random.nextInt(rangeY);
+				if(!collides(left, top, width, height, widths, heights, outLefts, outTops)){
+					outLefts[index] = left;
+					outTops[index] = top;
+					placed = true;
+				}
+			}
+
+			//再按网格逐行扫描，从随机的一行开始
+			if(!placed && (width < failedWidth || height < failedHeight)){
+				int stepX = Math.max(1, cellWidth >> 1);
+				int stepY = Math.max(1, cellHeight >> 1);
+				int rowSteps = (rangeY - 1) / stepY + 1;
+				int startRow = random.nextInt(rowSteps);
+				for(int row = 0; row < rowSteps && !placed; row++){
+					int top = ((startRow + row) % rowSteps) * stepY;
+					for(int left = 0; left < rangeX; left += stepX){
+						if(!collides(left, top, width, height, widths, heights, outLefts, outTops)){
+							outLefts[index] = left;
+							outTops[index] = top;
+							placed = true;
+							break;
+						}
+					}
+				}
+				if(!placed){
+					failedWidth = Math.min(failedWidth, width);
+					failedHeight = Math.min(failedHeight, height);
+				}
+			}
+
+			if(placed){
+				insert(index, outLefts[index], outTops[index], width, height);
+				placedCount++;
+			}
+		}
+		return placedCount;
+	}
+
+	/**
+	 * 根据关键字的平均尺寸确定网格的大小并清空网格
+	 */
+	private void prepareGrid(int count, int[] widths, int[] heights, int containerWidth, int containerHeight){
+		long totalWidth = 0;
+		long totalHeight = 0;
+		for(int w = 0; w < count; w++){
+			totalWidth += widths[w];
+			totalHeight += heights[w];
+		}
+		cellWidth = Math.max(1, (int)(totalWidth / count) + spacing);
+		cellHeight = Math.max(1, (int)(totalHeight / count) + spacing);
+		columnCount = (containerWidth + cellWidth - 1) / cellWidth;
+		rowCount = (containerHeight + cellHeight - 1) / cellHeight;
+		//单元格太多的话就放大单元格
+		while((long) columnCount * rowCount > MAX_CELL_COUNT){
+			cellWidth <<= 1;
+			cellHeight <<= 1;
+			columnCount = (containerWidth + cellWidth - 1) / cellWidth;
+			rowCount = (containerHeight + cellHeight - 1) / cellHeight;
+		}
+		columnCount = Math.max(1, columnCount);
+		rowCount = Math.max(1, rowCount);
+
+		int cellCount = columnCount * rowCount;
+		if(cellHeads.length < cellCount){
+			cellHeads = new int[cellCount];
+		}
+		Arrays.fill(cellHeads, 0, cellCount, -1);
+		entryCount = 0;
+	}
+
+	/**
+	 * 判断给定的区域是否和已经放置的关键字重叠
+	 */
+	private boolean collides(int left, int top, int width, int height, int[] widths, int[] heights, int[] lefts, int[] tops){
+		int right = left + width;
+		int bottom = top + height;
+		int startColumn = clampColumn((left - spacing) / cellWidth);
+		int endColumn = clampColumn((right + spacing - 1) / cellWidth);
+		int startRow = clampRow((top - spacing) / cellHeight);
+		int endRow = clampRow((bottom + spacing - 1) / cellHeight);
+		for(int row = startRow; row <= endRow; row++){
+			for(int column = startColumn; column <= endColumn; column++){
+				for(int entry = cellHeads[row * columnCount + column]; entry != -1; entry = entryNexts[entry]){
+					int other = entryKeywords[entry];
+					if(left < lefts[other] + widths[other] + spacing && lefts[other] < right + spacing
+							&& top < tops[other] + heights[other] + spacing && tops[other] < bottom + spacing){
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * 将已经放置的关键字加入到它覆盖的所有单元格中
+	 */
+	private void insert(int index, int left, int top, int width, int height){
+		int startColumn = clampColumn(left / cellWidth);
+		int endColumn = clampColumn((left + width - 1) / cellWidth);
+		int startRow = clampRow(top / cellHeight);
+		int endRow = clampRow((top + height - 1) / cellHeight);
+		for(int row = startRow; row <= endRow; row++){
+			for(int column = startColumn; column <= endColumn; column++){
+				if(entryCount == entryKeywords.length){
+					int newLength = Math.max(16, entryCount << 1);
+					entryKeywords = Arrays.copyOf(entryKeywords, newLength);
+					entryNexts = Arrays.copyOf(entryNexts, newLength);
+				}
+				int cell = row * columnCount + column;
+				entryKeywords[entryCount] = index;
+				entryNexts[entryCount] = cellHeads[cell];
+				cellHeads[cell] = entryCount;
+				entryCount++;
+			}
+		}
+	}
+
+	private int clampColumn(int column){
+		return column < 0 ? 0 : (column >= columnCount ? columnCount - 1 : column);
+	}
+
+	private int clampRow(int row){
+		return row < 0 ? 0 : (row >= rowCount ? rowCount - 1 : row);
+	}
+
+	/**
+	 * 将下标在[start, end)之间的关键字按面积从大到小排序，结果放在order中
+	 */
+	private void sortByArea(int start, int end, int[] widths, int[] heights){
+		if(order.length < end){
+			order = new int[end];
+			areas = new long[end];
+		}
+		for(int w = start; w < end; w++){
+			order[w - start] = w;
+			areas[w] = (long) widths[w] * heights[w];
+		}
+		quickSort(0, end - start - 1);
+	}
+
+	private void quickSort(int low, int high){
+		while(low < high){
+			long pivot = areas[order[(low + high) >>> 1]];
+			int i = low;
+			int j = high;
+			while(i <= j){
+				while(areas[order[i]] > pivot){
+					i++;
+				}
+				while(areas[order[j]] < pivot){
+					j--;
+				}
+				if(i <= j){
+					int temp = order[i];
+					order[i] = order[j];
+					order[j] = temp;
+					i++;
+					j--;
+				}
+			}
+			//先递归较短的一边，保证递归深度为O(log n)
+			if(j - low < high - i){
+				quickSort(low, j);
+				low = i;
+			}else{
+				quickSort(i, high);
+				high = j;
+			}
+		}
+	}
+
+	public int getMaxAttempts() {
+		return maxAttempts;
+	}
+
+	public void setMaxAttempts(int maxAttempts) {
+		this.maxAttempts = maxAttempts;
+	}
+
+	public int getSpacing() {
+		return spacing;
+	}
+
+	public void setSpacing(int spacing) {
+		this.spacing = spacing;
+	}
+}
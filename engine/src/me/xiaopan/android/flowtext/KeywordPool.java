@@ -0,0 +1,282 @@
+/*
+ * Copyright (C) 2013 Peng fei Pan <sky@xiaopan.me>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.xiaopan.android.flowtext;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Random;
+
+/**
+ * 关键字池，用来存放数量很大的关键字，每次进入时从中取出一页显示
+ * <br>所有关键字的文字连续存放在一个字符数组中，每个关键字只占一个偏移量和一个累计权重，不会为每个关键字创建对象
+ * <br>取一页的开销只和页的大小有关：顺序取直接移动游标，均匀随机取用Floyd算法，按权重随机取在累计权重上二分查找
+ * <br>不是线程安全的，只能在主线程中使用
+ */
+public class KeywordPool {
+	/**
+	 * 按权重随机取时每个位置最多尝试的次数，超过了就从随机位置开始顺序补齐
+	 */
+	private static final int MAX_WEIGHTED_ATTEMPTS = 8;
+	/**
+	 * 所有关键字的文字
+	 */
+	private char[] chars;
+	/**
+	 * 每个关键字的文字在chars中的起始位置，offsets[i + 1]是结束位置
+	 */
+	private int[] offsets;
+	/**
+	 * 截止到每个关键字的累计权重
+	 */
+	private double[] cumulativeWeights;
+	/**
+	 * 关键字的个数
+	 */
+	private int size;
+	/**
+	 * 已经使用的字符的个数
+	 */
+	private int charCount;
+	/**
+	 * 顺序取时下一页的起始位置
+	 */
+	private int cursor;
+	/**
+	 * 取样方式
+	 */
+	private Sampling sampling;
+	
+	public KeywordPool(){
+		this(64);
+	}
+	
+	/**
+	 * 创建关键字池
+	 * @param initialCapacity 初始容量
+	 */
+	public KeywordPool(int initialCapacity){
+		initialCapacity = Math.max(1, initialCapacity);
+		chars = new char[initialCapacity * 4];
+		offsets = new int[initialCapacity + 1];
+		cumulativeWeights = new double[initialCapacity];
+		setSampling(Sampling.SEQUENTIAL);
+	}
+	
+	/**
+	 * 添加一个权重为1的关键字
+	 * @param keyword 关键字
+	 */
+	public void add(String keyword){
+		add(keyword, 1);
+	}
+	
+	/**
+	 * 添加一个关键字
+	 * @param keyword 关键字
+	 * @param weight 权重，按权重随机取时被取到的概率和权重成正比，小于0时按0处理
+	 */
+	public void add(String keyword, float weight){
+		if(size == cumulativeWeights.length){
+			int newCapacity = size + (size >> 1) + 1;
+			offsets = Arrays.copyOf(offsets, newCapacity + 1);
+			cumulativeWeights = Arrays.copyOf(cumulativeWeights, newCapacity);
+		}
+		int length = keyword.length();
+		if(charCount + length > chars.length){
+			chars = Arrays.copyOf(chars, Math.max(charCount + length, chars.length + (chars.length >> 1)));
+		}
+		keyword.getChars(0, length, chars, charCount);
+		charCount += length;
+		cumulativeWeights[size] = (size > 0 ? cumulativeWeights[size - 1] : 0) + Math.max(0, weight);
+		size++;
+		offsets[size] = charCount;
+	}
+	
+	/**
+	 * 添加多个权重为1的关键字
+	 * @param keywords 关键字
+	 */
+	public void addAll(Collection<String> keywords){
+		for(String keyword : keywords){
+			add(keyword);
+		}
+	}
+	
+	/**
+	 * 获取给定位置的关键字，每次都会创建一个新的字符串
+	 * @param index 位置
+	 * @return 关键字
+	 */
+	public String get(int index){
+		checkIndex(index);
+		return new String(chars, offsets[index], offsets[index + 1] - offsets[index]);
+	}
+	
+	/**
+	 * 获取给定位置的关键字的权重
+	 * @param index 位置
+	 * @return 权重
+	 */
+	public float getWeight(int index){
+		checkIndex(index);
+		return (float)(cumulativeWeights[index] - (index > 0 ? cumulativeWeights[index - 1] : 0));
+	}
+	
+	/**
+	 * 获取关键字的个数
+	 * @return 关键字的个数
+	 */
+	public int size(){
+		return size;
+	}
+	
+	/**
+	 * 清空所有的关键字，已经分配的空间会被复用
+	 */
+	public void clear(){
+		size = 0;
+		charCount = 0;
+		cursor = 0;
+	}
+	
+	/**
+	 * 按照当前的取样方式取出一页互不相同的关键字
+	 * @param count 一页的大小
+	 * @param random 随机数分配器
+	 * @param outIndexes 用来存放取出的关键字的位置，长度不能小于count
+	 * @return 取出的关键字的个数，关键字的个数不足一页时全部取出
+	 */
+	public int nextPage(int count, Random random, int[] outIndexes){
+		//不足一页的话全部取出
+		if(count >= size){
+			for(int w = 0; w < size; w++){
+				outIndexes[w] = w;
+			}
+			return size;
+		}
+		if(sampling == Sampling.UNIFORM){
+			sampleUniform(count, random, outIndexes);
+		}else if(sampling == Sampling.WEIGHTED && cumulativeWeights[size - 1] > 0){
+			sampleWeighted(count, random, outIndexes);
+		}else{
+			for(int w = 0; w < count; w++){
+				outIndexes[w] = cursor;
+				cursor = cursor + 1 < size ? cursor + 1 : 0;
+			}
+		}
+		return count;
+	}
+	
+	/**
+	 * 用Floyd算法均匀随机地取出count个互不相同的关键字
+	 */
+	private void sampleUniform(int count, Random random, int[] outIndexes){
+		int picked = 0;
+		for(int j = size - count; j < size; j++){
+			int index = random.nextInt(j + 1);
+			//已经取过的话就取j，j一定还没有取过
+			outIndexes[picked] = contains(outIndexes, picked, index) ? j : index;
+			picked++;
+		}
+	}
+	
+	/**
+	 * 按权重随机地取出count个互不相同的关键字，重复的话重新取，多次重复的话从随机位置开始顺序补齐
+	 */
+	private void sampleWeighted(int count, Random random, int[] outIndexes){
+		double totalWeight = cumulativeWeights[size - 1];
+		int picked = 0;
+		for(int attempt = 0; picked < count && attempt < count * MAX_WEIGHTED_ATTEMPTS; attempt++){
+			int index = findByWeight(random.nextDouble() * totalWeight);
+			if(!contains(outIndexes, picked, index)){
+				outIndexes[picked++] = index;
+			}
+		}
+		for(int index = random.nextInt(size); picked < count; index = index + 1 < size ? index + 1 : 0){
+			if(!contains(outIndexes, picked, index)){
+				outIndexes[picked++] = index;
+			}
+		}
+	}
+	
+	/**
+	 * 在累计权重上二分查找给定的权重落在哪个关键字上
+	 */
+	private int findByWeight(double weight){
+		int low = 0;
+		int high = size - 1;
+		while(low < high){
+			int middle = (low + high) >>> 1;
+			if(cumulativeWeights[middle] > weight){
+				high = middle;
+			}else{
+				low = middle + 1;
+			}
+		}
+		return low;
+	}
+	
+	/**
+	 * 前count个位置中是否已经有给定的关键字，一页通常只有几十个，直接顺序查找
+	 */
+	private static boolean contains(int[] indexes, int count, int index){
+		for(int w = 0; w < count; w++){
+			if(indexes[w] == index){
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	private void checkIndex(int index){
+		if(index < 0 || index >= size){
+			throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+		}
+	}
+	
+	public Sampling getSampling() {
+		return sampling;
+	}
+	
+	/**
+	 * 设置取样方式
+	 * @param sampling 取样方式
+	 */
+	public void setSampling(Sampling sampling) {
+		this.sampling = sampling;
+	}
+	
+	/**
+	 * 取样方式
+	 */
+	public enum Sampling{
+		/**
+		 * 顺序取，依次轮换所有的关键字
+		 */
+		SEQUENTIAL, 
+		
+		/**
+		 * 均匀随机地取
+		 */
+		UNIFORM, 
+		
+		/**
+		 * 按权重随机地取
+		 */
+		WEIGHTED;
+	}
+}
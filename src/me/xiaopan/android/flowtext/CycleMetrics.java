@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2013 Peng fei Pan <sky@xiaopan.me>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.xiaopan.android.flowtext;
+
+/**
+ * 一轮过渡动画的性能指标，从开始执行动画到动画执行完毕，包括动画之前的布局；漂流模式下每秒统计一轮
+ * <br>同一个FlowText的所有回调共用一个实例，只在回调期间有效，需要保存的话请复制其中的值
+ */
+public class CycleMetrics {
+	/**
+	 * 进入动画
+	 */
+	public static final int TYPE_IN = 1;
+	/**
+	 * 退出动画
+	 */
+	public static final int TYPE_OUT = 2;
+	/**
+	 * 增量更新
+	 */
+	public static final int TYPE_UPDATE = 3;
+	/**
+	 * 漂流
+	 */
+	public static final int TYPE_FLOW = 4;
+	
+	int type;
+	long updateViewNanos;
+	long measureNanos;
+	int createdViewCount;
+	int reusedViewCount;
+	long animationLatency;
+	int frameCount;
+	int overBudgetFrameCount;
+	long collisionNanos;
+	int collisionPairCount;
+	int collisionCount;
+	
+	/**
+	 * 清空所有的指标，准备统计下一轮
+	 */
+	void reset(){
+		type = 0;
+		updateViewNanos = 0;
+		measureNanos = 0;
+		createdViewCount = 0;
+		reusedViewCount = 0;
+		animationLatency = 0;
+		frameCount = 0;
+		overBudgetFrameCount = 0;
+		collisionNanos = 0;
+		collisionPairCount = 0;
+		collisionCount = 0;
+	}
+	
+	/**
+	 * 获取类型
+	 * @return TYPE_IN、TYPE_OUT、TYPE_UPDATE或TYPE_FLOW
+	 */
+	public int getType() {
+		return type;
+	}
+	
+	/**
+	 * 获取更新视图的耗时，包括测量、布局和绑定视图
+	 * @return 更新视图的耗时，单位纳秒
+	 */
+	public long getUpdateViewNanos() {
+		return updateViewNanos;
+	}
+	
+	/**
+	 * 获取测量文字的耗时，异步布局时是后台线程中的耗时，使用缓存的布局时为0
+	 * @return 测量文字的耗时，单位纳秒
+	 */
+	public long getMeasureNanos() {
+		return measureNanos;
+	}
+	
+	/**
+	 * 获取新创建的视图的个数
+	 * @return 新创建的视图的个数
+	 */
+	public int getCreatedViewCount() {
+		return createdViewCount;
+	}
+	
+	/**
+	 * 获取复用的视图的个数，包括容器中已有的和从回收池中取出的
+	 * @return 复用的视图的个数
+	 */
+	public int getReusedViewCount() {
+		return reusedViewCount;
+	}
+	
+	/**
+	 * 获取从开始执行动画到动画执行完毕的耗时，漂流模式下是这一轮统计的时长
+	 * @return 从开始执行动画到动画执行完毕的耗时，单位毫秒
+	 */
+	public long getAnimationLatency() {
+		return animationLatency;
+	}
+	
+	/**
+	 * 获取动画期间的帧数，低于Android 4.1时为0
+	 * @return 动画期间的帧数
+	 */
+	public int getFrameCount() {
+		return frameCount;
+	}
+	
+	/**
+	 * 获取动画期间超过帧预算的帧数，即至少错过了一次垂直同步的帧数，低于Android 4.1时为0
+	 * @return 超过帧预算的帧数
+	 */
+	public int getOverBudgetFrameCount() {
+		return overBudgetFrameCount;
+	}
+	
+	/**
+	 * 获取漂流模式下碰撞检测的总耗时，除以getFrameCount()就是每帧的耗时
+	 * @return 碰撞检测的总耗时，单位纳秒
+	 */
+	public long getCollisionNanos() {
+		return collisionNanos;
+	}
+	
+	/**
+	 * 获取漂流模式下碰撞检测时精确检查的关键字对数，和所有关键字两两检查的n*(n-1)/2对比可以看出网格的效果
+	 * @return 精确检查的关键字对数
+	 */
+	public int getCollisionPairCount() {
+		return collisionPairCount;
+	}
+	
+	/**
+	 * 获取漂流模式下发现并处理的重叠次数
+	 * @return 重叠次数
+	 */
+	public int getCollisionCount() {
+		return collisionCount;
+	}
+	
+	@Override
+	public String toString() {
+		return "CycleMetrics{type=" + type 
+				+ ", updateViewNanos=" + updateViewNanos 
+				+ ", measureNanos=" + measureNanos 
+				+ ", createdViewCount=" + createdViewCount 
+				+ ", reusedViewCount=" + reusedViewCount 
+				+ ", animationLatency=" + animationLatency 
+				+ ", frameCount=" + frameCount 
+				+ ", overBudgetFrameCount=" + overBudgetFrameCount 
+				+ ", collisionNanos=" + collisionNanos 
+				+ ", collisionPairCount=" + collisionPairCount 
+				+ ", collisionCount=" + collisionCount + "}";
+	}
+}
@@ -17,39 +17,94 @@
 package me.xiaopan.android.flowtext;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
 
+import me.xiaopan.android.flowtext.TextLayoutCache.WrappedText;
+import android.annotation.TargetApi;
 import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.os.SystemClock;
+import android.text.TextPaint;
 import android.util.AttributeSet;
+import android.util.DisplayMetrics;
+import android.util.Log;
 import android.util.TypedValue;
 import android.view.Gravity;
+import android.view.MotionEvent;
+import android.view.SoundEffectConstants;
 import android.view.View;
-import android.view.ViewTreeObserver.OnGlobalLayoutListener;
+import android.view.ViewTreeObserver.OnScrollChangedListener;
 import android.view.animation.AccelerateDecelerateInterpolator;
-import android.view.animation.AlphaAnimation;
 import android.view.animation.Animation;
 import android.view.animation.Animation.AnimationListener;
 import android.view.animation.AnimationSet;
 import android.view.animation.Interpolator;
-import android.view.animation.RotateAnimation;
-import android.view.animation.ScaleAnimation;
-import android.view.animation.TranslateAnimation;
+import android.view.animation.Transformation;
 import android.widget.FrameLayout;
 import android.widget.TextView;
 
 /**
  * 流动的文字
  */
-public class FlowText extends FrameLayout implements OnGlobalLayoutListener{
+public class FlowText extends FrameLayout{
+	/**
+	 * 日志标签
+	 */
+	private static final String LOG_TAG = "FlowText";
+	/**
+	 * 象限的个数，4个象限再加上正好在坐标轴上的情况
+	 */
+	private static final int QUADRANT_COUNT = KeywordLayoutEngine.QUADRANT_COUNT;
+	/**
+	 * 每个象限的变换占用的长度
+	 */
+	private static final int TRANSFORM_SIZE = 4;
+	/**
+	 * 按权重计算文字大小时文字大小表的级数
+	 */
+	private static final int TEXT_SIZE_LEVEL_COUNT = 16;
+	/**
+	 * 关键字在本轮动画中不执行动画
+	 */
+	private static final int TRANSITION_NONE = 0;
+	/**
+	 * 关键字在本轮动画中执行进入动画
+	 */
+	private static final int TRANSITION_IN = 1;
+	/**
+	 * 关键字在本轮动画中执行退出动画
+	 */
+	private static final int TRANSITION_OUT = 2;
+	/**
+	 * 没有绑定任何数据
+	 */
+	public static final long NO_ID = -1;
 	/**
 	 * 关键字列表
 	 */
 	private List<Keyword> keywordList;
 	/**
-	 * 关键字列表最大长度
+	 * 关键字列表最大长度，其它线程调用putKeywords()时也会读取
 	 */
-	private int keywordListMaxLength;
+	private volatile int keywordListMaxLength;
 	/**
 	 * 当前容器的宽
 	 */
@@ -87,29 +142,13 @@ public class FlowText extends FrameLayout implements OnGlobalLayoutListener{
 	 */
 	private long lastShowAnimationTime;
 	/**
-	 * 进入动画 - 透明度
+	 * 进入动画的透明度、缩放和旋转的配置
 	 */
-	private AlphaAnimation inAnimationAlpha;
+	private KeywordAnimationSpec inAnimationSpec;
 	/**
-	 * 进入动画 - 缩放
+	 * 退出动画的透明度、缩放和旋转的配置
 	 */
-	private ScaleAnimation inAnimationScale;
-	/**
-	 * 进入动画 - 旋转
-	 */
-	private RotateAnimation inAnimationRotate;
-	/**
-	 * 退出动画 - 透明度
-	 */
-	private AlphaAnimation outAnimationAlpha;
-	/**
-	 * 退出动画 - 缩放
-	 */
-	private ScaleAnimation outAnimationScale;
-	/**
-	 * 退出动画 - 旋转
-	 */
-	private RotateAnimation outAnimationRotate;
+	private KeywordAnimationSpec outAnimationSpec;
 	/**
 	 * 动画插值器
 	 */
@@ -158,18 +197,387 @@ public class FlowText extends FrameLayout implements OnGlobalLayoutListener{
 	 * 关键字点击事件监听器
 	 */
 	private OnKeywordClickListener onKeywordClickListener;
+	/**
+	 * 是否回收复用文本视图
+	 */
+	private boolean recycleViewEnabled;
+	/**
+	 * 回收池最大容量
+	 */
+	private int recycledViewPoolMaxSize;
+	/**
+	 * 回收池，存放已从容器中移除的文本视图及其布局参数，以便下次刷新时复用
+	 */
+	private List<TextView> recycledViewPool;
+	/**
+	 * 关键字文本视图点击监听器，所有的文本视图共用一个
+	 */
+	private OnClickListener keywordViewClickListener;
+	/**
+	 * 每个象限的进入动画，这个象限的所有关键字共用，每轮动画开始前重置
+	 */
+	private QuadrantAnimation[] inQuadrantAnimations;
+	/**
+	 * 每个象限的退出动画，这个象限的所有关键字共用，每轮动画开始前重置
+	 */
+	private QuadrantAnimation[] outQuadrantAnimations;
+	/**
+	 * 不使用属性动画时每个子视图自己的动画，按子视图的位置复用，变换取自所在象限的动画
+	 */
+	private List<KeywordViewAnimation> viewAnimationList;
+	/**
+	 * 动画的配置有变化，需要重新创建每个象限的动画
+	 */
+	private boolean animationSetsDirty;
+	/**
+	 * 本轮动画中用到了哪些象限的动画，前一半是进入动画，后一半是退出动画
+	 */
+	private boolean[] usedQuadrants;
+	/**
+	 * 本轮正在执行的动画的个数
+	 */
+	private int runningAnimationSetCount;
+	/**
+	 * 进入动画监听器，所有进入动画共用
+	 */
+	private AnimationListener inAnimationListener;
+	/**
+	 * 退出动画监听器，所有退出动画共用
+	 */
+	private AnimationListener outAnimationListener;
+	/**
+	 * 是否使用属性动画，只在Android 3.0及以上版本的视图模式下生效
+	 */
+	private boolean propertyAnimationEnabled;
+	/**
+	 * 过渡动画时钟，所有的关键字共用一个
+	 */
+	private KeywordTransitionAnimator transitionAnimator;
+	/**
+	 * 本轮动画是否是进入动画
+	 */
+	private boolean transitionIn;
+	/**
+	 * 每一帧每个象限的变换，依次是透明度、X轴缩放、Y轴缩放、旋转角度，前一半是进入动画，后一半是退出动画。位移和关键字的尺寸有关，按每个子视图单独计算
+	 */
+	private float[] quadrantTransforms;
+	/**
+	 * 分解变换矩阵时用来存放矩阵的值
+	 */
+	private float[] matrixValues;
+	/**
+	 * 排队等待执行的过渡动画
+	 */
+	private TransitionQueue transitionQueue;
+	/**
+	 * 是否有过渡动画正在执行
+	 */
+	private boolean transitionRunning;
+	/**
+	 * 正在执行的过渡动画的回调
+	 */
+	private List<OnTransitionListener> runningTransitionListeners;
+	/**
+	 * 回调时用的临时列表，以免回调中再请求过渡动画时修改正在遍历的列表
+	 */
+	private List<OnTransitionListener> finishingTransitionListeners;
+	/**
+	 * 是否已经安排了执行排队等待的过渡动画
+	 */
+	private boolean pendingTransitionScheduled;
+	/**
+	 * 执行排队等待的过渡动画
+	 */
+	private Runnable pendingTransitionRunnable;
+	/**
+	 * 是否增量更新关键字
+	 */
+	private boolean incrementalUpdateEnabled;
+	/**
+	 * 关键字有增量更新，下次进入时只处理有变化的关键字
+	 */
+	private boolean keywordHasIncrementalUpdate;
+	/**
+	 * 本轮动画是否是增量更新，只有新增和删除的关键字执行动画
+	 */
+	private boolean updatingKeywords;
+	/**
+	 * 增量更新的动画执行完毕之后移除被删除的关键字
+	 */
+	private Runnable finishKeywordUpdateRunnable;
+	/**
+	 * 渲染模式
+	 */
+	private RenderMode renderMode;
+	/**
+	 * 画布模式下绘制关键字用的画笔，所有关键字共用一个
+	 */
+	private TextPaint keywordPaint;
+	/**
+	 * 图集模式下预先绘制好的关键字图集
+	 */
+	private KeywordAtlas keywordAtlas;
+	/**
+	 * 图集模式下绘制图集用的画笔
+	 */
+	private Paint atlasPaint;
+	/**
+	 * 画布模式下绘制关键字时用来获取基线位置的字体度量
+	 */
+	private Paint.FontMetrics keywordFontMetrics;
+	/**
+	 * 正在显示的关键字列表
+	 */
+	private List<Keyword> displayKeywordList;
+	/**
+	 * 关键字布局器，为null时按平均宽、高随机分配坐标
+	 */
+	private KeywordPlacer keywordPlacer;
+	/**
+	 * 上次布局时没有空间放置的关键字列表
+	 */
+	private List<Keyword> unplacedKeywordList;
+	/**
+	 * 增量更新时用来判断关键字是否存在的集合，复用以免每次都分配
+	 */
+	private Set<Keyword> updateKeywordSet;
+	/**
+	 * 增量更新时新增的关键字列表，复用以免每次都分配
+	 */
+	private List<Keyword> addedKeywordList;
+	/**
+	 * 布局时传给关键字布局器的宽、高和接收结果的坐标，复用以免每次都分配
+	 */
+	private int[] placeWidths, placeHeights, placeLefts, placeTops;
+	/**
+	 * 文字测量缓存，为null时每次都重新测量
+	 */
+	private TextMeasureCache textMeasureCache;
+	/**
+	 * 文字排版缓存，为null时每次都重新换行
+	 */
+	private TextLayoutCache textLayoutCache;
+	/**
+	 * 关键字的最大宽度，超出的话换行
+	 */
+	private int keywordMaxWidth;
+	/**
+	 * 布局版本号，关键字或容器尺寸变化以及重新布局时加一，用来丢弃过期的后台布局结果
+	 */
+	private int layoutGeneration;
+	/**
+	 * 后台布局执行器
+	 */
+	private Executor layoutExecutor;
+	/**
+	 * 用来将后台布局的结果送回主线程
+	 */
+	private Handler layoutHandler;
+	/**
+	 * 后台计算好了、等待下一次刷新时应用的布局
+	 */
+	private KeywordLayout pendingKeywordLayout;
+	/**
+	 * 已经交给后台计算、还没有送回主线程的布局，只在主线程访问
+	 */
+	private List<KeywordLayout> computingKeywordLayoutList;
+	/**
+	 * 后台布局计算完毕时执行，在后台线程中只是把自己post到主线程，在主线程中取出所有计算完毕的布局，所有的异步刷新共用这一个
+	 */
+	private Runnable keywordLayoutComputedRunnable;
+	/**
+	 * 关键字池，不为null时每次进入前从中取出一页关键字
+	 */
+	private KeywordPool keywordPool;
+	/**
+	 * 从关键字池中取出的一页关键字的位置，复用以免每次都分配
+	 */
+	private int[] keywordPageIndexes;
+	/**
+	 * 性能指标监听器
+	 */
+	private OnCycleMetricsListener onCycleMetricsListener;
+	/**
+	 * 正在统计的这一轮的性能指标
+	 */
+	private CycleMetrics cycleMetrics;
+	/**
+	 * 帧监视器，设置了性能指标监听器并且版本不低于Android 4.1时才创建
+	 */
+	private FrameMonitor frameMonitor;
+	/**
+	 * 轮播是否已经开始
+	 */
+	private boolean carouselRunning;
+	/**
+	 * 轮播时关键字显示完整之后停留的时间
+	 */
+	private long carouselDwellTime;
+	/**
+	 * 轮播的下一步
+	 */
+	private Runnable carouselStepRunnable;
+	/**
+	 * 轮播的每一步执行完毕之后安排下一步
+	 */
+	private OnTransitionListener carouselTransitionListener;
+	/**
+	 * 在Android 4.1及以上版本中用来安排轮播的下一步，和动画使用同一个时钟
+	 */
+	private FrameClock carouselFrameClock;
+	/**
+	 * 漂流模式，保存漂流场、碰撞检测网格和替换游标
+	 */
+	private KeywordFlow keywordFlow;
+	/**
+	 * 漂流模式下绘制单个关键字
+	 */
+	private KeywordFlow.KeywordDrawer flowKeywordDrawer;
+	/**
+	 * 关键字流中尚未应用的增加和删除操作，没有同步，只在主线程访问
+	 */
+	private KeywordFeedBuffer keywordFeedBuffer;
+	/**
+	 * 应用关键字流时按名字合并关键字用的映射，保留先后顺序，复用以免每次都分配
+	 */
+	private LinkedHashMap<String, Keyword> feedKeywordMap;
+	/**
+	 * 应用关键字流时合并结果的列表，复用以免每次都分配
+	 */
+	private List<Keyword> feedKeywordList;
+	/**
+	 * 关键字流缓冲区满了之后的溢出策略
+	 */
+	private FeedOverflowPolicy feedOverflowPolicy;
+	/**
+	 * 关键字流的应用时机
+	 */
+	private FeedApplyMode feedApplyMode;
+	/**
+	 * 是否已经安排了在下一帧应用关键字流
+	 */
+	private boolean feedApplyScheduled;
+	/**
+	 * 在下一帧应用关键字流
+	 */
+	private Runnable feedApplyRunnable;
+	/**
+	 * 其它线程发布的还没有被主线程取走的关键字列表，发布之后不再修改
+	 */
+	private AtomicReference<List<Keyword>> pendingKeywordSnapshot;
+	/**
+	 * 在主线程取走其它线程发布的关键字列表
+	 */
+	private Runnable keywordSnapshotRunnable;
+	/**
+	 * 当前绑定的数据的id
+	 */
+	private long boundId;
+	/**
+	 * bind()自己创建的关键字对象，每次绑定时按顺序复用，不会被放到其它地方
+	 */
+	private List<Keyword> boundKeywordPool;
+	/**
+	 * bind()使用的关键字列表，每次绑定时清空重新填充
+	 */
+	private List<Keyword> boundKeywordList;
+	/**
+	 * 容器尺寸确定之后是否直接显示而不执行进入动画
+	 */
+	private boolean skipInAnimation;
+	/**
+	 * 和其它FlowText共用的资源，为null时不共用
+	 */
+	private FlowTextResources resources;
+	/**
+	 * 使用共享的帧时钟时，轮播的下一步
+	 */
+	private SharedFrameClock.OnFrameListener carouselFrameListener;
+	/**
+	 * 使用共享的帧时钟时，漂流模式下推进一帧
+	 */
+	private SharedFrameClock.OnFrameListener flowFrameListener;
+	/**
+	 * 本轮性能指标开始统计的时间
+	 */
+	private long cycleMetricsStartTime;
+	/**
+	 * 漂流模式下初始化漂流场，不能在绘制过程中修改子视图，所以放到下一帧执行
+	 */
+	private Runnable flowInitRunnable;
+	/**
+	 * 是否因为不可见而暂停了，暂停期间不执行过渡动画、布局检查和轮播
+	 */
+	private boolean suspended;
+	/**
+	 * 用来检查容器是否被滚出了父视图的可见区域
+	 */
+	private Rect visibleRect;
+	/**
+	 * 父视图滚动时检查容器是否还可见
+	 */
+	private OnScrollChangedListener visibilityScrollListener;
+	/**
+	 * 是否已经安排了布局检查
+	 */
+	private boolean layoutPassScheduled;
+	/**
+	 * 在容器尺寸或关键字变化之后检查是否需要重新布局并执行进入动画
+	 */
+	private Runnable layoutPassRunnable;
+	/**
+	 * 是否根据关键字的权重计算文字大小
+	 */
+	private boolean weightedTextSizeEnabled;
+	/**
+	 * 按权重计算文字大小时用的文字大小表，单位像素，文字大小的取值范围变化时重新计算
+	 */
+	private float[] textSizeTable;
+	/**
+	 * 按权重计算文字大小时，上次布局搜索到的缩放比例，增量更新时新增的关键字也按这个比例缩放
+	 */
+	private float textSizeScale;
+	/**
+	 * 关键字布局缓存，为null时每次都重新计算
+	 */
+	private KeywordLayoutCache keywordLayoutCache;
+	/**
+	 * 下次布局时不使用缓存，重新计算
+	 */
+	private boolean forceRelayout;
+	/**
+	 * 画布模式下每个关键字正在执行的动画，和displayKeywordList一一对应
+	 */
+	private List<QuadrantAnimation> canvasAnimationList;
+	/**
+	 * 画布模式下用来存放每个关键字的变换矩阵
+	 */
+	private Matrix canvasKeywordMatrix;
+	/**
+	 * 画布模式下关键字是否可见
+	 */
+	private boolean canvasKeywordVisible;
+	/**
+	 * 画布模式下正在执行的是否是退出动画
+	 */
+	private boolean canvasOutAnimation;
+	/**
+	 * 画布模式下按下的关键字
+	 */
+	private Keyword touchedKeyword;
 	
 	public FlowText(Context context, AttributeSet attrs) {
 		super(context, attrs);
-		getViewTreeObserver().addOnGlobalLayoutListener(this);
 		setKeywordList(new ArrayList<Keyword>());//实例化关键字列表
 		setKeywordListMaxLength(20);//初始化关键字列表最大长度为10
 		setAllowShowAnimation(false);//初始化不允许显示动画
 		setAnimationDuration(1000);//设置动画持续时间
-		setInAnimationAlpha(new AlphaAnimation(0.0f, 1.0f));//实例化进入动画 - 透明度
-		setInAnimationScale(new ScaleAnimation(2.0f, 1.0f, 2.0f, 1.0f));//实例化进入动画 - 缩放
-		setOutAnimationAlpha(new AlphaAnimation(1.0f, 0.0f));//实例化退出动画 - 透明度
-		setOutAnimationScale(new ScaleAnimation(1.0f, 2.0f, 1.0f, 2.0f));//实例化退出动画 - 缩放
+		inAnimationSpec = new KeywordAnimationSpec();
+		outAnimationSpec = new KeywordAnimationSpec();
+		setInAnimationAlpha(0.0f, 1.0f);//初始化进入动画 - 透明度
+		setInAnimationScale(2.0f, 1.0f, 2.0f, 1.0f);//初始化进入动画 - 缩放
+		setOutAnimationAlpha(1.0f, 0.0f);//初始化退出动画 - 透明度
+		setOutAnimationScale(1.0f, 2.0f, 1.0f, 2.0f);//初始化退出动画 - 缩放
 		setInterpolator(new AccelerateDecelerateInterpolator());//实例化动画插值器
 		setInAnimation(true);//初始化动画类型为进入动画
 		setDisplacement(100);//初始化动画位移距离
@@ -180,411 +588,2444 @@ public class FlowText extends FrameLayout implements OnGlobalLayoutListener{
 		setTextShadowDX(3);//实例化文字阴影X轴坐标
 		setTextShadowDY(3);//实例化文字阴影Y轴坐标
 		setTextShadowColor(0x55000000);//实例化文字阴影颜色
+		recycledViewPool = new ArrayList<TextView>();//实例化回收池
+		setRecycleViewEnabled(true);//初始化允许回收复用文本视图
+		setRecycledViewPoolMaxSize(20);//初始化回收池最大容量
+		keywordViewClickListener = new OnClickListener() {
+			@Override
+			public void onClick(View v) {
+				if(getOnKeywordClickListener() != null && v.getTag() instanceof Keyword){
+					getOnKeywordClickListener().onKeywordClickListener(((Keyword) v.getTag()).getName());
+				}
+			}
+		};
+		keywordPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);//实例化画布模式下绘制关键字用的画笔
+		keywordAtlas = new KeywordAtlas();
+		atlasPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+		updateKeywordPaintShadow();
+		keywordFontMetrics = new Paint.FontMetrics();
+		displayKeywordList = new ArrayList<Keyword>();
+		unplacedKeywordList = new ArrayList<Keyword>();
+		updateKeywordSet = new HashSet<Keyword>();
+		addedKeywordList = new ArrayList<Keyword>();
+		setKeywordPlacer(new KeywordPlacer());//实例化关键字布局器
+		setTextMeasureCache(TextMeasureCache.getInstance());//初始化使用共享的文字测量缓存
+		setTextLayoutCache(TextLayoutCache.getInstance());//初始化使用共享的文字排版缓存
+		setKeywordMaxWidth(0);//初始化关键字最宽和容器一样宽
+		setLayoutExecutor(KeywordLayout.getDefaultExecutor());//初始化使用共享的后台布局执行器
+		layoutHandler = new Handler();
+		computingKeywordLayoutList = new ArrayList<KeywordLayout>();
+		keywordLayoutComputedRunnable = new Runnable() {
+			@Override
+			public void run() {
+				if(isMainThread()){
+					dispatchComputedKeywordLayouts();
+				}else{
+					layoutHandler.post(this);
+				}
+			}
+		};
+		canvasAnimationList = new ArrayList<QuadrantAnimation>();
+		canvasKeywordMatrix = new Matrix();
+		setRenderMode(RenderMode.VIEW);//初始化渲染模式为视图模式
+		inQuadrantAnimations = new QuadrantAnimation[QUADRANT_COUNT];
+		outQuadrantAnimations = new QuadrantAnimation[QUADRANT_COUNT];
+		viewAnimationList = new ArrayList<KeywordViewAnimation>();
+		usedQuadrants = new boolean[QUADRANT_COUNT << 1];
+		inAnimationListener = new SharedAnimationListener(true);
+		outAnimationListener = new SharedAnimationListener(false);
+		animationSetsDirty = true;
+		setPropertyAnimationEnabled(true);//初始化在支持的版本上使用属性动画
+		quadrantTransforms = new float[(QUADRANT_COUNT << 1) * TRANSFORM_SIZE];
+		matrixValues = new float[9];
+		transitionQueue = new TransitionQueue();
+		runningTransitionListeners = new ArrayList<OnTransitionListener>();
+		finishingTransitionListeners = new ArrayList<OnTransitionListener>();
+		pendingTransitionRunnable = new Runnable() {
+			@Override
+			public void run() {
+				runPendingTransition();
+			}
+		};
+		setIncrementalUpdateEnabled(false);//初始化关键字更新时全部重新布局
+		cycleMetrics = new CycleMetrics();
+		setCarouselDwellTime(3000);//初始化轮播时停留3秒
+		carouselStepRunnable = new Runnable() {
+			@Override
+			public void run() {
+				runCarouselStep();
+			}
+		};
+		carouselTransitionListener = new OnTransitionListener() {
+			@Override
+			public void onTransitionFinished(boolean success) {
+				onCarouselStepFinished(success);
+			}
+		};
+		keywordFlow = new KeywordFlow(displayKeywordList, unplacedKeywordList);
+		flowKeywordDrawer = new KeywordFlow.KeywordDrawer() {
+			@Override
+			public void drawKeyword(Canvas canvas, int index, Keyword keyword, float alpha) {
+				FlowText.this.drawKeyword(canvas, index, keyword, alpha, getRenderMode() == RenderMode.ATLAS);
+			}
+		};
+		flowInitRunnable = new Runnable() {
+			@Override
+			public void run() {
+				initFlow();
+			}
+		};
+		setFlowSpeed(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, 24, getResources().getDisplayMetrics()));//初始化漂流速度为每秒24dp
+		setFlowEdge(FlowField.Edge.WRAP);//初始化漂流到边缘时从另一边进入
+		setFlowReplaceInterval(2000);//初始化漂流时每2秒替换一个关键字
+		setFlowCollisionEnabled(false);//初始化漂流时允许关键字重叠
+		boundId = NO_ID;
+		boundKeywordPool = new ArrayList<Keyword>();
+		boundKeywordList = new ArrayList<Keyword>();
+		keywordFeedBuffer = new KeywordFeedBuffer(256);//初始化关键字流最多暂存256个操作
+		feedKeywordMap = new LinkedHashMap<String, Keyword>();
+		feedKeywordList = new ArrayList<Keyword>();
+		setFeedOverflowPolicy(FeedOverflowPolicy.DROP_OLDEST);//初始化关键字流满了之后丢弃最早的操作
+		setFeedApplyMode(FeedApplyMode.FRAME);//初始化关键字流每帧应用一次
+		pendingKeywordSnapshot = new AtomicReference<List<Keyword>>();
+		keywordSnapshotRunnable = new Runnable() {
+			@Override
+			public void run() {
+				applyKeywordSnapshot(false);
+			}
+		};
+		feedApplyRunnable = new Runnable() {
+			@Override
+			public void run() {
+				feedApplyScheduled = false;
+				applyKeywordFeed(false);
+			}
+		};
+		carouselFrameListener = new SharedFrameClock.OnFrameListener() {
+			@Override
+			public void onFrame(long frameTimeMillis) {
+				runCarouselStep();
+			}
+		};
+		flowFrameListener = new SharedFrameClock.OnFrameListener() {
+			@Override
+			public void onFrame(long frameTimeMillis) {
+				if(keywordFlow.isRunning() && keywordFlow.isInitialized() && !suspended){
+					stepFlow(frameTimeMillis);
+					invalidate();
+				}
+			}
+		};
+		suspended = true;
+		visibleRect = new Rect();
+		visibilityScrollListener = new OnScrollChangedListener() {
+			@Override
+			public void onScrollChanged() {
+				updateSuspended();
+			}
+		};
+		layoutPassRunnable = new Runnable() {
+			@Override
+			public void run() {
+				runLayoutPass();
+			}
+		};
+		setWeightedTextSizeEnabled(false);//初始化随机选择文字大小
+		textSizeScale = 1;
+		setKeywordLayoutCache(new KeywordLayoutCache(KeywordLayoutCache.DEFAULT_MAX_SIZE));//初始化使用关键字布局缓存
+		finishKeywordUpdateRunnable = new Runnable() {
+			@Override
+			public void run() {
+				finishKeywordUpdate();
+			}
+		};
 	}
 	
 	/**
 	 * 显示进入动画
-	 * @return 执行是否成功。false：上次动画尚未结束、尚未获取容器的宽和高、容器内没有子视图、不允许显示动画、接下来该执行退出动画了
+	 * @return 执行是否成功。false：尚未获取容器的宽和高、容器内没有子视图、不允许显示动画、接下来该执行退出动画了。上次动画尚未结束时会排队等待，返回true
 	 */
 	public boolean showInAnimation(){
-		boolean result = false;
-		//如果上次动画已经结束
-		if(System.currentTimeMillis() - getLastShowAnimationTime() > getAnimationDuration()){
-			//设置允许显示动画
-			setAllowShowAnimation(true);
-			
-			//如果关键字有更新，就更新视图
-			if(isKeywordHasUpdate()){
-				//如果更新视图成功
-				if(updateView()){
-					//设置关键字没有更新
-					setKeywordHasUpdate(false);
-				}
-			}
-			
-			//执行进入动画并设置返回结果
-			result = executeInAnimation();
-		}
-		return result;
+		return showInAnimation(null);
+	}
+	
+	/**
+	 * 显示进入动画，上次动画尚未结束时排队等待，执行完毕时回调给定的监听器
+	 * @param onTransitionListener 执行完毕时的回调，可以为null
+	 * @return 执行是否成功。false：尚未获取容器的宽和高、容器内没有子视图、不允许显示动画、接下来该执行退出动画了。排队等待时返回true
+	 */
+	public boolean showInAnimation(OnTransitionListener onTransitionListener){
+		return requestTransition(TransitionQueue.TYPE_IN, onTransitionListener);
 	}
 	
 	/**
 	 * 显示退出动画
-	 * @return 执行是否成功。false：上次动画尚未结束、尚未获取容器的宽和高、容器内没有子视图、不允许显示动画、接下来该执行进入动画了
+	 * @return 执行是否成功。false：尚未获取容器的宽和高、容器内没有子视图、不允许显示动画、接下来该执行进入动画了。上次动画尚未结束时会排队等待，返回true
 	 */
 	public boolean showOutAnimation(){
-		boolean result = false;
-		//如果上次动画已经结束
-		if(System.currentTimeMillis() - getLastShowAnimationTime() > getAnimationDuration()){
-			//设置允许显示动画
-			setAllowShowAnimation(true);
-			//执行退出动画并设置返回结果
-			result = executeOutAnimation();
-		}
-		return result;
+		return showOutAnimation(null);
+	}
+	
+	/**
+	 * 显示退出动画，上次动画尚未结束时排队等待，执行完毕时回调给定的监听器
+	 * @param onTransitionListener 执行完毕时的回调，可以为null
+	 * @return 执行是否成功。false：尚未获取容器的宽和高、容器内没有子视图、不允许显示动画、接下来该执行进入动画了。排队等待时返回true
+	 */
+	public boolean showOutAnimation(OnTransitionListener onTransitionListener){
+		return requestTransition(TransitionQueue.TYPE_OUT, onTransitionListener);
 	}
 	
 	/**
 	 * 刷新
-	 * @return 
+	 * @return 执行是否成功，上次动画尚未结束时会排队等待，返回true
 	 */
 	public boolean refresh(){
-		setKeywordHasUpdate(true);
-		setInAnimation(true);
-		return showInAnimation();
+		return refresh(null);
 	}
 	
 	/**
-	 * 更新容器内的子视图
-	 * @return 更新是否成功。false：尚未获取容器的宽和高、关键字列表的长度小于等于0
+	 * 刷新，上次动画尚未结束时排队等待，执行完毕时回调给定的监听器
+	 * @param onTransitionListener 执行完毕时的回调，可以为null
+	 * @return 执行是否成功，排队等待时返回true
 	 */
-	private boolean updateView(){
-		boolean result = false;
-		
-		//先删除容器中所有的视图
-		removeAllViews();
-		
-		//如果容器的宽、高都已经知道了并且关键字列表的长度大于0
-		if(getContainerWidth() > 0 && getContainerHeight() > 0 && getKeywordList().size() > 0){
-        	//设置平均宽、高
-			setAverageWidth(getContainerWidth() / getKeywordList().size());
-			setAverageHeight(getContainerHeight() / getKeywordList().size());
+	public boolean refresh(OnTransitionListener onTransitionListener){
+		return requestTransition(TransitionQueue.TYPE_REFRESH, onTransitionListener);
+	}
+	
+	/**
+	 * 异步刷新，在后台线程中计算关键字的文字大小、颜色、尺寸和坐标，计算完毕后再回到主线程绑定视图并执行进入动画
+	 * @return 执行是否成功，尚未获取容器的宽和高或者没有关键字时按照refresh()执行
+	 */
+	public boolean refreshAsync(){
+		return refreshAsync(null);
+	}
+	
+	/**
+	 * 异步刷新，在后台线程中计算关键字的文字大小、颜色、尺寸和坐标，计算完毕后再回到主线程绑定视图并执行进入动画。计算期间关键字或容器尺寸发生变化的话丢弃计算结果，回调收到失败
+	 * @param onTransitionListener 执行完毕时的回调，可以为null
+	 * @return 执行是否成功，尚未获取容器的宽和高或者没有关键字时按照refresh(OnTransitionListener)执行
+	 */
+	public boolean refreshAsync(OnTransitionListener onTransitionListener){
+		if(getKeywordPool() != null){
+			loadKeywordPage();
+		}
+		if(getContainerWidth() <= 0 || getContainerHeight() <= 0 || getKeywordList().size() == 0){
+			return refresh(onTransitionListener);
+		}
+		KeywordLayout keywordLayout = createKeywordLayout(getKeywordList(), true);
+		keywordLayout.onTransitionListener = onTransitionListener;
+		keywordLayout.onComputedRunnable = keywordLayoutComputedRunnable;
+		computingKeywordLayoutList.add(keywordLayout);
+		getLayoutExecutor().execute(keywordLayout);
+		return true;
+	}
+	
+	/**
+	 * 取出所有已经计算完毕的后台布局并逐个处理，多个布局同时完成时只处理一次也没关系，多余的post找不到计算完毕的布局直接返回
+	 */
+	private void dispatchComputedKeywordLayouts(){
+		for(int w = 0; w < computingKeywordLayoutList.size();){
+			KeywordLayout keywordLayout = computingKeywordLayoutList.get(w);
+			if(!keywordLayout.computed){
+				w++;
+				continue;
+			}
+			computingKeywordLayoutList.remove(w);
+			OnTransitionListener onTransitionListener = keywordLayout.onTransitionListener;
+			keywordLayout.onTransitionListener = null;
+			keywordLayout.onComputedRunnable = null;
+			onKeywordLayoutComputed(keywordLayout, onTransitionListener);
+		}
+	}
+	
+	/**
+	 * 后台布局计算完毕，没有过期的话在下一次刷新时应用
+	 * @param keywordLayout 计算好的布局
+	 * @param onTransitionListener 执行完毕时的回调，可以为null
+	 */
+	private void onKeywordLayoutComputed(KeywordLayout keywordLayout, OnTransitionListener onTransitionListener){
+		if(!isKeywordLayoutValid(keywordLayout)){
+			if(onTransitionListener != null){
+				onTransitionListener.onTransitionFinished(false);
+			}
+			return;
+		}
+		pendingKeywordLayout = keywordLayout;
+		requestTransition(TransitionQueue.TYPE_REFRESH, onTransitionListener);
+	}
+	
+	/**
+	 * 给定的布局是否还能使用，即创建之后没有重新布局过，并且关键字和容器尺寸都没有变化
+	 * @param keywordLayout 给定的布局
+	 * @return 是否还能使用
+	 */
+	private boolean isKeywordLayoutValid(KeywordLayout keywordLayout){
+		if(keywordLayout.generation != layoutGeneration || keywordLayout.containerWidth != getContainerWidth() || keywordLayout.containerHeight != getContainerHeight() || keywordLayout.keywords.length != getKeywordList().size()){
+			return false;
+		}
+		for(int w = 0; w < keywordLayout.keywords.length; w++){
+			if(keywordLayout.keywords[w] != getKeywordList().get(w)){
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * 为给定的关键字创建布局，同时布局版本号加一，之前创建的布局全部过期
+	 * @param keywordList 给定的关键字
+	 * @param async 是否要在后台线程中计算。是的话画笔、布局器、随机数分配器都使用副本，以免和主线程冲突
+	 * @return 布局
+	 */
+	private KeywordLayout createKeywordLayout(List<Keyword> keywordList, boolean async){
+		KeywordLayout keywordLayout = new KeywordLayout(++layoutGeneration, keywordList);
+		keywordLayout.containerWidth = getContainerWidth();
+		keywordLayout.containerHeight = getContainerHeight();
+		keywordLayout.textSizeMin = getTextSizeMin();
+		keywordLayout.textSizeMax = getTextSizeMax();
+		keywordLayout.textShadowRadius = getTextShadowRadius();
+		keywordLayout.textShadowDX = getTextShadowDX();
+		keywordLayout.textShadowDY = getTextShadowDY();
+		keywordLayout.textMeasureCache = getTextMeasureCache();
+		keywordLayout.textLayoutCache = getTextLayoutCache();
+		keywordLayout.keywordMaxWidth = getEffectiveKeywordMaxWidth();
+		keywordLayout.timed = getOnCycleMetricsListener() != null;
+		if(isWeightedTextSizeEnabled()){
+			keywordLayout.textSizeTable = getTextSizeTable();
+		}
+		if(async){
+			keywordLayout.displayMetrics = new DisplayMetrics();
+			keywordLayout.displayMetrics.setTo(getResources().getDisplayMetrics());
+			keywordLayout.paint = new TextPaint(keywordPaint);
+			if(getKeywordPlacer() != null){
+				keywordLayout.keywordPlacer = new KeywordPlacer();
+				keywordLayout.keywordPlacer.setMaxAttempts(getKeywordPlacer().getMaxAttempts());
+				keywordLayout.keywordPlacer.setSpacing(getKeywordPlacer().getSpacing());
+			}
+			keywordLayout.random = new Random(getRandom().nextLong());
+		}else{
+			keywordLayout.displayMetrics = getResources().getDisplayMetrics();
+			keywordLayout.paint = keywordPaint;
+			keywordLayout.keywordPlacer = getKeywordPlacer();
+			keywordLayout.random = getRandom();
+		}
+		return keywordLayout;
+	}
+	
+	/**
+	 * 获取影响布局结果的设置的哈希值，这些设置不同时缓存的布局不能复用
+	 * @return 哈希值
+	 */
+	private int getLayoutStyleHash(){
+		int result = getTextSizeMin();
+		result = 31 * result + getTextSizeMax();
+		result = 31 * result + (isWeightedTextSizeEnabled() ? 1 : 0);
+		result = 31 * result + (getKeywordPlacer() != null ? getKeywordPlacer().getSpacing() + 1 : 0);
+		result = 31 * result + getTextShadowRadius();
+		result = 31 * result + getTextShadowDX();
+		result = 31 * result + getTextShadowDY();
+		result = 31 * result + getKeywordMaxWidth();
+		result = 31 * result + Float.floatToIntBits(getResources().getDisplayMetrics().scaledDensity);
+		return result;
+	}
+	
+	/**
+	 * 开始轮播，交替执行退出动画和进入动画，进入之后停留getCarouselDwellTime()毫秒再退出。设置了关键字池的话每次进入时换一页，否则每次进入时重新布局
+	 * <br>每一步都在上一步的动画执行完毕之后按照动画时钟安排，不需要在外部使用定时器
+	 */
+	public void startCarousel(){
+		if(!carouselRunning){
+			carouselRunning = true;
+			scheduleCarouselStep(0);
+		}
+	}
+	
+	/**
+	 * 停止轮播，正在执行的动画会继续执行完
+	 */
+	public void stopCarousel(){
+		carouselRunning = false;
+		cancelCarouselStep();
+	}
+	
+	/**
+	 * 轮播是否已经开始
+	 * @return 轮播是否已经开始
+	 */
+	public boolean isCarouselRunning(){
+		return carouselRunning;
+	}
+	
+	/**
+	 * 执行轮播的下一步，接下来该执行进入动画的话就进入，否则就退出
+	 */
+	private void runCarouselStep(){
+		if(!carouselRunning){
+			return;
+		}
+		if(isInAnimation()){
+			requestTransition(getKeywordPool() != null ? TransitionQueue.TYPE_IN : TransitionQueue.TYPE_REFRESH, carouselTransitionListener);
+		}else{
+			requestTransition(TransitionQueue.TYPE_OUT, carouselTransitionListener);
+		}
+	}
+	
+	/**
+	 * 轮播的一步执行完毕，进入之后停留一段时间再退出，退出之后在下一帧立即进入，执行失败的话跳过这一轮，停留一段时间之后再试
+	 * @param success 是否执行成功
+	 */
+	private void onCarouselStepFinished(boolean success){
+		if(!carouselRunning){
+			return;
+		}
+		if(success && isInAnimation()){
+			scheduleCarouselStep(0);
+		}else{
+			scheduleCarouselStep(getCarouselDwellTime());
+		}
+	}
+	
+	/**
+	 * 在给定的延迟之后安排轮播的下一步，Android 4.1及以上版本中在延迟之后的下一帧开始时执行，暂停期间不安排，恢复时再安排
+	 * @param delayMillis 延迟，单位毫秒
+	 */
+	private void scheduleCarouselStep(long delayMillis){
+		if(suspended){
+			return;
+		}
+		if(isUseSharedFrameClock()){
+			resources.getFrameClock().post(carouselFrameListener, delayMillis);
+		}else if(Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN){
+			if(carouselFrameClock == null){
+				carouselFrameClock = new FrameClock(carouselStepRunnable);
+			}
+			carouselFrameClock.postDelayed(delayMillis);
+		}else{
+			removeCallbacks(carouselStepRunnable);
+			postDelayed(carouselStepRunnable, delayMillis);
+		}
+	}
+	
+	/**
+	 * 是否使用共享的帧时钟
+	 * @return 设置了共享资源并且是Android 4.1及以上版本
+	 */
+	private boolean isUseSharedFrameClock(){
+		return resources != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN;
+	}
+	
+	/**
+	 * 取消已经安排的轮播的下一步
+	 */
+	private void cancelCarouselStep(){
+		if(carouselFrameClock != null){
+			carouselFrameClock.cancel();
+		}
+		if(isUseSharedFrameClock()){
+			resources.getFrameClock().remove(carouselFrameListener);
+		}
+		removeCallbacks(carouselStepRunnable);
+	}
+	
+	/**
+	 * 取消所有排队等待的过渡动画，它们的回调会收到失败
+	 */
+	public void cancelPendingTransitions(){
+		List<OnTransitionListener> listeners = new ArrayList<OnTransitionListener>();
+		transitionQueue.clear(listeners);
+		notifyTransitionListeners(listeners, false);
+	}
+	
+	/**
+	 * 请求执行一个过渡动画，空闲时立即执行，否则放入队列中和其它请求合并，暂停期间也放入队列中
+	 * @param type 类型
+	 * @param onTransitionListener 执行完毕时的回调，可以为null
+	 * @return 立即执行时返回执行是否成功，排队等待时返回true，漂流模式下返回false
+	 */
+	private boolean requestTransition(int type, OnTransitionListener onTransitionListener){
+		//漂流模式下没有过渡动画
+		if(keywordFlow.isRunning()){
+			if(onTransitionListener != null){
+				onTransitionListener.onTransitionFinished(false);
+			}
+			return false;
+		}
+		//结束回调没有到来但是已经超时了，先结束掉
+		if(transitionRunning && !isTransitionRunning()){
+			finishTransition();
+		}
+		//暂停期间的请求放入队列中，恢复之后再执行
+		if(suspended || isTransitionRunning() || !transitionQueue.isEmpty()){
+			//被抵消掉的请求不会再执行，立即通知它的回调失败
+			TransitionQueue.Transition canceledTransition = transitionQueue.offer(type, onTransitionListener);
+			if(canceledTransition != null){
+				notifyTransitionListeners(canceledTransition.listeners, false);
+			}
+			schedulePendingTransition();
+			return true;
+		}else{
+			TransitionQueue.Transition transition = new TransitionQueue.Transition(type);
+			transition.merge(type, onTransitionListener);
+			return executeTransition(transition);
+		}
+	}
+	
+	/**
+	 * 执行给定的过渡动画，失败的话立即回调，成功的话等动画执行完毕再回调
+	 * @param transition 过渡动画
+	 * @return 执行是否成功
+	 */
+	private boolean executeTransition(TransitionQueue.Transition transition){
+		//设置允许显示动画
+		setAllowShowAnimation(true);
+		boolean result;
+		if(transition.type == TransitionQueue.TYPE_OUT){
+			//执行退出动画并设置返回结果
+			result = executeOutAnimation();
+		}else if(transition.type == TransitionQueue.TYPE_UPDATE){
+			//执行增量更新并设置返回结果
+			result = executeKeywordUpdate();
+		}else{
+			//刷新的话要重新布局并从进入动画开始
+			if(transition.type == TransitionQueue.TYPE_REFRESH){
+				setKeywordHasUpdate(true);
+				setInAnimation(true);
+				forceRelayout = true;
+			}
 			
-			//根据平均宽、高将当前容器平均分成keywordList.size()份并分别记录其X、Y轴坐标值
-			List<Integer> xList = new ArrayList<Integer>();
-			List<Integer> yList = new ArrayList<Integer>();
-			for(int w = 0; w < getKeywordList().size(); w++){
-				xList.add(w * getAverageWidth());
-				yList.add(w * getAverageHeight());
+			//进入前取走其它线程发布的关键字列表
+			if(isInAnimation()){
+				applyKeywordSnapshot(true);
 			}
 			
-			//为每一个关键字随机分配一个坐标
-			for(Keyword keyword : getKeywordList()){
-				keyword.setLeftMargin(xList.remove(getRandom().nextInt(xList.size())));
-				keyword.setTopMargin(yList.remove(getRandom().nextInt(yList.size())));
+			//按过渡动画应用关键字流的话在进入前应用
+			if(getFeedApplyMode() == FeedApplyMode.TRANSITION && isInAnimation()){
+				applyKeywordFeed(true);
 			}
 			
-			//遍历所有的关键字为其创建TextView并添加到容器中
-			for(final Keyword keyword : getKeywordList()){
-				//根据关键字创建一个TextView
-				TextView textView = getTextView(keyword);
-				//设置关键字的实际长度
-				keyword.setWidth((int)textView.getPaint().measureText(keyword.getName()));
-				//修正左外边距
-				reviseLeftMargin(keyword);
-            	//添加到容器中
-				LayoutParams layoutParams = new LayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.WRAP_CONTENT);
-				layoutParams.leftMargin = keyword.getLeftMargin();
-				layoutParams.topMargin = keyword.getTopMargin();
-				layoutParams.gravity = Gravity.LEFT | Gravity.TOP;
-				textView.setOnClickListener(new OnClickListener() {
-					@Override
-					public void onClick(View v) {
-						if(getOnKeywordClickListener() != null){
-							getOnKeywordClickListener().onKeywordClickListener(keyword.getName());
-						}
-					}
-				});
-				textView.setVisibility(View.GONE);
-				addView(textView, layoutParams);
+			//有关键字池的话每次进入前换一页关键字，已经有后台计算好的布局的话那一页已经取过了
+			if(getKeywordPool() != null && isInAnimation() && pendingKeywordLayout == null){
+				loadKeywordPage();
 			}
 			
-			result = true;
+			//如果关键字有更新，就更新视图
+			applyPendingKeywordUpdate();
+			
+			//执行进入动画并设置返回结果
+			result = executeInAnimation();
+		}
+		
+		//执行成功并且有动画正在执行的话等动画执行完毕再回调，否则立即回调
+		if(result && transitionRunning){
+			runningTransitionListeners.addAll(transition.listeners);
+		}else{
+			notifyTransitionListeners(transition.listeners, result);
 		}
 		return result;
 	}
 	
 	/**
-	 * 执行进入动画
-	 * @return 执行是否成功。false：尚未获取容器的宽和高、容器内没有子视图、不允许显示动画、接下来该执行退出动画了
+	 * 是否有过渡动画正在执行，动画的结束回调因为某些原因没有到来时，超过动画持续时间也算作结束
+	 * @return 是否有过渡动画正在执行
 	 */
-	private boolean executeInAnimation(){
+	private boolean isTransitionRunning(){
+		return transitionRunning && SystemClock.uptimeMillis() - getLastShowAnimationTime() <= getAnimationDuration();
+	}
+	
+	/**
+	 * 当前的过渡动画执行完毕，回调监听器并在下一帧执行排队等待的过渡动画
+	 */
+	private void finishTransition(){
+		if(!transitionRunning){
+			return;
+		}
+		transitionRunning = false;
+		reportCycleMetrics();
+		finishingTransitionListeners.clear();
+		finishingTransitionListeners.addAll(runningTransitionListeners);
+		runningTransitionListeners.clear();
+		notifyTransitionListeners(finishingTransitionListeners, true);
+		finishingTransitionListeners.clear();
+		schedulePendingTransition();
+	}
+	
+	/**
+	 * 一轮过渡动画开始执行，设置了性能指标监听器的话开始统计帧数
+	 * @param type 类型
+	 */
+	private void startCycleMetrics(int type){
+		if(getOnCycleMetricsListener() == null){
+			return;
+		}
+		cycleMetrics.type = type;
+		cycleMetricsStartTime = SystemClock.uptimeMillis();
+		if(Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN){
+			if(frameMonitor == null){
+				frameMonitor = new FrameMonitor();
+			}
+			frameMonitor.start();
+		}
+	}
+	
+	/**
+	 * 一轮过渡动画执行完毕，回调性能指标监听器并开始统计下一轮
+	 */
+	private void reportCycleMetrics(){
+		if(getOnCycleMetricsListener() == null || cycleMetrics.type == 0){
+			return;
+		}
+		cycleMetrics.animationLatency = SystemClock.uptimeMillis() - cycleMetricsStartTime;
+		if(frameMonitor != null){
+			frameMonitor.stop();
+			cycleMetrics.frameCount = frameMonitor.getFrameCount();
+			cycleMetrics.overBudgetFrameCount = frameMonitor.getOverBudgetFrameCount();
+		}
+		getOnCycleMetricsListener().onCycleMetrics(cycleMetrics);
+		cycleMetrics.reset();
+	}
+	
+	/**
+	 * 安排执行排队等待的过渡动画，当前动画还没结束的话在预计结束时再检查一次，以防结束回调没有到来
+	 */
+	private void schedulePendingTransition(){
+		if(suspended || transitionQueue.isEmpty() || pendingTransitionScheduled){
+			return;
+		}
+		pendingTransitionScheduled = true;
+		long remaining = getLastShowAnimationTime() + getAnimationDuration() - SystemClock.uptimeMillis();
+		if(transitionRunning && remaining >= 0){
+			postDelayed(pendingTransitionRunnable, remaining + 1);
+		}else{
+			postOnAnimationCompat(pendingTransitionRunnable);
+		}
+	}
+	
+	/**
+	 * 执行排队等待的过渡动画
+	 */
+	private void runPendingTransition(){
+		pendingTransitionScheduled = false;
+		if(suspended){
+			return;
+		}
+		//结束回调没有到来但是已经超时了
+		if(transitionRunning && !isTransitionRunning()){
+			finishTransition();
+			return;
+		}
+		if(isTransitionRunning()){
+			schedulePendingTransition();
+			return;
+		}
+		//没有动画正在执行的话继续执行下一个，直到有动画开始执行或者队列为空
+		TransitionQueue.Transition transition;
+		while(!transitionRunning && (transition = transitionQueue.poll()) != null){
+			executeTransition(transition);
+		}
+	}
+	
+	/**
+	 * 在下一帧执行给定的任务，Android 4.1以下没有动画帧回调，直接post
+	 * @param runnable 任务
+	 */
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+	private void postOnAnimationCompat(Runnable runnable){
+		if(Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN){
+			postOnAnimation(runnable);
+		}else{
+			post(runnable);
+		}
+	}
+	
+	/**
+	 * 回调给定的过渡动画监听器
+	 * @param listeners 监听器列表
+	 * @param success 是否执行成功
+	 */
+	private void notifyTransitionListeners(List<OnTransitionListener> listeners, boolean success){
+		for(int w = 0; w < listeners.size(); w++){
+			listeners.get(w).onTransitionFinished(success);
+		}
+	}
+	
+	/**
+	 * 更新容器内的子视图
+	 * @return 更新是否成功。false：尚未获取容器的宽和高、关键字列表的长度小于等于0
+	 */
+	private boolean updateView(){
+		return updateView(null);
+	}
+	
+	/**
+	 * 按照给定的布局更新容器内的子视图
+	 * @param keywordLayout 已经计算好的布局，为null时立即计算
+	 * @return 更新是否成功。false：尚未获取容器的宽和高、关键字列表的长度小于等于0
+	 */
+	private boolean updateView(KeywordLayout keywordLayout){
+		TraceCompat.beginSection("FlowText.updateView");
+		long startTime = getOnCycleMetricsListener() != null ? System.nanoTime() : 0;
+		try{
+			return performUpdateView(keywordLayout);
+		}finally{
+			if(startTime != 0){
+				cycleMetrics.updateViewNanos += System.nanoTime() - startTime;
+			}
+			TraceCompat.endSection();
+		}
+	}
+	
+	/**
+	 * 按照给定的布局更新容器内的子视图
+	 * @param keywordLayout 已经计算好的布局，为null时立即计算
+	 * @return 更新是否成功。false：尚未获取容器的宽和高、关键字列表的长度小于等于0
+	 */
+	private boolean performUpdateView(KeywordLayout keywordLayout){
 		boolean result = false;
-		int childViewCount = getChildCount();
-		if(getContainerWidth() > 0 && getContainerHeight() > 0 && childViewCount > 0 && isAllowShowAnimation() && isInAnimation()){
-			//遍历容器内所有的子视图让其执行进入动画
-			for(int w  = 0; w < childViewCount; w++){
-				final TextView textView = (TextView) getChildAt(w);
-				textView.setVisibility(View.VISIBLE);
-				AnimationSet animationSet = getInAnimation((Keyword)textView.getTag());
-				textView.startAnimation(animationSet);
-				animationSet.setAnimationListener(new AnimationListener() {
-					@Override
-					public void onAnimationStart(Animation animation) {
-					}
-					
-					@Override
-					public void onAnimationRepeat(Animation animation) {
-					}
-					
-					@Override
-					public void onAnimationEnd(Animation animation) {
-						textView.setClickable(true);
+		//接下来要清除子视图上的动画，不再处理上一轮动画的结束
+		runningAnimationSetCount = 0;
+		if(transitionAnimator != null){
+			transitionAnimator.cancel();
+		}
+		updatingKeywords = false;
+		keywordHasIncrementalUpdate = false;
+		
+		//如果容器的宽、高都已经知道了并且关键字列表的长度大于0
+		if(getContainerWidth() > 0 && getContainerHeight() > 0 && getKeywordList().size() > 0){
+			//计算每个关键字的文字大小、颜色、尺寸和坐标
+			int styleHash = getLayoutStyleHash();
+			if(keywordLayout == null){
+				keywordLayout = createKeywordLayout(getKeywordList(), false);
+				//不是刷新的话优先从缓存中取，同样的关键字和容器尺寸保持同样的布局
+				if(forceRelayout || getKeywordLayoutCache() == null || !getKeywordLayoutCache().restore(keywordLayout, styleHash)){
+					keywordLayout.measure();
+					keywordLayout.place();
+					if(getKeywordLayoutCache() != null){
+						getKeywordLayoutCache().put(keywordLayout, styleHash);
 					}
-				});
+				}
+			}else if(getKeywordLayoutCache() != null){
+				getKeywordLayoutCache().put(keywordLayout, styleHash);
 			}
+			forceRelayout = false;
+			textSizeScale = keywordLayout.scale;
+			cycleMetrics.measureNanos += keywordLayout.measureNanos;
 			
-			//设置返回结果为成功
+			//设置平均宽、高
+			setAverageWidth(keywordLayout.averageWidth);
+			setAverageHeight(keywordLayout.averageHeight);
+			
+			//应用计算结果，放不下的关键字不显示
+			displayKeywordList.clear();
+			unplacedKeywordList.clear();
+			for(int w = 0; w < keywordLayout.keywords.length; w++){
+				Keyword keyword = keywordLayout.keywords[w];
+				applyKeywordStyle(keywordLayout, w);
+				if(keywordLayout.lefts[w] != KeywordPlacer.NOT_PLACED){
+					keyword.setLeftMargin(keywordLayout.lefts[w]);
+					keyword.setTopMargin(keywordLayout.tops[w]);
+					displayKeywordList.add(keyword);
+				}else{
+					unplacedKeywordList.add(keyword);
+				}
+			}
+			
+			//画布模式下不需要子视图，全部移除；视图模式下移除多余的子视图，剩下的子视图直接复用
+			boolean canvasMode = isCanvasRenderMode();
+			recycleViews(canvasMode ? 0 : displayKeywordList.size());
+			canvasAnimationList.clear();
+			
+			//遍历所有要显示的关键字，画布模式下由容器自己绘制；视图模式下为其绑定TextView，容器中已有的直接复用，缺少的才从回收池中取出或新建并添加到容器中
+			for(int w = 0; w < displayKeywordList.size(); w++){
+				Keyword keyword = displayKeywordList.get(w);
+				if(canvasMode){
+					canvasAnimationList.add(null);
+					continue;
+				}
+				
+				boolean attached = w < getChildCount();
+				if(attached && getOnCycleMetricsListener() != null){
+					cycleMetrics.reusedViewCount++;
+				}
+				TextView textView = attached ? (TextView) getChildAt(w) : obtainTextView();
+				//将关键字绑定到TextView上
+				bindTextView(textView, keyword);
+				//复用已有的布局参数
+				LayoutParams layoutParams = (LayoutParams) textView.getLayoutParams();
+				if(layoutParams == null){
+					layoutParams = new LayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.WRAP_CONTENT);
+					layoutParams.gravity = Gravity.LEFT | Gravity.TOP;
+				}
+				layoutParams.width = keyword.getWidth();
+				layoutParams.height = keyword.getHeight();
+				layoutParams.leftMargin = keyword.getLeftMargin();
+				layoutParams.topMargin = keyword.getTopMargin();
+				textView.setVisibility(View.GONE);
+				if(attached){
+					textView.setLayoutParams(layoutParams);
+				}else{
+					addView(textView, layoutParams);
+				}
+			}
+			
+			//新的关键字要等到执行进入动画时才显示
+			canvasKeywordVisible = false;
+			invalidate();
 			result = true;
-			//设置不允许显示动画
-			setAllowShowAnimation(false);
-			//更新上次显示动画时间
-			setLastShowAnimationTime(System.currentTimeMillis());
-			//标记为接下来该执行退出动画了
-			setInAnimation(false);
+		}else{
+			//删除容器中所有的视图
+			recycleViews(0);
+			if(displayKeywordList.size() > 0){
+				displayKeywordList.clear();
+				canvasAnimationList.clear();
+				canvasKeywordVisible = false;
+				invalidate();
+			}
 		}
 		return result;
 	}
 	
 	/**
-	 * 执行退出动画
-	 * @return 执行是否成功。false：尚未获取容器的宽和高、容器内没有子视图、不允许显示动画、接下来该执行进入动画了
+	 * 将布局中计算好的文字大小、颜色和尺寸设置到对应的关键字上
+	 * @param keywordLayout 计算好的布局
+	 * @param index 关键字在布局中的位置
+	 */
+	private void applyKeywordStyle(KeywordLayout keywordLayout, int index){
+		Keyword keyword = keywordLayout.keywords[index];
+		keyword.setTextSize(keywordLayout.textSizes[index]);
+		keyword.setTextColor(keywordLayout.textColors[index]);
+		keyword.setWidth(keywordLayout.widths[index]);
+		keyword.setHeight(keywordLayout.heights[index]);
+		//换行的关键字使用测量时换好行的文字，保证显示的和布局时测量的一致
+		keyword.setWrappedText(keywordLayout.getWrappedText(index));
+		keyword.transition = TRANSITION_NONE;
+	}
+	
+	/**
+	 * 获取实际使用的关键字最大宽度，没有设置或者比容器还宽的话使用容器的宽度
+	 * @return 关键字最大宽度
+	 */
+	private int getEffectiveKeywordMaxWidth(){
+		return getKeywordMaxWidth() > 0 && getKeywordMaxWidth() < getContainerWidth() ? getKeywordMaxWidth() : getContainerWidth();
+	}
+	
+	/**
+	 * 如果关键字有更新就更新视图，有后台计算好的布局的话直接使用，有增量更新的话只处理有变化的关键字
+	 */
+	private void applyPendingKeywordUpdate(){
+		if(pendingKeywordLayout != null){
+			KeywordLayout keywordLayout = pendingKeywordLayout;
+			pendingKeywordLayout = null;
+			if(isKeywordHasUpdate() && isKeywordLayoutValid(keywordLayout) && updateView(keywordLayout)){
+				setKeywordHasUpdate(false);
+			}
+		}
+		if(!isKeywordHasUpdate() && keywordHasIncrementalUpdate){
+			keywordHasIncrementalUpdate = false;
+			//无法增量更新的话就全部重新布局
+			if(!updateViewIncrementally(false)){
+				setKeywordHasUpdate(true);
+			}
+		}
+		if(isKeywordHasUpdate()){
+			//如果更新视图成功
+			if(updateView()){
+				//设置关键字没有更新
+				setKeywordHasUpdate(false);
+			}
+		}
+	}
+	
+	/**
+	 * 执行增量更新，关键字正在显示的话新增的关键字执行进入动画，删除的关键字执行退出动画，其它的保持不动；没有显示的话等下次进入时再处理
+	 * @return 执行是否成功
+	 */
+	private boolean executeKeywordUpdate(){
+		//没有显示的话等下次进入时再处理
+		if(isInAnimation()){
+			keywordHasIncrementalUpdate = true;
+			return true;
+		}
+		//无法增量更新的话等下次进入时全部重新布局
+		if(!updateViewIncrementally(true)){
+			setKeywordHasUpdate(true);
+			return true;
+		}
+		//有新增或删除的关键字才执行动画
+		boolean changed = false;
+		for(int w = 0; w < displayKeywordList.size() && !changed; w++){
+			changed = displayKeywordList.get(w).transition != TRANSITION_NONE;
+		}
+		if(changed){
+			updatingKeywords = true;
+			resetAnimationSets(true);
+			resetAnimationSets(false);
+			startKeywordAnimations();
+			setLastShowAnimationTime(SystemClock.uptimeMillis());
+			transitionRunning = true;
+			startCycleMetrics(CycleMetrics.TYPE_UPDATE);
+		}
+		return true;
+	}
+	
+	/**
+	 * 增量更新容器内的子视图，保留的关键字位置不变，新增的关键字放到空白处，删除的关键字在动画执行完毕后移除
+	 * @param animate 是否要执行动画，不执行动画的话删除的关键字立即移除，新增的关键字等待下次进入动画
+	 * @return 更新是否成功。false：尚未获取容器的宽和高、没有关键字布局器、之前没有布局过
+	 */
+	private boolean updateViewIncrementally(boolean animate){
+		if(getContainerWidth() <= 0 || getContainerHeight() <= 0 || getKeywordPlacer() == null || displayKeywordList.size() == 0){
+			return false;
+		}
+		
+		//找出被删除的关键字，不执行动画的话立即移除
+		updateKeywordSet.clear();
+		updateKeywordSet.addAll(getKeywordList());
+		boolean canvasMode = isCanvasRenderMode();
+		for(int w = displayKeywordList.size() - 1; w >= 0; w--){
+			Keyword keyword = displayKeywordList.get(w);
+			if(updateKeywordSet.contains(keyword)){
+				keyword.transition = TRANSITION_NONE;
+			}else if(animate){
+				keyword.transition = TRANSITION_OUT;
+			}else{
+				removeDisplayKeyword(w, canvasMode);
+			}
+		}
+		
+		//保留的关键字和正在执行退出动画的关键字都作为固定的障碍物放在前面，退出动画结束之前新增的关键字不能占用它们的位置，新增的关键字放在后面
+		updateKeywordSet.clear();
+		updateKeywordSet.addAll(displayKeywordList);
+		addedKeywordList.clear();
+		for(int w = 0; w < getKeywordList().size(); w++){
+			Keyword keyword = getKeywordList().get(w);
+			if(!updateKeywordSet.contains(keyword)){
+				addedKeywordList.add(keyword);
+			}
+		}
+		updateKeywordSet.clear();
+		unplacedKeywordList.clear();
+		if(addedKeywordList.size() > 0){
+			//设置新关键字的文字大小和颜色并测量其实际尺寸
+			KeywordLayout keywordLayout = createKeywordLayout(addedKeywordList, false);
+			//按权重计算文字大小时和保留的关键字使用同样的权重范围和缩放比例
+			keywordLayout.scale = textSizeScale;
+			for(Keyword keyword : getKeywordList()){
+				keywordLayout.minWeight = Math.min(keywordLayout.minWeight, keyword.getWeight());
+				keywordLayout.maxWeight = Math.max(keywordLayout.maxWeight, keyword.getWeight());
+			}
+			keywordLayout.measure();
+			cycleMetrics.measureNanos += keywordLayout.measureNanos;
+			for(int w = 0; w < addedKeywordList.size(); w++){
+				applyKeywordStyle(keywordLayout, w);
+			}
+			
+			int fixedCount = displayKeywordList.size();
+			int count = fixedCount + addedKeywordList.size();
+			ensurePlaceArrays(count);
+			for(int w = 0; w < count; w++){
+				Keyword keyword = w < fixedCount ? displayKeywordList.get(w) : addedKeywordList.get(w - fixedCount);
+				placeWidths[w] = keyword.getWidth();
+				placeHeights[w] = keyword.getHeight();
+				placeLefts[w] = keyword.getLeftMargin();
+				placeTops[w] = keyword.getTopMargin();
+			}
+			getKeywordPlacer().place(count, fixedCount, placeWidths, placeHeights, getContainerWidth(), getContainerHeight(), getRandom(), placeLefts, placeTops);
+			
+			//放得下的新关键字加入显示列表，视图模式下为其绑定TextView
+			for(int w = fixedCount; w < count; w++){
+				Keyword keyword = addedKeywordList.get(w - fixedCount);
+				if(placeLefts[w] == KeywordPlacer.NOT_PLACED){
+					unplacedKeywordList.add(keyword);
+					continue;
+				}
+				keyword.setLeftMargin(placeLefts[w]);
+				keyword.setTopMargin(placeTops[w]);
+				keyword.transition = animate ? TRANSITION_IN : TRANSITION_NONE;
+				displayKeywordList.add(keyword);
+				if(canvasMode){
+					canvasAnimationList.add(null);
+				}else{
+					TextView textView = obtainTextView();
+					bindTextView(textView, keyword);
+					LayoutParams layoutParams = (LayoutParams) textView.getLayoutParams();
+					if(layoutParams == null){
+						layoutParams = new LayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.WRAP_CONTENT);
+						layoutParams.gravity = Gravity.LEFT | Gravity.TOP;
+					}
+					layoutParams.width = keyword.getWidth();
+					layoutParams.height = keyword.getHeight();
+					layoutParams.leftMargin = keyword.getLeftMargin();
+					layoutParams.topMargin = keyword.getTopMargin();
+					textView.setVisibility(View.GONE);
+					addView(textView, layoutParams);
+				}
+			}
+			addedKeywordList.clear();
+		}
+		invalidate();
+		return true;
+	}
+	
+	/**
+	 * 从显示列表中移除给定位置的关键字，视图模式下同时回收它的TextView
+	 * @param index 在显示列表中的位置
+	 * @param canvasMode 是否是画布模式
+	 */
+	private void removeDisplayKeyword(int index, boolean canvasMode){
+		Keyword keyword = displayKeywordList.remove(index);
+		keyword.transition = TRANSITION_NONE;
+		if(canvasMode){
+			canvasAnimationList.remove(index);
+		}else{
+			for(int w = getChildCount() - 1; w >= 0; w--){
+				if(getChildAt(w).getTag() == keyword){
+					recycleViewAt(w);
+					break;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * 增量更新的动画执行完毕，移除被删除的关键字
+	 */
+	private void finishKeywordUpdate(){
+		if(!updatingKeywords){
+			return;
+		}
+		updatingKeywords = false;
+		boolean canvasMode = isCanvasRenderMode();
+		for(int w = displayKeywordList.size() - 1; w >= 0; w--){
+			Keyword keyword = displayKeywordList.get(w);
+			if(keyword.transition == TRANSITION_OUT){
+				removeDisplayKeyword(w, canvasMode);
+			}else{
+				keyword.transition = TRANSITION_NONE;
+				if(canvasMode){
+					canvasAnimationList.set(w, null);
+				}
+			}
+		}
+		for(int w = 0; w < getChildCount(); w++){
+			getChildAt(w).setClickable(true);
+		}
+		invalidate();
+		finishTransition();
+	}
+	
+	/**
+	 * 确保布局用的数组足够长
+	 * @param count 关键字的个数
+	 */
+	private void ensurePlaceArrays(int count){
+		if(placeWidths == null || placeWidths.length < count){
+			placeWidths = new int[count];
+			placeHeights = new int[count];
+			placeLefts = new int[count];
+			placeTops = new int[count];
+		}
+	}
+	
+	/**
+	 * 获取当前正在显示的关键字的个数
+	 * @return 画布模式下是已经布局好的关键字的个数，视图模式下是子视图的个数
+	 */
+	private int getDisplayKeywordCount(){
+		return isCanvasRenderMode() ? displayKeywordList.size() : getChildCount();
+	}
+	
+	/**
+	 * 从容器中移除下标大于等于给定值的子视图，如果允许回收复用就放入回收池中
+	 * @param retainCount 保留的子视图的个数
+	 */
+	private void recycleViews(int retainCount){
+		for(int w = getChildCount() - 1; w >= retainCount; w--){
+			recycleViewAt(w);
+		}
+	}
+	
+	/**
+	 * 从容器中移除给定位置的子视图，如果允许回收复用就放入回收池中，设置了共享资源的话放入共享的回收池中
+	 * @param index 子视图的位置
+	 */
+	private void recycleViewAt(int index){
+		View childView = getChildAt(index);
+		childView.clearAnimation();
+		childView.setTag(null);
+		removeViewAt(index);
+		//如果允许回收复用并且回收池还没满就放入回收池中
+		if(isRecycleViewEnabled() && childView instanceof TextView){
+			if(resources != null){
+				resources.recycleView((TextView) childView);
+			}else if(recycledViewPool.size() < getRecycledViewPoolMaxSize()){
+				recycledViewPool.add((TextView) childView);
+			}
+		}
+	}
+	
+	/**
+	 * 获取一个尚未添加到容器中的文本视图，优先从回收池中取，设置了共享资源的话从共享的回收池中取
+	 * @return 文本视图
+	 */
+	private TextView obtainTextView(){
+		TextView recycledView = null;
+		if(isRecycleViewEnabled()){
+			if(resources != null){
+				recycledView = resources.obtainRecycledView(getContext());
+			}else if(recycledViewPool.size() > 0){
+				recycledView = recycledViewPool.remove(recycledViewPool.size() - 1);
+			}
+		}
+		if(recycledView != null){
+			if(getOnCycleMetricsListener() != null){
+				cycleMetrics.reusedViewCount++;
+			}
+			//共享的回收池中的视图可能来自其它FlowText，重新设置点击监听器
+			recycledView.setOnClickListener(keywordViewClickListener);
+			return recycledView;
+		}else{
+			if(getOnCycleMetricsListener() != null){
+				cycleMetrics.createdViewCount++;
+			}
+			TextView textView = new TextView(getContext());
+			textView.setGravity(Gravity.CENTER);
+			textView.setOnClickListener(keywordViewClickListener);
+			return textView;
+		}
+	}
+	
+	/**
+	 * 执行进入动画
+	 * @return 执行是否成功。false：尚未获取容器的宽和高、容器内没有子视图、不允许显示动画、接下来该执行退出动画了
+	 */
+	private boolean executeInAnimation(){
+		boolean result = false;
+		int childViewCount = getDisplayKeywordCount();
+		if(getContainerWidth() > 0 && getContainerHeight() > 0 && childViewCount > 0 && isAllowShowAnimation() && isInAnimation()){
+			//重置进入动画并让所有的关键字执行进入动画
+			transitionIn = true;
+			updatingKeywords = false;
+			resetAnimationSets(true);
+			startKeywordAnimations();
+			
+			//设置返回结果为成功
+			result = true;
+			//设置不允许显示动画
+			setAllowShowAnimation(false);
+			//更新上次显示动画时间并标记为有过渡动画正在执行
+			setLastShowAnimationTime(SystemClock.uptimeMillis());
+			transitionRunning = true;
+			startCycleMetrics(CycleMetrics.TYPE_IN);
+			//标记为接下来该执行退出动画了
+			setInAnimation(false);
+		}
+		return result;
+	}
+	
+	/**
+	 * 执行退出动画
+	 * @return 执行是否成功。false：尚未获取容器的宽和高、容器内没有子视图、不允许显示动画、接下来该执行进入动画了
+	 */
+	private boolean executeOutAnimation(){
+		boolean result = false;
+		int childViewCount = getDisplayKeywordCount();
+		if(getContainerWidth() > 0 && getContainerHeight() > 0 && childViewCount > 0 && isAllowShowAnimation() && !isInAnimation()){
+			//重置退出动画并让所有的关键字执行退出动画，动画执行完毕时由共用的监听器将它们隐藏
+			transitionIn = false;
+			updatingKeywords = false;
+			resetAnimationSets(false);
+			startKeywordAnimations();
+			
+			//设置返回结果为成功
+			result = true;
+			//设置不允许显示动画
+			setAllowShowAnimation(false);
+			//更新上次显示动画时间并标记为有过渡动画正在执行
+			setLastShowAnimationTime(SystemClock.uptimeMillis());
+			transitionRunning = true;
+			startCycleMetrics(CycleMetrics.TYPE_OUT);
+			//标记为接下来该执行进入动画了
+			setInAnimation(true);
+		}
+		return result;
+	}
+	
+	/**
+	 * 让需要执行动画的关键字开始执行本轮动画。画布模式下由容器自己绘制动画，可以使用属性动画的话就由时钟统一驱动，否则每个子视图各自执行动画
+	 */
+	private void startKeywordAnimations(){
+		TraceCompat.beginSection("FlowText.startAnimations");
+		if(isCanvasRenderMode()){
+			startCanvasAnimation();
+		}else if(isUsePropertyAnimation()){
+			startTransition();
+		}else{
+			for(int w  = 0; w < getChildCount(); w++){
+				TextView textView = (TextView) getChildAt(w);
+				Keyword keyword = (Keyword) textView.getTag();
+				int transition = getKeywordTransition(keyword);
+				if(transition != TRANSITION_NONE){
+					//每个子视图用自己的动画，框架会按子视图的尺寸初始化它，不能共用
+					while(viewAnimationList.size() <= w){
+						viewAnimationList.add(new KeywordViewAnimation());
+					}
+					KeywordViewAnimation viewAnimation = viewAnimationList.get(w);
+					viewAnimation.set(obtainQuadrantAnimation(keyword, transition), keyword);
+					textView.setVisibility(View.VISIBLE);
+					textView.startAnimation(viewAnimation);
+				}
+			}
+		}
+		TraceCompat.endSection();
+	}
+	
+	/**
+	 * 获取给定的关键字在本轮动画中要执行的动画
+	 * @param keyword 给定的关键字
+	 * @return TRANSITION_IN、TRANSITION_OUT或TRANSITION_NONE
+	 */
+	private int getKeywordTransition(Keyword keyword){
+		if(updatingKeywords){
+			return keyword.transition;
+		}else{
+			return transitionIn ? TRANSITION_IN : TRANSITION_OUT;
+		}
+	}
+	
+	/**
+	 * 是否使用属性动画
+	 * @return 允许使用属性动画、系统版本支持并且是视图模式
+	 */
+	private boolean isUsePropertyAnimation(){
+		return isPropertyAnimationEnabled() && Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB && getRenderMode() == RenderMode.VIEW;
+	}
+	
+	/**
+	 * 用共用的时钟为需要执行动画的子视图开始执行本轮动画，动画期间这些子视图开启硬件层
+	 */
+	@TargetApi(Build.VERSION_CODES.HONEYCOMB)
+	private void startTransition(){
+		if(transitionAnimator == null){
+			transitionAnimator = new KeywordTransitionAnimator(new KeywordTransitionAnimator.Callback() {
+				@Override
+				public void onTransitionFrame(float fraction) {
+					applyTransition(fraction);
+				}
+				
+				@Override
+				public void onTransitionEnd(boolean canceled) {
+					endTransition(canceled);
+				}
+			});
+		}
+		transitionAnimator.cancel();
+		
+		//每个象限的动画只需初始化一次，从0开始计时
+		for(int w = 0; w < QUADRANT_COUNT; w++){
+			if(transitionIn || updatingKeywords){
+				inQuadrantAnimations[w].start(getContainerWidth(), getContainerHeight(), 0);
+			}
+			if(!transitionIn || updatingKeywords){
+				outQuadrantAnimations[w].start(getContainerWidth(), getContainerHeight(), 0);
+			}
+		}
+		
+		boolean hardwareLayer = isHardwareAccelerated();
+		for(int w = 0; w < getChildCount(); w++){
+			View childView = getChildAt(w);
+			if(!(childView.getTag() instanceof Keyword)){
+				continue;
+			}
+			Keyword keyword = (Keyword) childView.getTag();
+			int transition = getKeywordTransition(keyword);
+			if(transition == TRANSITION_NONE){
+				continue;
+			}
+			childView.clearAnimation();
+			//轴心点放在左上角，缩放和旋转绕各自的轴心点产生的位移都算在每个子视图的位移里
+			childView.setPivotX(0);
+			childView.setPivotY(0);
+			childView.setVisibility(View.VISIBLE);
+			if(hardwareLayer){
+				childView.setLayerType(View.LAYER_TYPE_HARDWARE, null);
+			}
+		}
+		applyTransition(0.0f);
+		transitionAnimator.start(getAnimationDuration());
+	}
+	
+	/**
+	 * 计算给定进度时每个象限的变换并应用到所有的子视图上
+	 * @param fraction 进度
+	 */
+	@TargetApi(Build.VERSION_CODES.HONEYCOMB)
+	private void applyTransition(float fraction){
+		//每个象限只计算一次
+		long playTime = (long)(fraction * getAnimationDuration());
+		for(int w = 0; w < QUADRANT_COUNT; w++){
+			if(transitionIn || updatingKeywords){
+				inQuadrantAnimations[w].compute(playTime);
+				decomposeTransformation(inQuadrantAnimations[w].getTransformation(), quadrantTransforms, w * TRANSFORM_SIZE);
+			}
+			if(!transitionIn || updatingKeywords){
+				outQuadrantAnimations[w].compute(playTime);
+				decomposeTransformation(outQuadrantAnimations[w].getTransformation(), quadrantTransforms, (QUADRANT_COUNT + w) * TRANSFORM_SIZE);
+			}
+		}
+		
+		//再按照象限应用到需要执行动画的子视图上
+		for(int w = 0; w < getChildCount(); w++){
+			View childView = getChildAt(w);
+			if(childView.getTag() instanceof Keyword){
+				Keyword keyword = (Keyword) childView.getTag();
+				int transition = getKeywordTransition(keyword);
+				if(transition == TRANSITION_NONE){
+					continue;
+				}
+				int quadrant = getQuadrant(keyword);
+				QuadrantAnimation quadrantAnimation = transition == TRANSITION_OUT ? outQuadrantAnimations[quadrant] : inQuadrantAnimations[quadrant];
+				int offset = (quadrant + (transition == TRANSITION_OUT ? QUADRANT_COUNT : 0)) * TRANSFORM_SIZE;
+				childView.setAlpha(quadrantTransforms[offset]);
+				childView.setTranslationX(quadrantAnimation.getTranslateX(keyword.getWidth(), keyword.getHeight()));
+				childView.setTranslationY(quadrantAnimation.getTranslateY(keyword.getWidth(), keyword.getHeight()));
+				childView.setScaleX(quadrantTransforms[offset + 1]);
+				childView.setScaleY(quadrantTransforms[offset + 2]);
+				childView.setRotation(quadrantTransforms[offset + 3]);
+			}
+		}
+	}
+	
+	/**
+	 * 将变换分解为透明度、缩放和旋转角度，位移按每个子视图的尺寸单独计算
+	 * @param transformation 变换
+	 * @param out 存放结果
+	 * @param offset 存放的起始位置
+	 */
+	private void decomposeTransformation(Transformation transformation, float[] out, int offset){
+		transformation.getMatrix().getValues(matrixValues);
+		float a = matrixValues[Matrix.MSCALE_X];
+		float b = matrixValues[Matrix.MSKEW_X];
+		float c = matrixValues[Matrix.MSKEW_Y];
+		float d = matrixValues[Matrix.MSCALE_Y];
+		float scaleX = (float) Math.sqrt(a * a + c * c);
+		out[offset] = transformation.getAlpha();
+		out[offset + 1] = scaleX;
+		if(scaleX != 0){
+			out[offset + 2] = (a * d - b * c) / scaleX;
+			out[offset + 3] = (float) Math.toDegrees(Math.atan2(c, a));
+		}else{
+			out[offset + 2] = (float) Math.sqrt(b * b + d * d);
+			out[offset + 3] = 0;
+		}
+	}
+	
+	/**
+	 * 共用的时钟结束，关闭子视图的硬件层，被取消的话还原子视图的属性
+	 * @param canceled 是否是被取消的
+	 */
+	@TargetApi(Build.VERSION_CODES.HONEYCOMB)
+	private void endTransition(boolean canceled){
+		for(int w = 0; w < getChildCount(); w++){
+			View childView = getChildAt(w);
+			if(childView.getLayerType() != View.LAYER_TYPE_NONE){
+				childView.setLayerType(View.LAYER_TYPE_NONE, null);
+			}
+			//退出动画或增量更新结束或者被取消时还原属性，以便下一轮从头开始
+			if(canceled || !transitionIn || updatingKeywords){
+				childView.setAlpha(1.0f);
+				childView.setTranslationX(0);
+				childView.setTranslationY(0);
+				childView.setScaleX(1.0f);
+				childView.setScaleY(1.0f);
+				childView.setRotation(0);
+			}
+		}
+		if(!canceled){
+			onAnimationSetsEnd(transitionIn);
+		}
+	}
+	
+	/**
+	 * 画布模式下为需要执行动画的关键字开始执行本轮动画
+	 */
+	private void startCanvasAnimation(){
+		for(int w = 0; w < displayKeywordList.size(); w++){
+			Keyword keyword = displayKeywordList.get(w);
+			int transition = getKeywordTransition(keyword);
+			canvasAnimationList.set(w, transition != TRANSITION_NONE ? obtainQuadrantAnimation(keyword, transition) : null);
+		}
+		canvasKeywordVisible = true;
+		canvasOutAnimation = !transitionIn && !updatingKeywords;
+		invalidate();
+	}
+	
+	@Override
+	protected void dispatchDraw(Canvas canvas) {
+		super.dispatchDraw(canvas);
+		//漂流模式和画布模式下由容器自己绘制所有的关键字
+		if(keywordFlow.isRunning()){
+			drawFlow(canvas);
+		}else if(isCanvasRenderMode() && canvasKeywordVisible){
+			drawKeywords(canvas);
+		}
+	}
+	
+	/**
+	 * 画布模式下绘制所有的关键字，图集模式下绘制图集上的对应区域，没有放入图集的直接绘制文字
+	 * @param canvas 画布
+	 */
+	private void drawKeywords(Canvas canvas){
+		long drawingTime = getDrawingTime();
+		boolean more = false;
+		boolean atlasMode = getRenderMode() == RenderMode.ATLAS;
+		//只有文字、文字大小或颜色有变化的关键字才需要重新绘制到图集上
+		if(atlasMode){
+			keywordAtlas.update(displayKeywordList, keywordPaint, getAtlasPadding(), getAtlasScale(), getContainerWidth());
+		}
+		//动画放大的比例超过了图集的放大比例的话，动画中的帧直接绘制文字，以免模糊
+		boolean atlasAnimation = getAnimationMaxScale() <= KeywordAtlas.MAX_SCALE;
+		for(int w = 0; w < displayKeywordList.size(); w++){
+			Keyword keyword = displayKeywordList.get(w);
+			QuadrantAnimation quadrantAnimation = canvasAnimationList.get(w);
+			int saveCount = canvas.save();
+			canvas.translate(keyword.getLeftMargin(), keyword.getTopMargin());
+			float alpha = 1.0f;
+			//如果有动画就应用当前时刻的变换，每个象限每帧只计算一次，再按当前关键字的尺寸组合出它的变换
+			if(quadrantAnimation != null){
+				if(quadrantAnimation.compute(drawingTime)){
+					more = true;
+				}
+				quadrantAnimation.getMatrix(keyword.getWidth(), keyword.getHeight(), canvasKeywordMatrix);
+				canvas.concat(canvasKeywordMatrix);
+				alpha = quadrantAnimation.getAlpha();
+			}
+			drawKeyword(canvas, w, keyword, alpha, atlasMode && (quadrantAnimation == null || atlasAnimation));
+			canvas.restoreToCount(saveCount);
+		}
+		
+		//如果动画尚未结束就继续绘制下一帧，否则结束动画
+		if(more){
+			invalidate();
+		}else{
+			for(int w = 0; w < canvasAnimationList.size(); w++){
+				canvasAnimationList.set(w, null);
+			}
+			//退出动画执行完毕时隐藏所有的关键字
+			if(canvasOutAnimation){
+				canvasKeywordVisible = false;
+				invalidate();
+			}
+		}
+	}
+	
+	/**
+	 * 在已经平移到关键字左上角的画布上绘制给定的关键字，图集模式下绘制图集上的对应区域，没有放入图集的直接绘制文字
+	 * @param canvas 画布
+	 * @param index 关键字在显示列表中的位置
+	 * @param keyword 关键字
+	 * @param alpha 透明度
+	 * @param atlasMode 是否是图集模式
+	 */
+	private void drawKeyword(Canvas canvas, int index, Keyword keyword, float alpha, boolean atlasMode){
+		if(atlasMode){
+			atlasPaint.setAlpha((int)(alpha * 255));
+			if(keywordAtlas.draw(canvas, index, atlasPaint)){
+				return;
+			}
+		}
+		keywordPaint.setTextSize(keyword.getTextSize());
+		keywordPaint.setColor(keyword.getTextColor());
+		keywordPaint.setAlpha((int)(alpha * 255));
+		//换行的关键字用自己的画笔逐行绘制，不修改缓存中的数据
+		if(keyword.getWrappedText() != null){
+			keyword.getWrappedText().draw(canvas, keywordPaint);
+			return;
+		}
+		keywordPaint.getFontMetrics(keywordFontMetrics);
+		canvas.drawText(keyword.getName(), 0, -keywordFontMetrics.top, keywordPaint);
+	}
+	
+	/**
+	 * 开始漂流，所有显示的关键字各自按照随机的方向和速度在容器内漂流，每隔getFlowReplaceInterval()毫秒淡出一个关键字并用没有显示的关键字替换
+	 * <br>漂流期间由容器自己绘制所有的关键字，不执行过渡动画，轮播也会停止
+	 */
+	public void startFlow(){
+		if(keywordFlow.isRunning()){
+			return;
+		}
+		stopCarousel();
+		cancelPendingTransitions();
+		completeTransition();
+		keywordFlow.start();
+		invalidate();
+	}
+	
+	/**
+	 * 停止漂流，关键字重新布局之后执行进入动画
+	 */
+	public void stopFlow(){
+		//漂流期间位置只保存在漂流场中，停止时写回关键字
+		if(!keywordFlow.stop()){
+			return;
+		}
+		removeCallbacks(flowInitRunnable);
+		if(isUseSharedFrameClock()){
+			resources.getFrameClock().remove(flowFrameListener);
+		}
+		reportCycleMetrics();
+		if(getKeywordList().size() > 0){
+			setKeywordHasUpdate(true);
+		}
+		setInAnimation(true);
+		setAllowShowAnimation(true);
+		invalidate();
+		invalidateKeywordLayout();
+	}
+	
+	/**
+	 * 漂流模式是否已经开始
+	 * @return 漂流模式是否已经开始
+	 */
+	public boolean isFlowRunning(){
+		return keywordFlow.isRunning();
+	}
+	
+	/**
+	 * 按照当前显示的关键字初始化漂流场，关键字有更新的话先重新布局。正在显示的关键字从原位置开始漂流，否则淡入
+	 */
+	private void initFlow(){
+		if(!keywordFlow.isRunning() || getContainerWidth() <= 0 || getContainerHeight() <= 0){
+			return;
+		}
+		boolean shown = !isInAnimation() && displayKeywordList.size() > 0 && !isKeywordHasUpdate() && !keywordHasIncrementalUpdate;
+		applyPendingKeywordUpdate();
+		if(displayKeywordList.size() == 0){
+			updateView();
+		}
+		
+		//静止的关键字全部隐藏，改由容器绘制
+		for(int w = 0; w < getChildCount(); w++){
+			View childView = getChildAt(w);
+			childView.clearAnimation();
+			childView.setVisibility(View.GONE);
+		}
+		canvasKeywordVisible = false;
+		keywordFlow.init(shown, getFlowFade(), getRandom());
+		invalidate();
+	}
+	
+	/**
+	 * 漂流模式下推进一帧并绘制所有的关键字，每帧不分配任何对象
+	 * @param canvas 画布
+	 */
+	private void drawFlow(Canvas canvas){
+		if(getContainerWidth() <= 0 || getContainerHeight() <= 0){
+			return;
+		}
+		//第一帧或者关键字有更新的话在下一帧重新初始化
+		if(!keywordFlow.isInitialized() || isKeywordHasUpdate() || keywordHasIncrementalUpdate){
+			removeCallbacks(flowInitRunnable);
+			postOnAnimationCompat(flowInitRunnable);
+			return;
+		}
+		
+		//使用共享的帧时钟的话在帧回调中推进，否则在绘制时推进
+		boolean sharedFrameClock = isUseSharedFrameClock();
+		if(!sharedFrameClock){
+			stepFlow(getDrawingTime());
+		}
+		
+		if(getRenderMode() == RenderMode.ATLAS){
+			keywordAtlas.update(displayKeywordList, keywordPaint, getAtlasPadding(), getAtlasScale(), getContainerWidth());
+		}
+		keywordFlow.draw(canvas, flowKeywordDrawer);
+		
+		//不可见时不再推进下一帧
+		if(!suspended){
+			if(sharedFrameClock){
+				resources.getFrameClock().post(flowFrameListener, 0);
+			}else{
+				invalidate();
+			}
+		}
+	}
+	
+	/**
+	 * 漂流模式下推进一帧，设置了性能指标监听器的话统计碰撞检测的耗时，每秒回调一次
+	 * @param frameTime 这一帧的时间，单位毫秒
+	 */
+	private void stepFlow(long frameTime){
+		boolean metrics = getOnCycleMetricsListener() != null;
+		if(metrics && cycleMetrics.type == 0){
+			startCycleMetrics(CycleMetrics.TYPE_FLOW);
+		}
+		keywordFlow.step(frameTime, getContainerWidth(), getContainerHeight(), getFlowFade(), getRandom(), metrics ? cycleMetrics : null);
+		if(metrics){
+			cycleMetrics.frameCount++;
+			if(frameTime - cycleMetricsStartTime >= 1000){
+				reportCycleMetrics();
+			}
+		}
+	}
+	
+	/**
+	 * 漂流模式下关键字淡入淡出的速度，和过渡动画用同样的时长
+	 * @return 透明度每秒变化多少
+	 */
+	private float getFlowFade(){
+		return 1000f / Math.max(getAnimationDuration(), 1);
+	}
+	
+	/**
+	 * 获取图集中每个区域四周为阴影留出的空白
+	 * @return 空白，单位像素
+	 */
+	private int getAtlasPadding(){
+		return (int) Math.ceil(getTextShadowRadius() + Math.max(Math.abs(getTextShadowDX()), Math.abs(getTextShadowDY()))) + 1;
+	}
+	
+	/**
+	 * 获取进入动画和退出动画中最大的缩放比例
+	 * @return 最大的缩放比例，不小于1
+	 */
+	private float getAnimationMaxScale(){
+		return Math.max(inAnimationSpec.getMaxScale(), outAnimationSpec.getMaxScale());
+	}
+	
+	/**
+	 * 获取关键字绘制到图集上时的放大比例，按动画中最大的缩放比例放大，放大的帧也不会模糊
+	 * @return 放大比例
+	 */
+	private float getAtlasScale(){
+		return Math.min(getAnimationMaxScale(), KeywordAtlas.MAX_SCALE);
+	}
+	
+	/**
+	 * 是否由容器自己绘制关键字
+	 * @return 画布模式或图集模式
+	 */
+	private boolean isCanvasRenderMode(){
+		return getRenderMode() == RenderMode.CANVAS || getRenderMode() == RenderMode.ATLAS;
+	}
+	
+	@Override
+	public boolean onTouchEvent(MotionEvent event) {
+		//画布模式和漂流模式下通过命中测试找到被点击的关键字
+		if((isCanvasRenderMode() && canvasKeywordVisible) || keywordFlow.isRunning()){
+			switch(event.getAction()){
+				case MotionEvent.ACTION_DOWN : 
+					touchedKeyword = findKeyword(event.getX(), event.getY());
+					if(touchedKeyword != null){
+						return true;
+					}
+					break;
+				case MotionEvent.ACTION_MOVE : 
+					if(touchedKeyword != null){
+						return true;
+					}
+					break;
+				case MotionEvent.ACTION_UP : 
+					Keyword keyword = touchedKeyword;
+					touchedKeyword = null;
+					if(keyword != null && keyword == findKeyword(event.getX(), event.getY())){
+						playSoundEffect(SoundEffectConstants.CLICK);
+						if(getOnKeywordClickListener() != null){
+							getOnKeywordClickListener().onKeywordClickListener(keyword.getName());
+						}
+						return true;
+					}
+					break;
+				case MotionEvent.ACTION_CANCEL : 
+					touchedKeyword = null;
+					break;
+			}
+		}
+		return super.onTouchEvent(event);
+	}
+	
+	/**
+	 * 画布模式下查找包含给定坐标的关键字，后绘制的优先，漂流期间按照漂流场中的当前位置查找
+	 * @param x X轴坐标
+	 * @param y Y轴坐标
+	 * @return 包含给定坐标的关键字，没有的话返回null
+	 */
+	private Keyword findKeyword(float x, float y){
+		if(keywordFlow.isRunning() && keywordFlow.isInitialized()){
+			return keywordFlow.findKeyword(x, y);
+		}
+		for(int w = displayKeywordList.size() - 1; w >= 0; w--){
+			Keyword keyword = displayKeywordList.get(w);
+			if(x >= keyword.getLeftMargin() && x < keyword.getRightMargin() && y >= keyword.getTopMargin() && y < keyword.getBottomMargin()){
+				return keyword;
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * 将给定的关键字绑定到给定的文本视图上
+	 * @param textView 给定的文本视图
+	 * @param keyword 给定的关键字
+	 */
+	private void bindTextView(TextView textView, Keyword keyword){
+		//如果是复用的视图，先清除上次的动画
+		textView.clearAnimation();
+		//换行的关键字显示插入了换行符的文字，布局参数的宽、高固定为测量的尺寸，TextView不会再自己断行
+		textView.setText(keyword.getWrappedText() != null ? keyword.getWrappedText().getBrokenText() : keyword.getName());
+		textView.setTextSize(TypedValue.COMPLEX_UNIT_PX, keyword.getTextSize());
+		textView.setTextColor(keyword.getTextColor());
+		textView.setShadowLayer(getTextShadowRadius(), getTextShadowDX(), getTextShadowDY(), getTextShadowColor());
+		textView.setClickable(true);
+		textView.setTag(keyword);
+	}
+	
+	/**
+	 * 获取给定的关键字在本轮动画中要执行的动画，同一个象限的关键字共用一个动画，本轮第一次取出时初始化并计入正在执行的动画个数
+	 * @param keyword 给定的关键字
+	 * @param transition TRANSITION_IN或TRANSITION_OUT
+	 * @return 关键字所在象限的进入动画或退出动画
+	 */
+	private QuadrantAnimation obtainQuadrantAnimation(Keyword keyword, int transition){
+		int quadrant = getQuadrant(keyword);
+		QuadrantAnimation quadrantAnimation = transition == TRANSITION_OUT ? outQuadrantAnimations[quadrant] : inQuadrantAnimations[quadrant];
+		int index = transition == TRANSITION_OUT ? QUADRANT_COUNT + quadrant : quadrant;
+		if(!usedQuadrants[index]){
+			usedQuadrants[index] = true;
+			runningAnimationSetCount++;
+			//每个象限的动画本轮只初始化一次，从第一帧开始计时
+			quadrantAnimation.start(getContainerWidth(), getContainerHeight(), Animation.START_ON_FIRST_FRAME);
+		}
+		return quadrantAnimation;
+	}
+	
+	/**
+	 * 获取给定的关键字所在的象限
+	 * @param keyword 给定的关键字
+	 * @return 0～3分别是第1～4象限，正好在X轴或Y轴上时返回KeywordLayoutEngine.QUADRANT_AXIS
+	 */
+	private int getQuadrant(Keyword keyword){
+		return KeywordLayoutEngine.getQuadrant(keyword.getLeftMargin(), keyword.getTopMargin(), getCenterXAxis(), getCenterYAxis());
+	}
+	
+	/**
+	 * 在开始新一轮动画之前重置给定方向的所有动画，动画的配置有变化的话先重新创建
+	 * @param in true：进入动画；false：退出动画
+	 */
+	private void resetAnimationSets(boolean in){
+		if(animationSetsDirty){
+			buildAnimationSets();
+		}
+		QuadrantAnimation[] quadrantAnimations = in ? inQuadrantAnimations : outQuadrantAnimations;
+		for(int w = 0; w < quadrantAnimations.length; w++){
+			quadrantAnimations[w].reset();
+			usedQuadrants[in ? w : QUADRANT_COUNT + w] = false;
+		}
+		runningAnimationSetCount = 0;
+	}
+	
+	/**
+	 * 为每个象限创建进入动画和退出动画，只在动画的配置有变化时执行
+	 */
+	private void buildAnimationSets(){
+		for(int w = 0; w < QUADRANT_COUNT; w++){
+			//第1、3象限从左边进入，第2、4象限从右边进入；第1、2象限从上边进入，第3、4象限从下边进入
+			float displacementX = KeywordLayoutEngine.getDirectionX(w) * getDisplacement();
+			float displacementY = KeywordLayoutEngine.getDirectionY(w) * getDisplacement();
+			inQuadrantAnimations[w] = buildQuadrantAnimation(inAnimationSpec, displacementX, 0, displacementY, 0, inAnimationListener);
+			outQuadrantAnimations[w] = buildQuadrantAnimation(outAnimationSpec, 0, displacementX, 0, displacementY, outAnimationListener);
+		}
+		animationSetsDirty = false;
+	}
+	
+	/**
+	 * 按给定的配置创建一个象限的动画，它的三个实例各自创建子动画，互不共用
+	 * @return 一个象限的动画
+	 */
+	private QuadrantAnimation buildQuadrantAnimation(KeywordAnimationSpec animationSpec, float fromXDelta, float toXDelta, float fromYDelta, float toYDelta, AnimationListener animationListener){
+		AnimationSet animationSet = animationSpec.build(getAnimationDuration(), getInterpolator(), fromXDelta, toXDelta, fromYDelta, toYDelta);
+		animationSet.setAnimationListener(animationListener);
+		return new QuadrantAnimation(animationSet, 
+				animationSpec.build(getAnimationDuration(), getInterpolator(), fromXDelta, toXDelta, fromYDelta, toYDelta), 
+				animationSpec.build(getAnimationDuration(), getInterpolator(), fromXDelta, toXDelta, fromYDelta, toYDelta));
+	}
+	
+	/**
+	 * 本轮所有的动画都执行完毕
+	 * @param in true：进入动画；false：退出动画
+	 */
+	private void onAnimationSetsEnd(boolean in){
+		//增量更新的话在下一帧移除被删除的关键字，以免在绘制过程中修改子视图
+		if(updatingKeywords){
+			postOnAnimationCompat(finishKeywordUpdateRunnable);
+			return;
+		}
+		for(int w = 0; w < getChildCount(); w++){
+			View childView = getChildAt(w);
+			childView.setClickable(in);
+			if(!in){
+				childView.setVisibility(View.GONE);
+			}
+		}
+		finishTransition();
+	}
+
+	@Override
+	protected Parcelable onSaveInstanceState() {
+		SavedState savedState = new SavedState(super.onSaveInstanceState());
+		//只保存当前的关键字和容器尺寸对应的那一个布局，重建之后同样的关键字和容器尺寸还是同样的布局；布局缓存可能是共享的，不能整个保存
+		if(getKeywordLayoutCache() != null && getKeywordList().size() > 0){
+			String[] names = new String[getKeywordList().size()];
+			for(int w = 0; w < names.length; w++){
+				names[w] = getKeywordList().get(w).getName();
+			}
+			KeywordLayoutCache keywordLayoutCache = new KeywordLayoutCache(1);
+			if(keywordLayoutCache.putFrom(getKeywordLayoutCache(), names, getContainerWidth(), getContainerHeight(), getLayoutStyleHash())){
+				savedState.keywordLayoutCache = keywordLayoutCache;
+			}
+		}
+		return savedState;
+	}
+
+	@Override
+	protected void onRestoreInstanceState(Parcelable state) {
+		if(!(state instanceof SavedState)){
+			super.onRestoreInstanceState(state);
+			return;
+		}
+		SavedState savedState = (SavedState) state;
+		super.onRestoreInstanceState(savedState.getSuperState());
+		if(getKeywordLayoutCache() != null && savedState.keywordLayoutCache != null){
+			getKeywordLayoutCache().putAll(savedState.keywordLayoutCache);
+		}
+	}
+
+	@Override
+	protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+		super.onSizeChanged(w, h, oldw, oldh);
+		if(w == getContainerWidth() && h == getContainerHeight()){
+			return;
+		}
+		//容器尺寸变化的话之前计算的布局全部过期
+		layoutGeneration++;
+		//记录当前容器的宽和高
+		setContainerWidth(w);
+		setContainerHeight(h);
+		//设置X、Y轴中心坐标
+		setCenterXAxis(getContainerWidth() >> 1);
+		setCenterYAxis(getContainerHeight() >> 1);
+		//已有的关键字要按照新的尺寸重新布局，正在显示并且没有动画的话重新执行进入动画
+		if(getKeywordList().size() > 0){
+			setKeywordHasUpdate(true);
+			if(!isInAnimation() && !transitionRunning){
+				setInAnimation(true);
+			}
+		}
+		invalidateKeywordLayout();
+	}
+	
+	@Override
+	protected void onAttachedToWindow() {
+		super.onAttachedToWindow();
+		//父视图滚动时检查是否被滚出了可见区域
+		getViewTreeObserver().addOnScrollChangedListener(visibilityScrollListener);
+		updateSuspended();
+		//分离期间其它线程发布的关键字列表可能没有机会被取走
+		if(pendingKeywordSnapshot.get() != null){
+			post(keywordSnapshotRunnable);
+		}
+	}
+	
+	@Override
+	protected void onDetachedFromWindow() {
+		super.onDetachedFromWindow();
+		getViewTreeObserver().removeOnScrollChangedListener(visibilityScrollListener);
+		//分离期间一直暂停
+		setSuspended(true);
+		//释放图集，重新附加之后绘制时再创建
+		keywordAtlas.release();
+	}
+	
+	@Override
+	protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+		super.onLayout(changed, left, top, right, bottom);
+		//位置或尺寸变化之后可能变得可见或不可见了
+		if(changed){
+			updateSuspended();
+		}
+		checkKeywordViewHeights();
+	}
+	
+	/**
+	 * 检查每个关键字视图的文字实际需要的高度是否和布局时测量的高度一样，不一样说明TextView的排版和测量不一致，显示时会被裁剪或者留白
+	 */
+	private void checkKeywordViewHeights(){
+		for(int w = 0; w < getChildCount(); w++){
+			View childView = getChildAt(w);
+			if(childView.getVisibility() == View.GONE || !(childView instanceof TextView) || !(childView.getTag() instanceof Keyword)){
+				continue;
+			}
+			TextView textView = (TextView) childView;
+			if(textView.getLayout() == null){
+				continue;
+			}
+			Keyword keyword = (Keyword) textView.getTag();
+			int textHeight = textView.getLayout().getHeight() + textView.getCompoundPaddingTop() + textView.getCompoundPaddingBottom();
+			if(textHeight != keyword.getHeight()){
+				Log.w(LOG_TAG, "Keyword view height " + textHeight + " does not match the measured height " + keyword.getHeight() + ": " + keyword.getName());
+			}
+		}
+	}
+	
+	@Override
+	protected void onVisibilityChanged(View changedView, int visibility) {
+		super.onVisibilityChanged(changedView, visibility);
+		updateSuspended();
+	}
+	
+	@Override
+	protected void onWindowVisibilityChanged(int visibility) {
+		super.onWindowVisibilityChanged(visibility);
+		updateSuspended();
+	}
+	
+	/**
+	 * 检查容器是否可见并据此暂停或恢复
+	 */
+	private void updateSuspended(){
+		//在父类的构造函数中被调用时还没有初始化
+		if(visibleRect == null){
+			return;
+		}
+		setSuspended(!isKeywordVisible());
+	}
+	
+	/**
+	 * 容器是否可见。所在的窗口、自己和所有的父视图都可见，并且没有被完全滚出父视图的可见区域
+	 * @return 容器是否可见
+	 */
+	private boolean isKeywordVisible(){
+		return getWindowVisibility() == View.VISIBLE && isShown() && getGlobalVisibleRect(visibleRect);
+	}
+	
+	/**
+	 * 暂停或恢复。暂停时正在执行的过渡动画直接跳到结束状态，排队等待的过渡动画、布局检查和轮播都停下来；恢复时按照isInAnimation()从暂停时的阶段继续
+	 * @param suspended 是否暂停
+	 */
+	private void setSuspended(boolean suspended){
+		if(this.suspended == suspended){
+			return;
+		}
+		this.suspended = suspended;
+		if(suspended){
+			completeTransition();
+			//漂流模式下结束本轮统计并停止推进
+			if(keywordFlow.isRunning()){
+				reportCycleMetrics();
+				if(isUseSharedFrameClock()){
+					resources.getFrameClock().remove(flowFrameListener);
+				}
+			}
+			removeCallbacks(pendingTransitionRunnable);
+			pendingTransitionScheduled = false;
+			removeCallbacks(layoutPassRunnable);
+			layoutPassScheduled = false;
+			cancelCarouselStep();
+		}else{
+			//暂停期间排队的过渡动画和关键字的变化在恢复之后处理，漂流模式下继续漂流
+			schedulePendingTransition();
+			if(keywordFlow.isRunning()){
+				keywordFlow.resetFrameTime();
+				invalidate();
+			}
+			invalidateKeywordLayout();
+			//接下来该执行进入动画的话立即继续轮播，否则重新停留一段时间再退出
+			if(carouselRunning){
+				scheduleCarouselStep(isInAnimation() ? 0 : getCarouselDwellTime());
+			}
+		}
+	}
+	
+	/**
+	 * 是否因为不可见而暂停了，分离、隐藏、所在的窗口不可见或者被完全滚出父视图的可见区域时自动暂停
+	 * @return 是否暂停了
+	 */
+	public boolean isSuspended(){
+		return suspended;
+	}
+	
+	/**
+	 * 让正在执行的过渡动画直接跳到结束状态并回调监听器，不可见时没有必要再绘制中间的帧
+	 */
+	private void completeTransition(){
+		if(!transitionRunning){
+			return;
+		}
+		if(isCanvasRenderMode()){
+			//先清零计数，以免动画的结束回调再完成一次
+			runningAnimationSetCount = 0;
+			for(int w = 0; w < canvasAnimationList.size(); w++){
+				canvasAnimationList.set(w, null);
+			}
+			if(canvasOutAnimation){
+				canvasKeywordVisible = false;
+			}
+			invalidate();
+			onAnimationSetsEnd(transitionIn);
+		}else if(transitionAnimator != null && transitionAnimator.isRunning()){
+			//跳到最后一帧，结束回调会完成本轮动画
+			transitionAnimator.end();
+		}else{
+			//先清零计数，以免清除动画时的结束回调再完成一次
+			runningAnimationSetCount = 0;
+			for(int w = 0; w < getChildCount(); w++){
+				getChildAt(w).clearAnimation();
+			}
+			onAnimationSetsEnd(transitionIn);
+		}
+	}
+	
+	/**
+	 * 容器尺寸或关键字发生了变化，在下一帧检查是否需要重新布局并执行进入动画，同一帧内的多次变化只检查一次
+	 */
+	private void invalidateKeywordLayout(){
+		if(!layoutPassScheduled){
+			layoutPassScheduled = true;
+			postOnAnimationCompat(layoutPassRunnable);
+		}
+	}
+	
+	/**
+	 * 检查是否需要重新布局并执行进入动画，只在没有暂停、容器尺寸已知、空闲并且接下来该执行进入动画时处理，否则等下一次过渡动画处理
+	 */
+	private void runLayoutPass(){
+		layoutPassScheduled = false;
+		if(suspended || keywordFlow.isRunning() || getContainerWidth() <= 0 || getContainerHeight() <= 0 || !isInAnimation() || transitionRunning || !transitionQueue.isEmpty()){
+			return;
+		}
+		//取走其它线程发布的关键字列表
+		applyKeywordSnapshot(true);
+		//按过渡动画应用关键字流的话在进入前应用
+		if(getFeedApplyMode() == FeedApplyMode.TRANSITION){
+			applyKeywordFeed(true);
+		}
+		//如果关键字有更新，就更新视图
+		applyPendingKeywordUpdate();
+		//绑定时要求跳过进入动画的话直接显示，否则执行进入动画
+		if(skipInAnimation){
+			skipInAnimation = false;
+			showWithoutAnimation();
+		}else{
+			executeInAnimation();
+		}
+	}
+	
+	/**
+	 * 向关键字流中增加一个关键字，权重为1，只能在主线程调用
+	 * @param keywordName 关键字名字
+	 * @return false：缓冲区满了并且溢出策略是丢弃最新的
+	 */
+	public boolean offerKeyword(String keywordName){
+		return offerKeyword(keywordName, 1);
+	}
+	
+	/**
+	 * 向关键字流中增加一个关键字，只能在主线程调用，缓冲区没有同步，其它线程请用putKeywords()。操作先放入缓冲区，按照getFeedApplyMode()每帧或者每次进入时一次性应用，不管来了多少操作每帧最多重新布局一次
+	 * <br>已有的关键字会被移到最后并更新权重，超出getKeywordListMaxLength()的话最早的关键字被挤掉
+	 * @param keywordName 关键字名字
+	 * @param weight 权重
+	 * @return false：缓冲区满了并且溢出策略是丢弃最新的
+	 */
+	public boolean offerKeyword(String keywordName, float weight){
+		boolean result = keywordFeedBuffer.add(KeywordFeedBuffer.OP_OFFER, keywordName, weight, getFeedOverflowPolicy());
+		scheduleKeywordFeed();
+		return result;
+	}
+	
+	/**
+	 * 从关键字流中删除一个关键字，只能在主线程调用，缓冲区没有同步，其它线程请用putKeywords()。和offerKeyword()一样先放入缓冲区
+	 * @param keywordName 关键字名字
+	 * @return false：缓冲区满了并且溢出策略是丢弃最新的
+	 */
+	public boolean removeKeyword(String keywordName){
+		boolean result = keywordFeedBuffer.add(KeywordFeedBuffer.OP_REMOVE, keywordName, 0, getFeedOverflowPolicy());
+		scheduleKeywordFeed();
+		return result;
+	}
+	
+	/**
+	 * 按帧应用的话安排在下一帧应用关键字流，同一帧内只安排一次
+	 */
+	private void scheduleKeywordFeed(){
+		if(getFeedApplyMode() == FeedApplyMode.FRAME && !feedApplyScheduled){
+			feedApplyScheduled = true;
+			postOnAnimationCompat(feedApplyRunnable);
+		}
+	}
+	
+	/**
+	 * 一次性应用关键字流缓冲区中所有的操作，已有的关键字沿用原来的对象
+	 * @param inTransition 是否是在过渡动画中应用的，是的话只标记更新，由过渡动画处理，否则和putKeywords()一样处理
+	 */
+	private void applyKeywordFeed(boolean inTransition){
+		if(keywordFeedBuffer.size() == 0){
+			return;
+		}
+		//按顺序合并所有的操作，LinkedHashMap保留先后顺序，最早的在前面
+		for(int w = 0; w < getKeywordList().size(); w++){
+			Keyword keyword = getKeywordList().get(w);
+			feedKeywordMap.put(keyword.getName(), keyword);
+		}
+		for(int w = 0; w < keywordFeedBuffer.size(); w++){
+			String name = keywordFeedBuffer.getName(w);
+			Keyword keyword = feedKeywordMap.remove(name);
+			if(keywordFeedBuffer.getOp(w) == KeywordFeedBuffer.OP_OFFER){
+				if(keyword == null){
+					keyword = new Keyword(name);
+				}
+				keyword.setWeight(keywordFeedBuffer.getWeight(w));
+				feedKeywordMap.put(name, keyword);
+			}
+		}
+		keywordFeedBuffer.clear();
+		
+		//超出最大长度的话挤掉最早的
+		int overflow = feedKeywordMap.size() - getKeywordListMaxLength();
+		for(Keyword keyword : feedKeywordMap.values()){
+			if(overflow > 0){
+				overflow--;
+			}else{
+				feedKeywordList.add(keyword);
+			}
+		}
+		feedKeywordMap.clear();
+		//两种替换方式都是复制到关键字列表中，合并结果的列表用完就可以清空
+		if(inTransition){
+			replaceKeywordList(feedKeywordList);
+		}else{
+			applyKeywordList(feedKeywordList);
+		}
+		feedKeywordList.clear();
+	}
+	
+	/**
+	 * 获取关键字流中因为缓冲区满了而丢弃的操作的个数
+	 * @return 累计丢弃的操作的个数
+	 */
+	public int getFeedDroppedCount(){
+		return keywordFeedBuffer.getDroppedCount();
+	}
+	
+	/**
+	 * 为列表项绑定关键字，适合在Adapter中调用。已经显示的子视图直接复用，同样的关键字和容器尺寸之前布局过的话直接使用缓存的布局，不需要重新测量
+	 * <br>设置的共享资源正在快速滚动的话不执行进入动画，直接显示；同一个id再次绑定同样的关键字时什么都不做
+	 * @param keywordNameList 关键字名字列表，最多只能放入getKeywordListMaxLength()个
+	 * @param stableId 数据的id，一般是Adapter.getItemId()
+	 */
+	public void bind(List<String> keywordNameList, long stableId){
+		int count = Math.min(keywordNameList.size(), getKeywordListMaxLength());
+		if(stableId != NO_ID && stableId == boundId && isKeywordNamesEqual(keywordNameList, count)){
+			return;
+		}
+		unbind();
+		boundId = stableId;
+		
+		//只复用bind()自己创建的关键字对象，只改名字和权重，不够的再创建；调用者放入的关键字对象和列表都不会被修改
+		boundKeywordList.clear();
+		for(int w = 0; w < count; w++){
+			Keyword keyword;
+			if(w < boundKeywordPool.size()){
+				keyword = boundKeywordPool.get(w);
+				keyword.setName(keywordNameList.get(w));
+				keyword.setWeight(1);
+			}else{
+				keyword = new Keyword(keywordNameList.get(w));
+				boundKeywordPool.add(keyword);
+			}
+			boundKeywordList.add(keyword);
+		}
+		keywordList = boundKeywordList;
+		layoutGeneration++;
+		if(count > 0){
+			setKeywordHasUpdate(true);
+		}
+		setAllowShowAnimation(true);
+		boolean animate = resources == null || !resources.isFastScrolling();
+		
+		//尺寸已知的话立即更新视图，否则等尺寸确定之后在布局检查中处理
+		if(getContainerWidth() > 0 && getContainerHeight() > 0 && count > 0){
+			applyPendingKeywordUpdate();
+			if(animate && !suspended){
+				executeInAnimation();
+			}else{
+				showWithoutAnimation();
+			}
+		}else{
+			skipInAnimation = !animate;
+			if(count > 0){
+				invalidateKeywordLayout();
+			}
+		}
+	}
+	
+	/**
+	 * 解除绑定，释放绑定期间的临时状态：停止轮播和漂流，取消排队的过渡动画和正在计算的布局，正在执行的动画直接结束，隐藏所有的关键字
+	 * <br>子视图保留在容器中，下次绑定时直接复用
+	 */
+	public void unbind(){
+		boundId = NO_ID;
+		skipInAnimation = false;
+		stopCarousel();
+		stopFlow();
+		cancelPendingTransitions();
+		completeTransition();
+		//正在后台计算的布局作废
+		layoutGeneration++;
+		pendingKeywordLayout = null;
+		removeCallbacks(layoutPassRunnable);
+		layoutPassScheduled = false;
+		
+		for(int w = 0; w < getChildCount(); w++){
+			View childView = getChildAt(w);
+			childView.clearAnimation();
+			childView.setVisibility(View.GONE);
+		}
+		canvasKeywordVisible = false;
+		touchedKeyword = null;
+		setInAnimation(true);
+		invalidate();
+	}
+	
+	/**
+	 * 获取当前绑定的数据的id
+	 * @return 当前绑定的数据的id，没有绑定的话返回NO_ID
+	 */
+	public long getBoundId(){
+		return boundId;
+	}
+	
+	/**
+	 * 当前的关键字列表是否和给定的名字列表的前count个一样
 	 */
-	private boolean executeOutAnimation(){
-		boolean result = false;
-		int childViewCount = getChildCount();
-		if(getContainerWidth() > 0 && getContainerHeight() > 0 && childViewCount > 0 && isAllowShowAnimation() && !isInAnimation()){
-			//遍历容器内所有的子视图让其执行退出动画并在动画执行完毕时将自己隐藏
-			for(int w  = 0; w < childViewCount; w++){
-				final TextView textView = (TextView) getChildAt(w);
-				textView.setVisibility(View.VISIBLE);
-				AnimationSet animationSet = getOutAnimation((Keyword)textView.getTag());
-				animationSet.setAnimationListener(new AnimationListener() {
-					@Override
-					public void onAnimationStart(Animation animation) {
-					}
-					
-					@Override
-					public void onAnimationRepeat(Animation animation) {
-					}
-					
-					@Override
-					public void onAnimationEnd(Animation animation) {
-						textView.setClickable(false);
-						textView.setVisibility(View.GONE);
-					}
-				});
-				textView.startAnimation(animationSet);
+	private boolean isKeywordNamesEqual(List<String> keywordNameList, int count){
+		if(getKeywordList().size() != count){
+			return false;
+		}
+		for(int w = 0; w < count; w++){
+			if(!getKeywordList().get(w).getName().equals(keywordNameList.get(w))){
+				return false;
 			}
-			
-			//设置返回结果为成功
-			result = true;
-			//设置不允许显示动画
-			setAllowShowAnimation(false);
-			//更新上次显示动画时间
-			setLastShowAnimationTime(System.currentTimeMillis());
-			//标记为接下来该执行进入动画了
-			setInAnimation(true);
 		}
-		return result;
+		return true;
 	}
 	
 	/**
-	 * 修正左外边距
-	 * @param keyword
+	 * 不执行进入动画，直接显示所有已经布局好的关键字
+	 * @return 显示是否成功。false：尚未获取容器的宽和高、没有已经布局好的关键字
 	 */
-	private void reviseLeftMargin(Keyword keyword){
-		//如果当前关键字的左外边距小于左内边距
-		if(keyword.getLeftMargin() < getLeftPadding()){
-			keyword.setLeftMargin(getAverageWidth() + getRandom().nextInt(getAverageWidth() >> 1));
-		//如果当前关键字的右外边距超出了当前容器的右内边距
-		}else if(keyword.getRightMargin() > getRightPadding()){
-			keyword.setLeftMargin(getRightPadding() - getRandom().nextInt(getAverageWidth() >> 1) - keyword.getWidth());
+	private boolean showWithoutAnimation(){
+		if(getContainerWidth() <= 0 || getContainerHeight() <= 0 || getDisplayKeywordCount() == 0){
+			return false;
+		}
+		if(isCanvasRenderMode()){
+			for(int w = 0; w < canvasAnimationList.size(); w++){
+				canvasAnimationList.set(w, null);
+			}
+			canvasKeywordVisible = true;
+			invalidate();
+		}else{
+			for(int w = 0; w < getChildCount(); w++){
+				View childView = getChildAt(w);
+				childView.clearAnimation();
+				childView.setVisibility(View.VISIBLE);
+				childView.setClickable(true);
+			}
 		}
+		setAllowShowAnimation(false);
+		setInAnimation(false);
+		return true;
 	}
 	
 	/**
-	 * 根据给定的关键字获取用于显示关键字的文本视图
-	 * @param keyword 给定的关键字
-	 * @return 用于显示关键字的文本视图
+	 * 从给定的关键字名字数组中取出最多getKeywordsMaxLength()个关键字名字放入关键字列表里，可以在任意线程调用
+	 * @param keywordNames 关键字名字数组，最多只能放入getKeywordsMaxLength()个
 	 */
-	private TextView getTextView(Keyword keyword){
-		TextView textView = new TextView(getContext());
-		textView.setText(keyword.getName());
-		textView.setTextSize(TypedValue.COMPLEX_UNIT_SP, getTextSize(keyword));
-		textView.setTextColor(getTextColor(keyword));
-		textView.setShadowLayer(getTextShadowRadius(), getTextShadowDX(), getTextShadowDY(), getTextShadowColor());
-		textView.setGravity(Gravity.CENTER);
-		textView.setTag(keyword);
-		return textView;
+	public void putKeywords(String... keywordNames) {
+		putKeywords(Arrays.asList(keywordNames));
 	}
 	
 	/**
-	 * 根据给定的关键字获取其文字大小
-	 * @param keyword 给定的关键字
-	 * @return 文字大小
+	 * 从给定的关键字名字列表中取出最多getKeywordsMaxLength()个关键字名字放入关键字列表里，可以在任意线程调用，在其它线程调用的话下次过渡动画时生效
+	 * @param keywordNameList 关键字名字列表，最多只能放入getKeywordsMaxLength()个
 	 */
-	private int getTextSize(Keyword keyword){
-		return getTextSizeMin() + getRandom().nextInt(getTextSizeMax() - getTextSizeMin());
+	public void putKeywords(List<String> keywordNameList) {
+		//不在主线程的话生成新的关键字交给主线程
+		if(!isMainThread()){
+			int size = keywordNameList.size() < getKeywordListMaxLength() ? keywordNameList.size() : getKeywordListMaxLength();
+			List<Keyword> newKeywordList = new ArrayList<Keyword>(size);
+			for(int w = 0; w < size; w++){
+				newKeywordList.add(new Keyword(keywordNameList.get(w)));
+			}
+			publishKeywordSnapshot(newKeywordList);
+			return;
+		}
+		
+		pendingKeywordSnapshot.set(null);
+		//增量更新时名字相同的关键字沿用原来的对象，以便保留其位置和视图
+		Map<String, Keyword> oldKeywordMap = isIncrementalUpdateEnabled() ? buildKeywordMap() : null;
+		List<Keyword> newKeywordList = new ArrayList<Keyword>();
+		for (int w = 0; w < (keywordNameList.size() < getKeywordListMaxLength() ? keywordNameList.size() : getKeywordListMaxLength()); w++) {
+			Keyword keyword = oldKeywordMap != null ? oldKeywordMap.remove(keywordNameList.get(w)) : null;
+			newKeywordList.add(keyword != null ? keyword : new Keyword(keywordNameList.get(w)));
+		}
+		applyKeywordList(newKeywordList);
 	}
 	
 	/**
-	 * 很据给定的关键字获取其文字颜色
-	 * @param keyword 给定的关键字
-	 * @return 文字颜色
+	 * 从给定的关键字数组中取出最多getKeywordsMaxLength()个关键字名字放入关键字列表里，可以在任意线程调用
+	 * @param keywords 关键字数组，最多只能放入getKeywordsMaxLength()个
 	 */
-	private int getTextColor(Keyword keyword){
-		return 0xff000000 | getRandom().nextInt(0x0077ffff);
+	public void putKeywords(Keyword... keywords) {
+		putKeywordList(Arrays.asList(keywords));
 	}
 	
 	/**
-	 * 根据给定的关键字获取进入动画
-	 * @param keyword 给定的关键字
-	 * @return 进入动画
-	 */
-	private AnimationSet getInAnimation(Keyword keyword){
-		AnimationSet animationSet = new AnimationSet(true);
-		//如果插值器不为null
-		if(getInterpolator() != null){
-			animationSet.setInterpolator(getInterpolator());
-		}
-		//如果透明度动画不为null
-		if(getInAnimationAlpha() != null){
-			animationSet.addAnimation(getInAnimationAlpha());
-		}
-		//如果缩放动画不为null
-		if(getInAnimationScale() != null){
-			animationSet.addAnimation(getInAnimationScale());
-		}
-		//如果旋转动画不为null
-		if(getInAnimationRotate() != null){
-			animationSet.addAnimation(getInAnimationRotate());
-		}
-		TranslateAnimation translateAnimation = null;
-		//如果是在第1象限
-		if(keyword.getLeftMargin() < getCenterXAxis() && keyword.getTopMargin() < getCenterYAxis()){
-			translateAnimation = new TranslateAnimation(-getDisplacement(), 0, -getDisplacement(), 0);
-		//如果是在第2象限
-		}else if(keyword.getLeftMargin() > getCenterXAxis() && keyword.getTopMargin() < getCenterYAxis()){
-			translateAnimation = new TranslateAnimation(getDisplacement(), 0, -getDisplacement(), 0);
-		//如果是在第3象限
-		}else if(keyword.getLeftMargin() < getCenterXAxis() && keyword.getTopMargin() > getCenterYAxis()){
-			translateAnimation = new TranslateAnimation(-getDisplacement(), 0, getDisplacement(), 0);
-		//如果是在第4象限
-		}else if(keyword.getLeftMargin() > getCenterXAxis() && keyword.getTopMargin() > getCenterYAxis()){
-			translateAnimation = new TranslateAnimation(getDisplacement(), 0, getDisplacement(), 0);
-		}
-		//如果位移动画不为null
-		if(translateAnimation != null){
-			translateAnimation.setDuration(getAnimationDuration());
-			animationSet.addAnimation(translateAnimation);
-		}
-		return animationSet;
-	}
-	
-	/**
-	 * 根据给定的关键字获取退出动画
-	 * @param keyword 给定的关键字
-	 * @return 退出动画
+	 * 从给定的关键字列表中取出最多getKeywordsMaxLength()个关键字名字放入关键字列表里，可以在任意线程调用，在其它线程调用的话下次过渡动画时生效，只使用给定的关键字的名字和权重
+	 * @param keywordsList 关键字列表，最多只能放入getKeywordsMaxLength()个
 	 */
-	private AnimationSet getOutAnimation(Keyword keyword){
-		AnimationSet animationSet = new AnimationSet(true);
-		//如果插值器不为null
-		if(getInterpolator() != null){
-			animationSet.setInterpolator(getInterpolator());
-		}
-		//如果透明度动画不为null
-		if(getOutAnimationAlpha() != null){
-			animationSet.addAnimation(getOutAnimationAlpha());
-		}
-		//如果缩放动画不为null
-		if(getOutAnimationScale() != null){
-			animationSet.addAnimation(getOutAnimationScale());
-		}
-		//如果旋转动画不为null
-		if(getOutAnimationRotate() != null){
-			animationSet.addAnimation(getOutAnimationRotate());
+	public void putKeywordList(List<Keyword> keywordsList) {
+		int size = keywordsList.size() < getKeywordListMaxLength() ? keywordsList.size() : getKeywordListMaxLength();
+		//不在主线程的话只复制名字和权重交给主线程，给定的关键字之后在调用者的线程中被修改也不受影响
+		if(!isMainThread()){
+			List<Keyword> newKeywordList = new ArrayList<Keyword>(size);
+			for(int w = 0; w < size; w++){
+				Keyword keyword = keywordsList.get(w);
+				newKeywordList.add(new Keyword(keyword.getName(), keyword.getWeight()));
+			}
+			publishKeywordSnapshot(newKeywordList);
+			return;
 		}
 		
-		TranslateAnimation translateAnimation = null;
-		//如果是在第1象限
-		if(keyword.getLeftMargin() < getCenterXAxis() && keyword.getTopMargin() < getCenterYAxis()){
-			translateAnimation = new TranslateAnimation(0, -getDisplacement(), 0, -getDisplacement());
-		//如果是在第2象限
-		}else if(keyword.getLeftMargin() > getCenterXAxis() && keyword.getTopMargin() < getCenterYAxis()){
-			translateAnimation = new TranslateAnimation(0, getDisplacement(), 0, -getDisplacement());
-		//如果是在第3象限
-		}else if(keyword.getLeftMargin() < getCenterXAxis() && keyword.getTopMargin() > getCenterYAxis()){
-			translateAnimation = new TranslateAnimation(0, -getDisplacement(), 0, getDisplacement());
-		//如果是在第4象限
-		}else if(keyword.getLeftMargin() > getCenterXAxis() && keyword.getTopMargin() > getCenterYAxis()){
-			translateAnimation = new TranslateAnimation(0, getDisplacement(), 0, getDisplacement());
+		pendingKeywordSnapshot.set(null);
+		applyKeywordList(mergeKeywordList(keywordsList, size));
+	}
+	
+	/**
+	 * 增量更新时名字相同的关键字沿用原来的对象，以便保留其位置和视图
+	 * @param keywordsList 新的关键字
+	 * @param size 取前几个
+	 * @return 合并后的关键字列表
+	 */
+	private List<Keyword> mergeKeywordList(List<Keyword> keywordsList, int size){
+		Map<String, Keyword> oldKeywordMap = isIncrementalUpdateEnabled() ? buildKeywordMap() : null;
+		List<Keyword> newKeywordList = new ArrayList<Keyword>(size);
+		for (int w = 0; w < size; w++) {
+			Keyword keyword = oldKeywordMap != null ? oldKeywordMap.remove(keywordsList.get(w).getName()) : null;
+			newKeywordList.add(keyword != null ? keyword : keywordsList.get(w));
 		}
-		//如果位移动画不为null
-		if(translateAnimation != null){
-			translateAnimation.setDuration(getAnimationDuration());
-			animationSet.addAnimation(translateAnimation);
+		return newKeywordList;
+	}
+	
+	/**
+	 * 当前线程是否是主线程
+	 * @return true：是
+	 */
+	private boolean isMainThread(){
+		return Looper.myLooper() == Looper.getMainLooper();
+	}
+	
+	/**
+	 * 发布其它线程生成的关键字列表，只有原来没有等待取走的列表时才通知主线程，所以连续发布多次也只通知一次，主线程只取最新的一个
+	 * @param newKeywordList 新的关键字列表，发布之后不再修改
+	 */
+	private void publishKeywordSnapshot(List<Keyword> newKeywordList){
+		if(pendingKeywordSnapshot.getAndSet(Collections.unmodifiableList(newKeywordList)) == null){
+			post(keywordSnapshotRunnable);
 		}
-		return animationSet;
 	}
-
-	@Override
-	public void onGlobalLayout() {
-		//记录当前容器的宽和高
-		setContainerWidth(getWidth());
-		setContainerHeight(getHeight());
-		//设置X、Y轴中心坐标
-		setCenterXAxis(getContainerWidth() >> 1);
-		setCenterYAxis(getContainerHeight() >> 1);
-		//如果关键字有更新，就更新视图
-		if(isKeywordHasUpdate()){
-			//如果更新视图成功
-			if(updateView()){
-				//设置关键字没有更新
-				setKeywordHasUpdate(false);
-			}
+	
+	/**
+	 * 在主线程取走其它线程发布的关键字列表
+	 * @param inTransition 是否是在过渡动画中取走的，是的话只标记更新，由过渡动画处理，否则和putKeywords()一样处理
+	 */
+	private void applyKeywordSnapshot(boolean inTransition){
+		List<Keyword> snapshot = pendingKeywordSnapshot.getAndSet(null);
+		if(snapshot == null){
+			return;
+		}
+		List<Keyword> newKeywordList = mergeKeywordList(snapshot, snapshot.size());
+		if(inTransition){
+			replaceKeywordList(newKeywordList);
+		}else{
+			applyKeywordList(newKeywordList);
 		}
-		//执行进入动画
-		executeInAnimation();
 	}
 	
 	/**
-	 * 从给定的关键字名字数组中取出最多getKeywordsMaxLength()个关键字名字放入关键字列表里
-	 * @param keywordNames 关键字名字数组，最多只能放入getKeywordsMaxLength()个
+	 * 按名字索引当前的关键字，保留原来的先后顺序
+	 * @return 名字到关键字的映射
 	 */
-	public void putKeywords(String... keywordNames) {
-        getKeywordList().clear();
-		for (int w = 0; w < (keywordNames.length < getKeywordListMaxLength() ? keywordNames.length : getKeywordListMaxLength()); w++) {
-            getKeywordList().add(new Keyword(keywordNames[w]));
-        }
-		setKeywordHasUpdate(true);
+	private Map<String, Keyword> buildKeywordMap(){
+		Map<String, Keyword> keywordMap = new LinkedHashMap<String, Keyword>();
+		for(Keyword keyword : getKeywordList()){
+			keywordMap.put(keyword.getName(), keyword);
+		}
+		return keywordMap;
 	}
 	
 	/**
-	 * 从给定的关键字名字列表中取出最多getKeywordsMaxLength()个关键字名字放入关键字列表里
-	 * @param keywordNameList 关键字名字列表，最多只能放入getKeywordsMaxLength()个
+	 * 用给定的关键字替换关键字列表。增量更新时如果关键字正在显示，就立即执行增量更新，否则等下次进入时再处理
+	 * @param newKeywordList 新的关键字列表
 	 */
-	public void putKeywords(List<String> keywordNameList) {
+	private void applyKeywordList(List<Keyword> newKeywordList){
 		getKeywordList().clear();
-		for (int w = 0; w < (keywordNameList.size() < getKeywordListMaxLength() ? keywordNameList.size() : getKeywordListMaxLength()); w++) {
-            getKeywordList().add(new Keyword(keywordNameList.get(w)));
-        }
-		setKeywordHasUpdate(true);
+		getKeywordList().addAll(newKeywordList);
+		layoutGeneration++;
+		if(isIncrementalUpdateEnabled() && !isKeywordHasUpdate() && displayKeywordList.size() > 0){
+			requestTransition(TransitionQueue.TYPE_UPDATE, null);
+		}else{
+			setKeywordHasUpdate(true);
+			invalidateKeywordLayout();
+		}
 	}
 	
 	/**
-	 * 从给定的关键字数组中取出最多getKeywordsMaxLength()个关键字名字放入关键字列表里
-	 * @param keywords 关键字数组，最多只能放入getKeywordsMaxLength()个
+	 * 从关键字池中取出一页关键字替换关键字列表，下次进入时显示
 	 */
-	public void putKeywords(Keyword... keywords) {
-		getKeywordList().clear();
-		for (int w = 0; w < (keywords.length < getKeywordListMaxLength() ? keywords.length : getKeywordListMaxLength()); w++) {
-            getKeywordList().add(keywords[w]);
-        }
-		setKeywordHasUpdate(true);
+	private void loadKeywordPage(){
+		int pageSize = getKeywordListMaxLength();
+		if(keywordPageIndexes == null || keywordPageIndexes.length < pageSize){
+			keywordPageIndexes = new int[pageSize];
+		}
+		int count = getKeywordPool().nextPage(pageSize, getRandom(), keywordPageIndexes);
+		
+		//增量更新时名字相同的关键字沿用原来的对象，以便保留其位置和视图
+		Map<String, Keyword> oldKeywordMap = isIncrementalUpdateEnabled() ? buildKeywordMap() : null;
+		List<Keyword> newKeywordList = new ArrayList<Keyword>(count);
+		for(int w = 0; w < count; w++){
+			String name = getKeywordPool().get(keywordPageIndexes[w]);
+			Keyword keyword = oldKeywordMap != null ? oldKeywordMap.remove(name) : null;
+			if(keyword == null){
+				keyword = new Keyword(name);
+			}
+			keyword.setWeight(getKeywordPool().getWeight(keywordPageIndexes[w]));
+			newKeywordList.add(keyword);
+		}
+		replaceKeywordList(newKeywordList);
 	}
 	
 	/**
-	 * 从给定的关键字列表中取出最多getKeywordsMaxLength()个关键字名字放入关键字列表里
-	 * @param keywordList 关键字列表，最多只能放入getKeywordsMaxLength()个
-	 * @return 放进去的关键字的个数
+	 * 在过渡动画中用给定的关键字替换关键字列表，只标记更新，由过渡动画处理
+	 * @param newKeywordList 新的关键字列表
 	 */
-	public void putKeywordList(List<Keyword> keywordsList) {
+	private void replaceKeywordList(List<Keyword> newKeywordList){
 		getKeywordList().clear();
-		for (int w = 0; w < (keywordList.size() < getKeywordListMaxLength() ? keywordList.size() : getKeywordListMaxLength()); w++) {
-			getKeywordList().add(keywordList.get(w));
-        }
-		setKeywordHasUpdate(true);
+		getKeywordList().addAll(newKeywordList);
+		layoutGeneration++;
+		if(isIncrementalUpdateEnabled() && !isKeywordHasUpdate() && displayKeywordList.size() > 0){
+			keywordHasIncrementalUpdate = true;
+		}else{
+			setKeywordHasUpdate(true);
+		}
 	}
 	
 	/**
@@ -625,6 +3066,11 @@ public class FlowText extends FrameLayout implements OnGlobalLayoutListener{
 
 	public void setKeywordList(List<Keyword> keywordList) {
 		this.keywordList = keywordList;
+		layoutGeneration++;
+		if(keywordList.size() > 0){
+			setKeywordHasUpdate(true);
+			invalidateKeywordLayout();
+		}
 	}
 
 	public int getKeywordListMaxLength() {
@@ -697,186 +3143,579 @@ public class FlowText extends FrameLayout implements OnGlobalLayoutListener{
 
 	public void setAnimationDuration(long animationDuration) {
 		this.animationDuration = animationDuration;
-		if(getInAnimationAlpha() != null){
-			getInAnimationAlpha().setDuration(getAnimationDuration());
-		}
-		if(getInAnimationScale() != null){
-			getInAnimationScale().setDuration(getAnimationDuration());
+		this.animationSetsDirty = true;
+	}
+
+	public long getLastShowAnimationTime() {
+		return lastShowAnimationTime;
+	}
+
+	public void setLastShowAnimationTime(long lastShowAnimationTime) {
+		this.lastShowAnimationTime = lastShowAnimationTime;
+	}
+
+	/**
+	 * 设置进入动画的透明度变化，参数和AlphaAnimation的一样，从1到1表示没有透明度变化
+	 * @param fromAlpha 开始时的透明度
+	 * @param toAlpha 结束时的透明度
+	 */
+	public void setInAnimationAlpha(float fromAlpha, float toAlpha) {
+		inAnimationSpec.setAlpha(fromAlpha, toAlpha);
+		this.animationSetsDirty = true;
+	}
+
+	/**
+	 * 设置进入动画的缩放，轴心点在关键字的左上角，从1到1表示不缩放
+	 * @param fromX 开始时X轴的缩放比例
+	 * @param toX 结束时X轴的缩放比例
+	 * @param fromY 开始时Y轴的缩放比例
+	 * @param toY 结束时Y轴的缩放比例
+	 */
+	public void setInAnimationScale(float fromX, float toX, float fromY, float toY) {
+		setInAnimationScale(fromX, toX, fromY, toY, Animation.ABSOLUTE, 0, Animation.ABSOLUTE, 0);
+	}
+
+	/**
+	 * 设置进入动画的缩放，参数和ScaleAnimation的一样，从1到1表示不缩放
+	 * @param pivotXType 轴心点X坐标的类型，Animation.ABSOLUTE、Animation.RELATIVE_TO_SELF或Animation.RELATIVE_TO_PARENT
+	 * @param pivotXValue 轴心点X坐标
+	 * @param pivotYType 轴心点Y坐标的类型
+	 * @param pivotYValue 轴心点Y坐标
+	 */
+	public void setInAnimationScale(float fromX, float toX, float fromY, float toY, int pivotXType, float pivotXValue, int pivotYType, float pivotYValue) {
+		inAnimationSpec.setScale(fromX, toX, fromY, toY, pivotXType, pivotXValue, pivotYType, pivotYValue);
+		this.animationSetsDirty = true;
+	}
+
+	/**
+	 * 设置进入动画的旋转，轴心点在关键字的左上角，从0到0表示不旋转
+	 * @param fromDegrees 开始时的角度
+	 * @param toDegrees 结束时的角度
+	 */
+	public void setInAnimationRotate(float fromDegrees, float toDegrees) {
+		setInAnimationRotate(fromDegrees, toDegrees, Animation.ABSOLUTE, 0, Animation.ABSOLUTE, 0);
+	}
+
+	/**
+	 * 设置进入动画的旋转，参数和RotateAnimation的一样，从0到0表示不旋转
+	 * @param pivotXType 轴心点X坐标的类型，Animation.ABSOLUTE、Animation.RELATIVE_TO_SELF或Animation.RELATIVE_TO_PARENT
+	 * @param pivotXValue 轴心点X坐标
+	 * @param pivotYType 轴心点Y坐标的类型
+	 * @param pivotYValue 轴心点Y坐标
+	 */
+	public void setInAnimationRotate(float fromDegrees, float toDegrees, int pivotXType, float pivotXValue, int pivotYType, float pivotYValue) {
+		inAnimationSpec.setRotate(fromDegrees, toDegrees, pivotXType, pivotXValue, pivotYType, pivotYValue);
+		this.animationSetsDirty = true;
+	}
+
+	/**
+	 * 设置退出动画的透明度变化，参数和AlphaAnimation的一样，从1到1表示没有透明度变化
+	 * @param fromAlpha 开始时的透明度
+	 * @param toAlpha 结束时的透明度
+	 */
+	public void setOutAnimationAlpha(float fromAlpha, float toAlpha) {
+		outAnimationSpec.setAlpha(fromAlpha, toAlpha);
+		this.animationSetsDirty = true;
+	}
+
+	/**
+	 * 设置退出动画的缩放，轴心点在关键字的左上角，从1到1表示不缩放
+	 * @param fromX 开始时X轴的缩放比例
+	 * @param toX 结束时X轴的缩放比例
+	 * @param fromY 开始时Y轴的缩放比例
+	 * @param toY 结束时Y轴的缩放比例
+	 */
+	public void setOutAnimationScale(float fromX, float toX, float fromY, float toY) {
+		setOutAnimationScale(fromX, toX, fromY, toY, Animation.ABSOLUTE, 0, Animation.ABSOLUTE, 0);
+	}
+
+	/**
+	 * 设置退出动画的缩放，参数和ScaleAnimation的一样，从1到1表示不缩放
+	 * @param pivotXType 轴心点X坐标的类型，Animation.ABSOLUTE、Animation.RELATIVE_TO_SELF或Animation.RELATIVE_TO_PARENT
+	 * @param pivotXValue 轴心点X坐标
+	 * @param pivotYType 轴心点Y坐标的类型
+	 * @param pivotYValue 轴心点Y坐标
+	 */
+	public void setOutAnimationScale(float fromX, float toX, float fromY, float toY, int pivotXType, float pivotXValue, int pivotYType, float pivotYValue) {
+		outAnimationSpec.setScale(fromX, toX, fromY, toY, pivotXType, pivotXValue, pivotYType, pivotYValue);
+		this.animationSetsDirty = true;
+	}
+
+	/**
+	 * 设置退出动画的旋转，轴心点在关键字的左上角，从0到0表示不旋转
+	 * @param fromDegrees 开始时的角度
+	 * @param toDegrees 结束时的角度
+	 */
+	public void setOutAnimationRotate(float fromDegrees, float toDegrees) {
+		setOutAnimationRotate(fromDegrees, toDegrees, Animation.ABSOLUTE, 0, Animation.ABSOLUTE, 0);
+	}
+
+	/**
+	 * 设置退出动画的旋转，参数和RotateAnimation的一样，从0到0表示不旋转
+	 * @param pivotXType 轴心点X坐标的类型，Animation.ABSOLUTE、Animation.RELATIVE_TO_SELF或Animation.RELATIVE_TO_PARENT
+	 * @param pivotXValue 轴心点X坐标
+	 * @param pivotYType 轴心点Y坐标的类型
+	 * @param pivotYValue 轴心点Y坐标
+	 */
+	public void setOutAnimationRotate(float fromDegrees, float toDegrees, int pivotXType, float pivotXValue, int pivotYType, float pivotYValue) {
+		outAnimationSpec.setRotate(fromDegrees, toDegrees, pivotXType, pivotXValue, pivotYType, pivotYValue);
+		this.animationSetsDirty = true;
+	}
+
+	public Interpolator getInterpolator() {
+		return interpolator;
+	}
+
+	public void setInterpolator(Interpolator interpolator) {
+		this.interpolator = interpolator;
+		this.animationSetsDirty = true;
+	}
+
+	public boolean isInAnimation() {
+		return inAnimation;
+	}
+
+	public void setInAnimation(boolean inAnimation) {
+		this.inAnimation = inAnimation;
+	}
+
+	public int getDisplacement() {
+		return displacement;
+	}
+
+	public void setDisplacement(int displacement) {
+		this.displacement = displacement;
+		this.animationSetsDirty = true;
+	}
+
+	public Random getRandom() {
+		return random;
+	}
+
+	public void setRandom(Random random) {
+		this.random = random;
+	}
+
+	/**
+	 * 获取按权重计算文字大小时用的文字大小表，在最小文字大小和最大文字大小之间均匀分成TEXT_SIZE_LEVEL_COUNT级
+	 * @return 文字大小表，单位像素
+	 */
+	private float[] getTextSizeTable(){
+		if(textSizeTable == null){
+			float[] table = new float[TEXT_SIZE_LEVEL_COUNT];
+			for(int w = 0; w < TEXT_SIZE_LEVEL_COUNT; w++){
+				float textSize = getTextSizeMin() + (getTextSizeMax() - getTextSizeMin()) * w / (float)(TEXT_SIZE_LEVEL_COUNT - 1);
+				table[w] = TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, textSize, getResources().getDisplayMetrics());
+			}
+			textSizeTable = table;
 		}
-		if(getInAnimationRotate() != null){
-			getInAnimationRotate().setDuration(getAnimationDuration());
+		return textSizeTable;
+	}
+
+	public boolean isWeightedTextSizeEnabled() {
+		return weightedTextSizeEnabled;
+	}
+
+	/**
+	 * 设置是否根据关键字的权重计算文字大小。开启后权重越大文字越大，并且会搜索能让所有关键字都放得下的最大的文字大小，不再局限于最小文字大小和最大文字大小之间
+	 * @param weightedTextSizeEnabled 是否根据关键字的权重计算文字大小
+	 */
+	public void setWeightedTextSizeEnabled(boolean weightedTextSizeEnabled) {
+		this.weightedTextSizeEnabled = weightedTextSizeEnabled;
+	}
+
+	public int getTextSizeMax() {
+		return textSizeMax;
+	}
+
+	public void setTextSizeMax(int textSizeMax) {
+		this.textSizeMax = textSizeMax;
+		textSizeTable = null;
+	}
+
+	public int getTextSizeMin() {
+		return textSizeMin;
+	}
+
+	public void setTextSizeMin(int textSizeMin) {
+		this.textSizeMin = textSizeMin;
+		textSizeTable = null;
+	}
+
+	public int getTextShadowRadius() {
+		return textShadowRadius;
+	}
+
+	public void setTextShadowRadius(int textShadowRadius) {
+		this.textShadowRadius = textShadowRadius;
+		updateKeywordPaintShadow();
+	}
+
+	public int getTextShadowDX() {
+		return textShadowDX;
+	}
+
+	public void setTextShadowDX(int textShadowDX) {
+		this.textShadowDX = textShadowDX;
+		updateKeywordPaintShadow();
+	}
+
+	public int getTextShadowDY() {
+		return textShadowDY;
+	}
+
+	public void setTextShadowDY(int textShadowDY) {
+		this.textShadowDY = textShadowDY;
+		updateKeywordPaintShadow();
+	}
+
+	public int getTextShadowColor() {
+		return textShadowColor;
+	}
+
+	public void setTextShadowColor(int textShadowColor) {
+		this.textShadowColor = textShadowColor;
+		updateKeywordPaintShadow();
+	}
+
+	/**
+	 * 更新画布模式和图集模式下绘制关键字用的画笔的阴影
+	 */
+	private void updateKeywordPaintShadow(){
+		if(keywordPaint != null){
+			keywordPaint.setShadowLayer(getTextShadowRadius(), getTextShadowDX(), getTextShadowDY(), getTextShadowColor());
 		}
-		if(getOutAnimationAlpha() != null){
-			getOutAnimationAlpha().setDuration(getAnimationDuration());
+		//图集中的关键字带着旧的阴影，需要重新绘制
+		if(keywordAtlas != null){
+			keywordAtlas.invalidate();
 		}
-		if(getOutAnimationScale() != null){
-			getOutAnimationScale().setDuration(getAnimationDuration());
+	}
+
+	public boolean isKeywordHasUpdate() {
+		return keywordHasUpdate;
+	}
+
+	public void setKeywordHasUpdate(boolean keywordHasUpdate) {
+		this.keywordHasUpdate = keywordHasUpdate;
+	}
+
+	public boolean isRecycleViewEnabled() {
+		return recycleViewEnabled;
+	}
+
+	/**
+	 * 设置是否回收复用文本视图，关闭后将清空回收池
+	 * @param recycleViewEnabled 是否回收复用文本视图
+	 */
+	public void setRecycleViewEnabled(boolean recycleViewEnabled) {
+		this.recycleViewEnabled = recycleViewEnabled;
+		if(!recycleViewEnabled && recycledViewPool != null){
+			recycledViewPool.clear();
 		}
-		if(getOutAnimationRotate() != null){
-			getOutAnimationRotate().setDuration(getAnimationDuration());
+	}
+
+	public int getRecycledViewPoolMaxSize() {
+		return recycledViewPoolMaxSize;
+	}
+
+	public void setRecycledViewPoolMaxSize(int recycledViewPoolMaxSize) {
+		this.recycledViewPoolMaxSize = recycledViewPoolMaxSize;
+		//如果回收池超出了新的容量就把多余的丢弃
+		while(recycledViewPool != null && recycledViewPool.size() > recycledViewPoolMaxSize){
+			recycledViewPool.remove(recycledViewPool.size() - 1);
 		}
 	}
 
-	public long getLastShowAnimationTime() {
-		return lastShowAnimationTime;
+	public boolean isPropertyAnimationEnabled() {
+		return propertyAnimationEnabled;
+	}
+
+	/**
+	 * 设置是否使用属性动画，只在Android 3.0及以上版本的视图模式下生效。使用属性动画时所有的关键字由同一个时钟驱动，动画期间子视图开启硬件层，点击区域也会跟着文字移动
+	 * @param propertyAnimationEnabled 是否使用属性动画
+	 */
+	public void setPropertyAnimationEnabled(boolean propertyAnimationEnabled) {
+		this.propertyAnimationEnabled = propertyAnimationEnabled;
+	}
+
+	public boolean isIncrementalUpdateEnabled() {
+		return incrementalUpdateEnabled;
 	}
 
-	public void setLastShowAnimationTime(long lastShowAnimationTime) {
-		this.lastShowAnimationTime = lastShowAnimationTime;
+	/**
+	 * 设置是否增量更新关键字。开启后放入新的关键字时按名字和原来的关键字比较，保留的关键字位置和视图不变，只有新增和删除的关键字执行动画
+	 * @param incrementalUpdateEnabled 是否增量更新关键字
+	 */
+	public void setIncrementalUpdateEnabled(boolean incrementalUpdateEnabled) {
+		this.incrementalUpdateEnabled = incrementalUpdateEnabled;
 	}
 
-	public AlphaAnimation getInAnimationAlpha() {
-		return inAnimationAlpha;
+	public float getFlowSpeed() {
+		return keywordFlow.getSpeed();
 	}
 
-	public void setInAnimationAlpha(AlphaAnimation inAnimationAlpha) {
-		this.inAnimationAlpha = inAnimationAlpha;
-		if(this.inAnimationAlpha != null){
-			this.inAnimationAlpha.setDuration(getAnimationDuration());
-		}
+	/**
+	 * 设置漂流模式下关键字的最大速度，每个关键字的速度在它的一半到它之间随机选择，下次开始漂流或替换关键字时生效
+	 * @param flowSpeed 最大速度，单位像素每秒
+	 */
+	public void setFlowSpeed(float flowSpeed) {
+		keywordFlow.setSpeed(flowSpeed);
 	}
 
-	public ScaleAnimation getInAnimationScale() {
-		return inAnimationScale;
+	public int getFeedBufferSize() {
+		return keywordFeedBuffer.getCapacity();
 	}
 
-	public void setInAnimationScale(ScaleAnimation inAnimationScale) {
-		this.inAnimationScale = inAnimationScale;
-		if(this.inAnimationScale != null){
-			this.inAnimationScale.setDuration(getAnimationDuration());
-		}
+	/**
+	 * 设置关键字流缓冲区最多暂存多少个操作，已有的操作超出新的容量的话丢弃最早的
+	 * @param feedBufferSize 最多暂存多少个操作
+	 */
+	public void setFeedBufferSize(int feedBufferSize) {
+		keywordFeedBuffer.setCapacity(feedBufferSize);
 	}
 
-	public RotateAnimation getInAnimationRotate() {
-		return inAnimationRotate;
+	public FeedOverflowPolicy getFeedOverflowPolicy() {
+		return feedOverflowPolicy;
 	}
 
-	public void setInAnimationRotate(RotateAnimation inAnimationRotate) {
-		this.inAnimationRotate = inAnimationRotate;
-		if(this.inAnimationRotate != null){
-			this.inAnimationRotate.setDuration(getAnimationDuration());
-		}
+	/**
+	 * 设置关键字流缓冲区满了之后的溢出策略
+	 * @param feedOverflowPolicy 溢出策略
+	 */
+	public void setFeedOverflowPolicy(FeedOverflowPolicy feedOverflowPolicy) {
+		this.feedOverflowPolicy = feedOverflowPolicy;
 	}
 
-	public AlphaAnimation getOutAnimationAlpha() {
-		return outAnimationAlpha;
+	public FeedApplyMode getFeedApplyMode() {
+		return feedApplyMode;
 	}
 
-	public void setOutAnimationAlpha(AlphaAnimation outAnimationAlpha) {
-		this.outAnimationAlpha = outAnimationAlpha;
-		if(this.outAnimationAlpha != null){
-			this.outAnimationAlpha.setDuration(getAnimationDuration());
+	/**
+	 * 设置关键字流的应用时机
+	 * @param feedApplyMode 应用时机
+	 */
+	public void setFeedApplyMode(FeedApplyMode feedApplyMode) {
+		this.feedApplyMode = feedApplyMode;
+		//改为按帧应用的话已经暂存的操作在下一帧应用
+		if(keywordFeedBuffer != null && keywordFeedBuffer.size() > 0){
+			scheduleKeywordFeed();
 		}
 	}
 
-	public ScaleAnimation getOutAnimationScale() {
-		return outAnimationScale;
+	public boolean isFlowCollisionEnabled() {
+		return keywordFlow.isCollisionEnabled();
 	}
 
-	public void setOutAnimationScale(ScaleAnimation outAnimationScale) {
-		this.outAnimationScale = outAnimationScale;
-		if(this.outAnimationScale != null){
-			this.outAnimationScale.setDuration(getAnimationDuration());
-		}
+	/**
+	 * 设置漂流模式下是否处理关键字之间的碰撞，开启后用均匀网格只检查相邻的关键字，重叠的关键字会被推开并改变方向
+	 * @param flowCollisionEnabled 是否处理碰撞
+	 */
+	public void setFlowCollisionEnabled(boolean flowCollisionEnabled) {
+		keywordFlow.setCollisionEnabled(flowCollisionEnabled);
 	}
 
-	public RotateAnimation getOutAnimationRotate() {
-		return outAnimationRotate;
+	public FlowField.Edge getFlowEdge() {
+		return keywordFlow.getEdge();
 	}
 
-	public void setOutAnimationRotate(RotateAnimation outAnimationRotate) {
-		this.outAnimationRotate = outAnimationRotate;
-		if(this.outAnimationRotate != null){
-			this.outAnimationRotate.setDuration(getAnimationDuration());
-		}
+	/**
+	 * 设置漂流模式下关键字碰到边缘时的处理方式
+	 * @param flowEdge 处理方式
+	 */
+	public void setFlowEdge(FlowField.Edge flowEdge) {
+		keywordFlow.setEdge(flowEdge);
 	}
 
-	public Interpolator getInterpolator() {
-		return interpolator;
+	public long getFlowReplaceInterval() {
+		return keywordFlow.getReplaceInterval();
 	}
 
-	public void setInterpolator(Interpolator interpolator) {
-		this.interpolator = interpolator;
+	/**
+	 * 设置漂流模式下每隔多长时间淡出一个关键字并用没有显示的关键字替换
+	 * @param flowReplaceInterval 间隔，单位毫秒，小于等于0的话不替换
+	 */
+	public void setFlowReplaceInterval(long flowReplaceInterval) {
+		keywordFlow.setReplaceInterval(flowReplaceInterval);
 	}
 
-	public boolean isInAnimation() {
-		return inAnimation;
+	public long getCarouselDwellTime() {
+		return carouselDwellTime;
 	}
 
-	public void setInAnimation(boolean inAnimation) {
-		this.inAnimation = inAnimation;
+	/**
+	 * 设置轮播时关键字进入之后停留的时间，从进入动画执行完毕开始计算
+	 * @param carouselDwellTime 停留的时间，单位毫秒
+	 */
+	public void setCarouselDwellTime(long carouselDwellTime) {
+		this.carouselDwellTime = carouselDwellTime;
 	}
 
-	public int getDisplacement() {
-		return displacement;
+	public OnCycleMetricsListener getOnCycleMetricsListener() {
+		return onCycleMetricsListener;
 	}
 
-	public void setDisplacement(int displacement) {
-		this.displacement = displacement;
+	/**
+	 * 设置性能指标监听器，每轮过渡动画执行完毕时回调这一轮的布局耗时、测量耗时、视图创建和复用个数、动画耗时以及超过帧预算的帧数。不设置的话不做任何统计
+	 * @param onCycleMetricsListener 性能指标监听器，为null时停止统计
+	 */
+	public void setOnCycleMetricsListener(OnCycleMetricsListener onCycleMetricsListener) {
+		this.onCycleMetricsListener = onCycleMetricsListener;
+		cycleMetrics.reset();
+		if(onCycleMetricsListener == null && frameMonitor != null){
+			frameMonitor.stop();
+		}
 	}
 
-	public Random getRandom() {
-		return random;
+	public KeywordLayoutCache getKeywordLayoutCache() {
+		return keywordLayoutCache;
 	}
 
-	public void setRandom(Random random) {
-		this.random = random;
+	/**
+	 * 设置关键字布局缓存。同样的关键字和容器尺寸再次布局时直接使用缓存的结果，refresh()时除外；当前显示的布局会在onSaveInstanceState()中保存，需要给FlowText设置id
+	 * @param keywordLayoutCache 关键字布局缓存，为null时每次都重新计算
+	 */
+	public void setKeywordLayoutCache(KeywordLayoutCache keywordLayoutCache) {
+		this.keywordLayoutCache = keywordLayoutCache;
 	}
 
-	public int getTextSizeMax() {
-		return textSizeMax;
+	public KeywordPool getKeywordPool() {
+		return keywordPool;
 	}
 
-	public void setTextSizeMax(int textSizeMax) {
-		this.textSizeMax = textSizeMax;
+	/**
+	 * 设置关键字池。设置之后每次进入前都会按照关键字池的取样方式从中取出getKeywordListMaxLength()个关键字显示，putKeywords()放入的关键字会被替换
+	 * @param keywordPool 关键字池，为null时不再换页
+	 */
+	public void setKeywordPool(KeywordPool keywordPool) {
+		this.keywordPool = keywordPool;
+		if(keywordPool != null){
+			loadKeywordPage();
+			invalidateKeywordLayout();
+		}
 	}
 
-	public int getTextSizeMin() {
-		return textSizeMin;
+	public Executor getLayoutExecutor() {
+		return layoutExecutor;
 	}
 
-	public void setTextSizeMin(int textSizeMin) {
-		this.textSizeMin = textSizeMin;
+	/**
+	 * 设置后台布局执行器，refreshAsync()时在这里计算布局，默认所有的FlowText共用一个低优先级的后台线程
+	 * @param layoutExecutor 后台布局执行器
+	 */
+	public void setLayoutExecutor(Executor layoutExecutor) {
+		this.layoutExecutor = layoutExecutor;
 	}
 
-	public int getTextShadowRadius() {
-		return textShadowRadius;
+	public RenderMode getRenderMode() {
+		return renderMode;
 	}
 
-	public void setTextShadowRadius(int textShadowRadius) {
-		this.textShadowRadius = textShadowRadius;
+	/**
+	 * 设置渲染模式，下次刷新时生效
+	 * @param renderMode 渲染模式
+	 */
+	public void setRenderMode(RenderMode renderMode) {
+		if(this.renderMode != renderMode){
+			//不再使用图集的话释放掉
+			if(this.renderMode == RenderMode.ATLAS){
+				keywordAtlas.release();
+			}
+			this.renderMode = renderMode;
+			if(getKeywordList().size() > 0){
+				setKeywordHasUpdate(true);
+			}
+		}
 	}
 
-	public int getTextShadowDX() {
-		return textShadowDX;
+	public KeywordPlacer getKeywordPlacer() {
+		return keywordPlacer;
 	}
 
-	public void setTextShadowDX(int textShadowDX) {
-		this.textShadowDX = textShadowDX;
+	/**
+	 * 设置关键字布局器，下次刷新时生效
+	 * @param keywordPlacer 关键字布局器，为null时按平均宽、高随机分配坐标，关键字之间可能会重叠
+	 */
+	public void setKeywordPlacer(KeywordPlacer keywordPlacer) {
+		this.keywordPlacer = keywordPlacer;
 	}
 
-	public int getTextShadowDY() {
-		return textShadowDY;
+	/**
+	 * 获取上次布局时因为没有空间而没有显示的关键字列表
+	 * @return 没有显示的关键字列表
+	 */
+	public List<Keyword> getUnplacedKeywordList() {
+		return unplacedKeywordList;
 	}
 
-	public void setTextShadowDY(int textShadowDY) {
-		this.textShadowDY = textShadowDY;
+	public FlowTextResources getSharedResources() {
+		return resources;
 	}
 
-	public int getTextShadowColor() {
-		return textShadowColor;
+	/**
+	 * 设置和其它FlowText共用的资源，文字测量缓存、随机数生成器、后台布局执行器和布局缓存换成共享资源中的，文本视图回收池和帧时钟也改用共享的
+	 * @param resources 共享资源，为null时不再共用回收池和帧时钟，其它资源保持不变
+	 */
+	public void setSharedResources(FlowTextResources resources) {
+		if(this.resources == resources){
+			return;
+		}
+		//已经安排在原来的时钟上的任务换到新的时钟上
+		boolean carouselScheduled = carouselRunning && !suspended;
+		cancelCarouselStep();
+		if(isUseSharedFrameClock()){
+			this.resources.getFrameClock().remove(flowFrameListener);
+		}
+		this.resources = resources;
+		if(resources != null){
+			setTextMeasureCache(resources.getTextMeasureCache());
+			setTextLayoutCache(resources.getTextLayoutCache());
+			setRandom(resources.getRandom());
+			setLayoutExecutor(resources.getLayoutExecutor());
+			setKeywordLayoutCache(resources.getKeywordLayoutCache());
+			recycledViewPool.clear();
+		}
+		if(carouselScheduled){
+			scheduleCarouselStep(getCarouselDwellTime());
+		}
+		if(keywordFlow.isRunning()){
+			invalidate();
+		}
 	}
 
-	public void setTextShadowColor(int textShadowColor) {
-		this.textShadowColor = textShadowColor;
+	public TextMeasureCache getTextMeasureCache() {
+		return textMeasureCache;
 	}
 
-	public boolean isKeywordHasUpdate() {
-		return keywordHasUpdate;
+	/**
+	 * 设置文字测量缓存
+	 * @param textMeasureCache 文字测量缓存，默认是所有FlowText共用的TextMeasureCache.getInstance()，为null时每次都重新测量
+	 */
+	public void setTextMeasureCache(TextMeasureCache textMeasureCache) {
+		this.textMeasureCache = textMeasureCache;
 	}
 
-	public void setKeywordHasUpdate(boolean keywordHasUpdate) {
-		this.keywordHasUpdate = keywordHasUpdate;
+	public TextLayoutCache getTextLayoutCache() {
+		return textLayoutCache;
+	}
+
+	/**
+	 * 设置文字排版缓存
+	 * @param textLayoutCache 文字排版缓存，默认是所有FlowText共用的TextLayoutCache.getInstance()，为null时每次都重新换行
+	 */
+	public void setTextLayoutCache(TextLayoutCache textLayoutCache) {
+		this.textLayoutCache = textLayoutCache;
+	}
+
+	public int getKeywordMaxWidth() {
+		return keywordMaxWidth;
+	}
+
+	/**
+	 * 设置关键字的最大宽度，超出的关键字会换行显示，下次重新布局时生效
+	 * @param keywordMaxWidth 关键字的最大宽度，单位像素，小于等于0或者比容器还宽时使用容器的宽度
+	 */
+	public void setKeywordMaxWidth(int keywordMaxWidth) {
+		this.keywordMaxWidth = keywordMaxWidth;
 	}
 
 	public OnKeywordClickListener getOnKeywordClickListener() {
@@ -888,6 +3727,57 @@ public class FlowText extends FrameLayout implements OnGlobalLayoutListener{
 		this.onKeywordClickListener = onKeywordClickListener;
 	}
 
+	/**
+	 * 所有进入动画或所有退出动画共用的监听器，本轮所有的动画都执行完毕时才处理
+	 */
+	private class SharedAnimationListener implements AnimationListener{
+		/**
+		 * true：进入动画；false：退出动画
+		 */
+		private boolean in;
+		
+		public SharedAnimationListener(boolean in){
+			this.in = in;
+		}
+		
+		@Override
+		public void onAnimationStart(Animation animation) {
+		}
+		
+		@Override
+		public void onAnimationRepeat(Animation animation) {
+		}
+		
+		@Override
+		public void onAnimationEnd(Animation animation) {
+			if(runningAnimationSetCount > 0 && --runningAnimationSetCount == 0){
+				onAnimationSetsEnd(in);
+			}
+		}
+	}
+	
+	/**
+	 * 不使用属性动画时子视图自己的动画，不单独计算，取所在象限的动画在当前帧的变换，再按关键字的尺寸组合出自己的变换
+	 */
+	private static class KeywordViewAnimation extends Animation{
+		private QuadrantAnimation quadrantAnimation;
+		private Keyword keyword;
+		
+		public void set(QuadrantAnimation quadrantAnimation, Keyword keyword){
+			this.quadrantAnimation = quadrantAnimation;
+			this.keyword = keyword;
+		}
+		
+		@Override
+		public boolean getTransformation(long currentTime, Transformation outTransformation) {
+			boolean more = quadrantAnimation.compute(currentTime);
+			outTransformation.clear();
+			outTransformation.setAlpha(quadrantAnimation.getAlpha());
+			quadrantAnimation.getMatrix(keyword.getWidth(), keyword.getHeight(), outTransformation.getMatrix());
+			return more;
+		}
+	}
+	
 	/**
 	 * 关键字
 	 * @author xiaopan
@@ -909,13 +3799,63 @@ public class FlowText extends FrameLayout implements OnGlobalLayoutListener{
 		 * 宽度
 		 */
 		private int width;
+		/**
+		 * 高度
+		 */
+		private int height;
+		/**
+		 * 文字大小，单位像素
+		 */
+		private float textSize;
+		/**
+		 * 文字颜色
+		 */
+		private int textColor;
+		/**
+		 * 权重，例如热度或出现次数
+		 */
+		private float weight;
+		/**
+		 * 增量更新时在本轮动画中要执行的动画，由FlowText维护
+		 */
+		private int transition;
+		/**
+		 * 换好行的文字，不需要换行时为null，由FlowText维护
+		 */
+		private WrappedText wrappedText;
 		
 		/**
-		 * 创建一个关键字
+		 * 创建一个权重为1的关键字
 		 * @param name 关键字的名字
 		 */
 		public Keyword(String name){
+			this(name, 1);
+		}
+		
+		/**
+		 * 创建一个关键字
+		 * @param name 关键字的名字
+		 * @param weight 权重，开启按权重计算文字大小时权重越大文字越大
+		 */
+		public Keyword(String name, float weight){
 			setName(name);
+			setWeight(weight);
+		}
+		
+		/**
+		 * 获取权重
+		 * @return 权重
+		 */
+		public float getWeight() {
+			return weight;
+		}
+		
+		/**
+		 * 设置权重
+		 * @param weight 权重，开启按权重计算文字大小时权重越大文字越大
+		 */
+		public void setWeight(float weight) {
+			this.weight = weight;
 		}
 		
 		/**
@@ -989,6 +3929,78 @@ public class FlowText extends FrameLayout implements OnGlobalLayoutListener{
 		public void setWidth(int width) {
 			this.width = width;
 		}
+
+		/**
+		 * 获取底外边距
+		 * @return 底外边距
+		 */
+		public int getBottomMargin() {
+			return getTopMargin() + getHeight();
+		}
+
+		/**
+		 * 获取高度
+		 * @return 高度
+		 */
+		public int getHeight() {
+			return height;
+		}
+
+		/**
+		 * 设置高度
+		 * @param height 高度
+		 */
+		public void setHeight(int height) {
+			this.height = height;
+		}
+
+		/**
+		 * 获取换好行的文字
+		 * @return 换好行的文字，不需要换行时为null
+		 */
+		public WrappedText getWrappedText() {
+			return wrappedText;
+		}
+
+		/**
+		 * 设置换好行的文字
+		 * @param wrappedText 换好行的文字，不需要换行时为null
+		 */
+		public void setWrappedText(WrappedText wrappedText) {
+			this.wrappedText = wrappedText;
+		}
+
+		/**
+		 * 获取文字大小
+		 * @return 文字大小，单位像素
+		 */
+		public float getTextSize() {
+			return textSize;
+		}
+
+		/**
+		 * 设置文字大小
+		 * @param textSize 文字大小，单位像素
+		 */
+		public void setTextSize(float textSize) {
+			this.textSize = textSize;
+		}
+
+		/**
+		 * 获取文字颜色
+		 * @return 文字颜色
+		 */
+		public int getTextColor() {
+			return textColor;
+		}
+
+		/**
+		 * 设置文字颜色
+		 * @param textColor 文字颜色
+		 */
+		public void setTextColor(int textColor) {
+			this.textColor = textColor;
+		}
 	}
 	
 	/**
@@ -997,4 +4009,121 @@ public class FlowText extends FrameLayout implements OnGlobalLayoutListener{
 	public interface OnKeywordClickListener{
 		public void onKeywordClickListener(String keywordName);
 	}
+	
+	/**
+	 * 过渡动画执行完毕监听器
+	 */
+	public interface OnTransitionListener{
+		/**
+		 * 过渡动画执行完毕
+		 * @param success 是否执行成功，false：尚未获取容器的宽和高、容器内没有子视图、方向不对或者被取消了。
+		 * 排队期间被后来的反方向请求抵消掉的也算被取消，会在抵消时立即收到false，不会继承合并后的请求的结果
+		 */
+		public void onTransitionFinished(boolean success);
+	}
+	
+	/**
+	 * 性能指标监听器
+	 */
+	public interface OnCycleMetricsListener{
+		/**
+		 * 一轮过渡动画执行完毕
+		 * @param cycleMetrics 这一轮的性能指标，只在回调期间有效
+		 */
+		public void onCycleMetrics(CycleMetrics cycleMetrics);
+	}
+	
+	/**
+	 * 保存的状态
+	 */
+	static class SavedState extends BaseSavedState{
+		/**
+		 * 布局缓存
+		 */
+		private KeywordLayoutCache keywordLayoutCache;
+		
+		SavedState(Parcelable superState) {
+			super(superState);
+		}
+		
+		private SavedState(Parcel in) {
+			super(in);
+			if(in.readInt() != 0){
+				keywordLayoutCache = new KeywordLayoutCache(in.readInt());
+				keywordLayoutCache.readFromParcel(in);
+			}
+		}
+		
+		@Override
+		public void writeToParcel(Parcel out, int flags) {
+			super.writeToParcel(out, flags);
+			out.writeInt(keywordLayoutCache != null ? 1 : 0);
+			if(keywordLayoutCache != null){
+				out.writeInt(keywordLayoutCache.getMaxSize());
+				keywordLayoutCache.writeToParcel(out);
+			}
+		}
+		
+		public static final Parcelable.Creator<SavedState> CREATOR = new Parcelable.Creator<SavedState>() {
+			@Override
+			public SavedState createFromParcel(Parcel in) {
+				return new SavedState(in);
+			}
+			
+			@Override
+			public SavedState[] newArray(int size) {
+				return new SavedState[size];
+			}
+		};
+	}
+	
+	/**
+	 * 关键字流缓冲区满了之后的溢出策略
+	 */
+	public enum FeedOverflowPolicy{
+		/**
+		 * 丢弃最早的操作，保留最新的
+		 */
+		DROP_OLDEST, 
+		
+		/**
+		 * 丢弃新来的操作，offerKeyword()和removeKeyword()返回false
+		 */
+		DROP_NEWEST;
+	}
+	
+	/**
+	 * 关键字流的应用时机
+	 */
+	public enum FeedApplyMode{
+		/**
+		 * 每帧应用一次，和putKeywords()一样处理，开启增量更新的话正在显示的关键字立即更新
+		 */
+		FRAME, 
+		
+		/**
+		 * 每次执行进入动画时应用，适合配合轮播使用
+		 */
+		TRANSITION;
+	}
+	
+	/**
+	 * 渲染模式
+	 */
+	public enum RenderMode{
+		/**
+		 * 视图模式，每个关键字都用一个TextView来显示
+		 */
+		VIEW, 
+		
+		/**
+		 * 画布模式，不创建子视图，由容器用共享的画笔直接绘制所有的关键字，适合关键字很多的场景
+		 */
+		CANVAS, 
+		
+		/**
+		 * 图集模式，和画布模式一样由容器绘制，但是每个关键字连同阴影只在文字、文字大小或颜色变化时绘制一次到共享的位图上，动画的每一帧只绘制位图，适合阴影较重的场景
+		 */
+		ATLAS;
+	}
 }
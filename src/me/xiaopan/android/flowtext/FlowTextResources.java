@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2013 Peng fei Pan <sky@xiaopan.me>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.xiaopan.android.flowtext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executor;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.os.Build;
+import android.widget.TextView;
+
+/**
+ * FlowText共享资源，同时显示的多个FlowText通过setSharedResources()使用同一个实例，共用文字测量缓存、文字排版缓存、随机数生成器、后台布局执行器、布局缓存、文本视图回收池和帧时钟
+ * <br>帧时钟在Android 4.1及以上版本中生效，使用它的FlowText的轮播和漂流都在同一个帧回调中推进
+ * <br>回收池中的文本视图持有Context，一般每个界面创建一个实例，不要放在静态变量中；只能在主线程中使用
+ */
+public class FlowTextResources {
+	/**
+	 * 默认的回收池最大容量
+	 */
+	public static final int DEFAULT_RECYCLED_VIEW_POOL_MAX_SIZE = 60;
+	
+	private TextMeasureCache textMeasureCache;
+	private TextLayoutCache textLayoutCache;
+	private Random random;
+	private Executor layoutExecutor;
+	private KeywordLayoutCache keywordLayoutCache;
+	private List<TextView> recycledViewPool;
+	private int recycledViewPoolMaxSize;
+	private SharedFrameClock frameClock;
+	private boolean fastScrolling;
+	
+	public FlowTextResources(){
+		setTextMeasureCache(TextMeasureCache.getInstance());//初始化使用进程内共享的文字测量缓存
+		setTextLayoutCache(TextLayoutCache.getInstance());//初始化使用进程内共享的文字排版缓存
+		setRandom(new Random());//初始化共用一个随机数生成器
+		setLayoutExecutor(KeywordLayout.getDefaultExecutor());//初始化使用进程内共享的后台布局执行器
+		setKeywordLayoutCache(new KeywordLayoutCache(KeywordLayoutCache.DEFAULT_MAX_SIZE * 4));//初始化共用一个更大的布局缓存
+		recycledViewPool = new ArrayList<TextView>();
+		setRecycledViewPoolMaxSize(DEFAULT_RECYCLED_VIEW_POOL_MAX_SIZE);
+	}
+	
+	/**
+	 * 从回收池中取出一个属于给定Context的文本视图，属于其它Context的直接丢弃
+	 * @param context 要使用文本视图的FlowText的Context
+	 * @return 文本视图，没有的话返回null
+	 */
+	TextView obtainRecycledView(Context context){
+		while(recycledViewPool.size() > 0){
+			TextView textView = recycledViewPool.remove(recycledViewPool.size() - 1);
+			if(textView.getContext() == context){
+				return textView;
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * 把不再使用的文本视图放入回收池，回收池满了的话丢弃
+	 * @param textView 文本视图
+	 * @return 是否放入了回收池
+	 */
+	boolean recycleView(TextView textView){
+		if(recycledViewPool.size() < getRecycledViewPoolMaxSize()){
+			recycledViewPool.add(textView);
+			return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * 获取共享的帧时钟，只在Android 4.1及以上版本中调用
+	 * @return 共享的帧时钟
+	 */
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+	SharedFrameClock getFrameClock(){
+		if(frameClock == null){
+			frameClock = new SharedFrameClock();
+		}
+		return frameClock;
+	}
+	
+	/**
+	 * 清空回收池，界面销毁时调用以尽快释放文本视图
+	 */
+	public void clearRecycledViews(){
+		recycledViewPool.clear();
+	}
+	
+	/**
+	 * 获取回收池中文本视图的个数
+	 * @return 回收池中文本视图的个数
+	 */
+	public int getRecycledViewCount(){
+		return recycledViewPool.size();
+	}
+
+	public boolean isFastScrolling() {
+		return fastScrolling;
+	}
+
+	/**
+	 * 设置所在的列表是否正在快速滚动，快速滚动期间FlowText.bind()不执行进入动画，直接显示。一般在列表的滚动监听器中设置，惯性滚动时为true
+	 * @param fastScrolling 是否正在快速滚动
+	 */
+	public void setFastScrolling(boolean fastScrolling) {
+		this.fastScrolling = fastScrolling;
+	}
+
+	public TextMeasureCache getTextMeasureCache() {
+		return textMeasureCache;
+	}
+
+	public void setTextMeasureCache(TextMeasureCache textMeasureCache) {
+		this.textMeasureCache = textMeasureCache;
+	}
+
+	public TextLayoutCache getTextLayoutCache() {
+		return textLayoutCache;
+	}
+
+	public void setTextLayoutCache(TextLayoutCache textLayoutCache) {
+		this.textLayoutCache = textLayoutCache;
+	}
+
+	public Random getRandom() {
+		return random;
+	}
+
+	public void setRandom(Random random) {
+		this.random = random;
+	}
+
+	public Executor getLayoutExecutor() {
+		return layoutExecutor;
+	}
+
+	public void setLayoutExecutor(Executor layoutExecutor) {
+		this.layoutExecutor = layoutExecutor;
+	}
+
+	public KeywordLayoutCache getKeywordLayoutCache() {
+		return keywordLayoutCache;
+	}
+
+	public void setKeywordLayoutCache(KeywordLayoutCache keywordLayoutCache) {
+		this.keywordLayoutCache = keywordLayoutCache;
+	}
+
+	public int getRecycledViewPoolMaxSize() {
+		return recycledViewPoolMaxSize;
+	}
+
+	/**
+	 * 设置回收池的最大容量，超出的文本视图直接丢弃
+	 * @param recycledViewPoolMaxSize 回收池的最大容量
+	 */
+	public void setRecycledViewPoolMaxSize(int recycledViewPoolMaxSize) {
+		this.recycledViewPoolMaxSize = recycledViewPoolMaxSize;
+		while(recycledViewPool.size() > recycledViewPoolMaxSize){
+			recycledViewPool.remove(recycledViewPool.size() - 1);
+		}
+	}
+}
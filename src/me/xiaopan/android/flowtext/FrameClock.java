@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2013 Peng fei Pan <sky@xiaopan.me>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.xiaopan.android.flowtext;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.view.Choreographer;
+
+/**
+ * 帧时钟，用Choreographer在给定的延迟之后的下一帧开始时执行给定的任务，和动画使用同一个时钟
+ */
+@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+class FrameClock implements Choreographer.FrameCallback {
+	private Runnable runnable;
+	private boolean posted;
+	
+	/**
+	 * 创建帧时钟
+	 * @param runnable 要执行的任务
+	 */
+	FrameClock(Runnable runnable){
+		this.runnable = runnable;
+	}
+	
+	/**
+	 * 在给定的延迟之后的下一帧开始时执行任务，之前安排的会被取消
+	 * @param delayMillis 延迟，单位毫秒
+	 */
+	void postDelayed(long delayMillis){
+		cancel();
+		posted = true;
+		Choreographer.getInstance().postFrameCallbackDelayed(this, delayMillis);
+	}
+	
+	/**
+	 * 取消已经安排的任务
+	 */
+	void cancel(){
+		if(posted){
+			posted = false;
+			Choreographer.getInstance().removeFrameCallback(this);
+		}
+	}
+	
+	@Override
+	public void doFrame(long frameTimeNanos) {
+		posted = false;
+		runnable.run();
+	}
+}
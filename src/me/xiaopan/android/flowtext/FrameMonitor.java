@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2013 Peng fei Pan <sky@xiaopan.me>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.xiaopan.android.flowtext;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.view.Choreographer;
+
+/**
+ * 帧监视器，用Choreographer统计动画期间的帧数和超过帧预算的帧数
+ */
+@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+class FrameMonitor implements Choreographer.FrameCallback {
+	/**
+	 * 帧预算，单位纳秒，按60帧每秒计算
+	 */
+	private static final long FRAME_BUDGET_NANOS = 16666667L;
+	private boolean running;
+	private long lastFrameTimeNanos;
+	private int frameCount;
+	private int overBudgetFrameCount;
+	
+	/**
+	 * 开始统计
+	 */
+	void start(){
+		if(running){
+			Choreographer.getInstance().removeFrameCallback(this);
+		}
+		running = true;
+		lastFrameTimeNanos = 0;
+		frameCount = 0;
+		overBudgetFrameCount = 0;
+		Choreographer.getInstance().postFrameCallback(this);
+	}
+	
+	/**
+	 * 停止统计
+	 */
+	void stop(){
+		if(running){
+			running = false;
+			Choreographer.getInstance().removeFrameCallback(this);
+		}
+	}
+	
+	@Override
+	public void doFrame(long frameTimeNanos) {
+		if(!running){
+			return;
+		}
+		if(lastFrameTimeNanos != 0){
+			frameCount++;
+			//两帧的间隔超过一帧半就说明至少错过了一次垂直同步
+			if(frameTimeNanos - lastFrameTimeNanos > FRAME_BUDGET_NANOS + (FRAME_BUDGET_NANOS >> 1)){
+				overBudgetFrameCount++;
+			}
+		}
+		lastFrameTimeNanos = frameTimeNanos;
+		Choreographer.getInstance().postFrameCallback(this);
+	}
+	
+	int getFrameCount() {
+		return frameCount;
+	}
+	
+	int getOverBudgetFrameCount() {
+		return overBudgetFrameCount;
+	}
+}
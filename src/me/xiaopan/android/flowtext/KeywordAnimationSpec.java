@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2013 Peng fei Pan <sky@xiaopan.me>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.xiaopan.android.flowtext;
+
+import android.view.animation.AlphaAnimation;
+import android.view.animation.Animation;
+import android.view.animation.AnimationSet;
+import android.view.animation.Interpolator;
+import android.view.animation.RotateAnimation;
+import android.view.animation.ScaleAnimation;
+import android.view.animation.TranslateAnimation;
+
+/**
+ * 进入动画或退出动画的配置，按值记录透明度、缩放和旋转动画的参数
+ * <br>动画实例在初始化时会按视图的尺寸解析轴心点，不能被多个动画共用，所以每次都按配置创建新的实例，每个象限的动画都有自己的子动画
+ */
+class KeywordAnimationSpec {
+	private float fromAlpha = 1.0f;
+	private float toAlpha = 1.0f;
+	private float fromScaleX = 1.0f;
+	private float toScaleX = 1.0f;
+	private float fromScaleY = 1.0f;
+	private float toScaleY = 1.0f;
+	private int scalePivotXType = Animation.ABSOLUTE;
+	private float scalePivotXValue;
+	private int scalePivotYType = Animation.ABSOLUTE;
+	private float scalePivotYValue;
+	private float fromDegrees;
+	private float toDegrees;
+	private int rotatePivotXType = Animation.ABSOLUTE;
+	private float rotatePivotXValue;
+	private int rotatePivotYType = Animation.ABSOLUTE;
+	private float rotatePivotYValue;
+	
+	/**
+	 * 设置透明度动画，参数和AlphaAnimation的一样，从1到1表示没有透明度动画
+	 */
+	public void setAlpha(float fromAlpha, float toAlpha){
+		this.fromAlpha = fromAlpha;
+		this.toAlpha = toAlpha;
+	}
+	
+	/**
+	 * 设置缩放动画，参数和ScaleAnimation的一样，从1到1表示没有缩放动画
+	 */
+	public void setScale(float fromX, float toX, float fromY, float toY, int pivotXType, float pivotXValue, int pivotYType, float pivotYValue){
+		this.fromScaleX = fromX;
+		this.toScaleX = toX;
+		this.fromScaleY = fromY;
+		this.toScaleY = toY;
+		this.scalePivotXType = pivotXType;
+		this.scalePivotXValue = pivotXValue;
+		this.scalePivotYType = pivotYType;
+		this.scalePivotYValue = pivotYValue;
+	}
+	
+	/**
+	 * 设置旋转动画，参数和RotateAnimation的一样，从0到0表示没有旋转动画
+	 */
+	public void setRotate(float fromDegrees, float toDegrees, int pivotXType, float pivotXValue, int pivotYType, float pivotYValue){
+		this.fromDegrees = fromDegrees;
+		this.toDegrees = toDegrees;
+		this.rotatePivotXType = pivotXType;
+		this.rotatePivotXValue = pivotXValue;
+		this.rotatePivotYType = pivotYType;
+		this.rotatePivotYValue = pivotYValue;
+	}
+	
+	/**
+	 * 获取动画中最大的缩放比例
+	 * @return 最大的缩放比例，不小于1
+	 */
+	public float getMaxScale(){
+		return Math.max(Math.max(1.0f, Math.max(Math.abs(fromScaleX), Math.abs(toScaleX))), Math.max(Math.abs(fromScaleY), Math.abs(toScaleY)));
+	}
+	
+	/**
+	 * 按配置创建一个新的动画，没有变化的透明度、缩放和旋转不会加入，位移不为0时再加上位移动画
+	 * @param duration 持续时间
+	 * @param interpolator 插值器，可以为null
+	 * @return 动画
+	 */
+	public AnimationSet build(long duration, Interpolator interpolator, float fromXDelta, float toXDelta, float fromYDelta, float toYDelta){
+		AnimationSet animationSet = new AnimationSet(true);
+		//如果插值器不为null
+		if(interpolator != null){
+			animationSet.setInterpolator(interpolator);
+		}
+		if(fromAlpha != 1.0f || toAlpha != 1.0f){
+			animationSet.addAnimation(new AlphaAnimation(fromAlpha, toAlpha));
+		}
+		if(fromScaleX != 1.0f || toScaleX != 1.0f || fromScaleY != 1.0f || toScaleY != 1.0f){
+			animationSet.addAnimation(new ScaleAnimation(fromScaleX, toScaleX, fromScaleY, toScaleY, scalePivotXType, scalePivotXValue, scalePivotYType, scalePivotYValue));
+		}
+		if(fromDegrees != 0 || toDegrees != 0){
+			animationSet.addAnimation(new RotateAnimation(fromDegrees, toDegrees, rotatePivotXType, rotatePivotXValue, rotatePivotYType, rotatePivotYValue));
+		}
+		//不在坐标轴上的才有位移动画
+		if(fromXDelta != 0 || toXDelta != 0 || fromYDelta != 0 || toYDelta != 0){
+			animationSet.addAnimation(new TranslateAnimation(fromXDelta, toXDelta, fromYDelta, toYDelta));
+		}
+		//动画集的持续时间会覆盖所有子动画的
+		animationSet.setDuration(duration);
+		return animationSet;
+	}
+}
@@ -0,0 +1,371 @@
+/*
+ * Copyright (C) 2013 Peng fei Pan <sky@xiaopan.me>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.xiaopan.android.flowtext;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import me.xiaopan.android.flowtext.FlowText.Keyword;
+import me.xiaopan.android.flowtext.TextLayoutCache.WrappedText;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+/**
+ * 关键字图集，把每个关键字连同阴影按照最终的文字大小和颜色预先绘制到一张共享的位图上，动画期间只需带着变换绘制位图上的对应区域
+ * <br>按动画中最大的缩放比例放大绘制，绘制时再缩小，放大的帧也不会模糊
+ * <br>按行依次排放，只有文字、文字大小或颜色变化的关键字才需要重新绘制，放不下时整张重新排放
+ */
+class KeywordAtlas {
+	/**
+	 * 图集的最大宽度和高度，超出的关键字不放入图集，直接绘制文字
+	 */
+	static final int MAX_SIZE = 2048;
+	/**
+	 * 最大的放大比例，动画中放得更大的话那些帧直接绘制文字
+	 */
+	static final float MAX_SCALE = 3.0f;
+	/**
+	 * 图集
+	 */
+	private Bitmap bitmap;
+	/**
+	 * 在图集上绘制用的画布
+	 */
+	private Canvas atlasCanvas;
+	/**
+	 * 已经绘制的区域，按（文字、文字大小、颜色、换行宽度）索引
+	 */
+	private Map<RegionKey, Rect> regionMap;
+	/**
+	 * 查找区域时用的键，复用以免每次查找都分配
+	 */
+	private RegionKey lookupKey;
+	/**
+	 * 每个显示的关键字对应的区域，为null的话表示太大了没有放入图集
+	 */
+	private Rect[] keywordRegions;
+	/**
+	 * 上次检查时每个显示的关键字的名字、文字大小、颜色和换行结果，用来发现变化
+	 */
+	private String[] names;
+	private float[] textSizes;
+	private int[] textColors;
+	private WrappedText[] wrappedTexts;
+	/**
+	 * 上次检查时显示的关键字的个数
+	 */
+	private int keywordCount;
+	/**
+	 * 每个区域四周为阴影留出的空白
+	 */
+	private int padding;
+	/**
+	 * 绘制到图集上时的放大比例
+	 */
+	private float scale = 1.0f;
+	/**
+	 * 当前行的X、Y坐标和高度
+	 */
+	private int shelfX;
+	private int shelfY;
+	private int shelfHeight;
+	/**
+	 * 绘制时用的目标区域
+	 */
+	private RectF drawRect;
+	/**
+	 * 绘制文字时用来获取字体高度
+	 */
+	private Paint.FontMetrics fontMetrics;
+	
+	KeywordAtlas(){
+		regionMap = new HashMap<RegionKey, Rect>();
+		lookupKey = new RegionKey();
+		keywordRegions = new Rect[0];
+		names = new String[0];
+		textSizes = new float[0];
+		textColors = new int[0];
+		wrappedTexts = new WrappedText[0];
+		drawRect = new RectF();
+		fontMetrics = new Paint.FontMetrics();
+	}
+	
+	/**
+	 * 检查给定的关键字列表，绘制尚未放入图集的关键字，每帧调用也只是逐个比较
+	 * @param keywordList 显示的关键字列表
+	 * @param paint 绘制用的画笔，已经设置好阴影
+	 * @param padding 每个区域四周为阴影留出的空白
+	 * @param scale 绘制到图集上时的放大比例，一般是动画中最大的缩放比例，不能超过MAX_SCALE
+	 * @param preferredWidth 图集的期望宽度，一般是容器的宽度
+	 */
+	void update(List<Keyword> keywordList, Paint paint, int padding, float scale, int preferredWidth){
+		//阴影或放大比例变了的话所有的区域都要重新绘制
+		if(padding != this.padding || scale != this.scale){
+			this.padding = padding;
+			this.scale = scale;
+			invalidate();
+		}
+		int count = keywordList.size();
+		ensureCapacity(count);
+		boolean missing = false;
+		for(int w = 0; w < count; w++){
+			Keyword keyword = keywordList.get(w);
+			if(w < keywordCount && names[w].equals(keyword.getName()) && textSizes[w] == keyword.getTextSize() && textColors[w] == keyword.getTextColor() && wrappedTexts[w] == keyword.getWrappedText()){
+				continue;
+			}
+			names[w] = keyword.getName();
+			textSizes[w] = keyword.getTextSize();
+			textColors[w] = keyword.getTextColor();
+			wrappedTexts[w] = keyword.getWrappedText();
+			keywordRegions[w] = regionMap.get(lookupKey.set(keyword));
+			if(keywordRegions[w] == null){
+				keywordRegions[w] = allocate(keyword, paint);
+				if(keywordRegions[w] == null){
+					missing = true;
+				}
+			}
+		}
+		keywordCount = count;
+		
+		//剩余的空间放不下的话整张重新排放，只保留当前显示的关键字
+		if(missing){
+			repack(keywordList, paint, preferredWidth);
+		}
+	}
+	
+	/**
+	 * 在给定的画布上绘制给定位置的关键字，画布已经平移到关键字的左上角并应用了变换
+	 * @param canvas 画布
+	 * @param index 关键字在显示列表中的位置
+	 * @param paint 绘制位图用的画笔，已经设置好透明度
+	 * @return false：这个关键字没有放入图集，需要直接绘制文字
+	 */
+	boolean draw(Canvas canvas, int index, Paint paint){
+		Rect region = index < keywordCount ? keywordRegions[index] : null;
+		if(region == null || bitmap == null){
+			return false;
+		}
+		//区域是放大绘制的，缩小回原来的尺寸
+		drawRect.set(-padding, -padding, region.width() / scale - padding, region.height() / scale - padding);
+		canvas.drawBitmap(bitmap, region, drawRect, paint);
+		return true;
+	}
+	
+	/**
+	 * 丢弃所有已经绘制的区域，下次检查时重新绘制
+	 */
+	void invalidate(){
+		regionMap.clear();
+		keywordCount = 0;
+		shelfX = 0;
+		shelfY = 0;
+		shelfHeight = 0;
+		if(bitmap != null){
+			bitmap.eraseColor(0);
+		}
+	}
+	
+	/**
+	 * 释放图集，下次检查时重新创建
+	 */
+	void release(){
+		invalidate();
+		if(bitmap != null){
+			bitmap.recycle();
+			bitmap = null;
+			atlasCanvas = null;
+		}
+	}
+	
+	/**
+	 * 整张重新排放，图集的尺寸按照当前显示的关键字重新计算
+	 * @param keywordList 显示的关键字列表
+	 * @param paint 绘制用的画笔
+	 * @param preferredWidth 图集的期望宽度
+	 */
+	private void repack(List<Keyword> keywordList, Paint paint, int preferredWidth){
+		//先模拟排放一遍算出需要的高度
+		int width = Math.max((int) (preferredWidth * scale), 1);
+		for(int w = 0; w < keywordList.size(); w++){
+			width = Math.max(width, getCellWidth(keywordList.get(w), paint));
+		}
+		width = Math.min(width, MAX_SIZE);
+		int x = 0, y = 0, rowHeight = 0;
+		for(int w = 0; w < keywordList.size(); w++){
+			Keyword keyword = keywordList.get(w);
+			int cellWidth = getCellWidth(keyword, paint);
+			int cellHeight = getCellHeight(keyword, paint);
+			if(x + cellWidth > width){
+				x = 0;
+				y += rowHeight;
+				rowHeight = 0;
+			}
+			x += cellWidth;
+			rowHeight = Math.max(rowHeight, cellHeight);
+		}
+		int height = Math.min(Math.max(y + rowHeight, 1), MAX_SIZE);
+		
+		//尺寸合适的话复用已有的位图
+		if(bitmap == null || bitmap.getWidth() != width || bitmap.getHeight() < height){
+			if(bitmap != null){
+				bitmap.recycle();
+			}
+			bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+			atlasCanvas = new Canvas(bitmap);
+		}
+		invalidate();
+		for(int w = 0; w < keywordList.size(); w++){
+			Keyword keyword = keywordList.get(w);
+			Rect region = regionMap.get(lookupKey.set(keyword));
+			keywordRegions[w] = region != null ? region : allocate(keyword, paint);
+		}
+		keywordCount = keywordList.size();
+	}
+	
+	/**
+	 * 在当前行或者新的一行中为给定的关键字分配区域并绘制
+	 * @param keyword 关键字
+	 * @param paint 绘制用的画笔
+	 * @return 分配的区域，放不下的话返回null
+	 */
+	private Rect allocate(Keyword keyword, Paint paint){
+		if(bitmap == null){
+			return null;
+		}
+		int cellWidth = getCellWidth(keyword, paint);
+		int cellHeight = getCellHeight(keyword, paint);
+		if(shelfX + cellWidth > bitmap.getWidth()){
+			shelfX = 0;
+			shelfY += shelfHeight;
+			shelfHeight = 0;
+		}
+		if(cellWidth > bitmap.getWidth() || shelfY + cellHeight > bitmap.getHeight()){
+			return null;
+		}
+		Rect region = new Rect(shelfX, shelfY, shelfX + cellWidth, shelfY + cellHeight);
+		shelfX += cellWidth;
+		shelfHeight = Math.max(shelfHeight, cellHeight);
+		
+		//连同阴影一起放大绘制到图集上，颜色不透明，透明度在绘制位图时设置
+		paint.setTextSize(keyword.getTextSize());
+		paint.setColor(keyword.getTextColor());
+		atlasCanvas.save();
+		atlasCanvas.translate(region.left, region.top);
+		atlasCanvas.scale(scale, scale);
+		atlasCanvas.translate(padding, padding);
+		if(keyword.getWrappedText() != null){
+			//换行的关键字用图集的画笔逐行绘制，不修改缓存中的数据
+			keyword.getWrappedText().draw(atlasCanvas, paint);
+		}else{
+			paint.getFontMetrics(fontMetrics);
+			atlasCanvas.drawText(keyword.getName(), 0, -fontMetrics.top, paint);
+		}
+		atlasCanvas.restore();
+		regionMap.put(new RegionKey().set(keyword), region);
+		return region;
+	}
+	
+	private int getCellWidth(Keyword keyword, Paint paint){
+		float width;
+		if(keyword.getWrappedText() != null){
+			width = keyword.getWrappedText().getWidth();
+		}else{
+			paint.setTextSize(keyword.getTextSize());
+			width = paint.measureText(keyword.getName());
+		}
+		return (int) Math.ceil((width + (padding << 1)) * scale);
+	}
+	
+	private int getCellHeight(Keyword keyword, Paint paint){
+		float height;
+		if(keyword.getWrappedText() != null){
+			height = keyword.getWrappedText().getHeight();
+		}else{
+			paint.setTextSize(keyword.getTextSize());
+			paint.getFontMetrics(fontMetrics);
+			height = fontMetrics.bottom - fontMetrics.top;
+		}
+		return (int) Math.ceil((height + (padding << 1)) * scale);
+	}
+	
+	private void ensureCapacity(int count){
+		if(keywordRegions.length < count){
+			int capacity = Math.max(count, keywordRegions.length << 1);
+			Rect[] newRegions = new Rect[capacity];
+			String[] newNames = new String[capacity];
+			float[] newTextSizes = new float[capacity];
+			int[] newTextColors = new int[capacity];
+			WrappedText[] newWrappedTexts = new WrappedText[capacity];
+			System.arraycopy(keywordRegions, 0, newRegions, 0, keywordCount);
+			System.arraycopy(names, 0, newNames, 0, keywordCount);
+			System.arraycopy(textSizes, 0, newTextSizes, 0, keywordCount);
+			System.arraycopy(textColors, 0, newTextColors, 0, keywordCount);
+			System.arraycopy(wrappedTexts, 0, newWrappedTexts, 0, keywordCount);
+			keywordRegions = newRegions;
+			names = newNames;
+			textSizes = newTextSizes;
+			textColors = newTextColors;
+			wrappedTexts = newWrappedTexts;
+		}
+	}
+	
+	/**
+	 * 区域的键，按（文字、文字大小、颜色、换行宽度）比较
+	 */
+	private static class RegionKey{
+		private String text;
+		private float textSize;
+		private int textColor;
+		private int wrapWidth;
+		private int hashCode;
+		
+		public RegionKey set(Keyword keyword){
+			this.text = keyword.getName();
+			this.textSize = keyword.getTextSize();
+			this.textColor = keyword.getTextColor();
+			this.wrapWidth = keyword.getWrappedText() != null ? keyword.getWrappedText().getWidth() : 0;
+			int result = text.hashCode();
+			result = 31 * result + Float.floatToIntBits(textSize);
+			result = 31 * result + textColor;
+			result = 31 * result + wrapWidth;
+			this.hashCode = result;
+			return this;
+		}
+		
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+		
+		@Override
+		public boolean equals(Object o) {
+			if(this == o){
+				return true;
+			}
+			if(!(o instanceof RegionKey)){
+				return false;
+			}
+			RegionKey other = (RegionKey) o;
+			return hashCode == other.hashCode && textSize == other.textSize && textColor == other.textColor 
+					&& wrapWidth == other.wrapWidth && text.equals(other.text);
+		}
+	}
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2013 Peng fei Pan <sky@xiaopan.me>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.xiaopan.android.flowtext;
+
+/**
+ * 关键字流缓冲区，按顺序暂存增加和删除关键字的操作，每帧或者每次过渡动画时一次性应用
+ * <br>容量固定，用环形数组存放，满了之后按照溢出策略丢弃最早的或者最新的操作
+ * <br>没有同步，只能在主线程使用
+ */
+class KeywordFeedBuffer {
+	/**
+	 * 增加关键字
+	 */
+	static final byte OP_OFFER = 1;
+	/**
+	 * 删除关键字
+	 */
+	static final byte OP_REMOVE = 2;
+	
+	private byte[] ops;
+	private String[] names;
+	private float[] weights;
+	/**
+	 * 最早的操作的位置
+	 */
+	private int head;
+	/**
+	 * 操作的个数
+	 */
+	private int size;
+	/**
+	 * 因为溢出而丢弃的操作的个数
+	 */
+	private int droppedCount;
+	
+	KeywordFeedBuffer(int capacity){
+		setCapacity(capacity);
+	}
+	
+	/**
+	 * 添加一个操作
+	 * @param op OP_OFFER或OP_REMOVE
+	 * @param name 关键字名字
+	 * @param weight 权重，删除时忽略
+	 * @param overflowPolicy 满了之后的溢出策略
+	 * @return false：满了并且溢出策略是丢弃最新的
+	 */
+	boolean add(byte op, String name, float weight, FlowText.FeedOverflowPolicy overflowPolicy){
+		if(ops.length == 0){
+			droppedCount++;
+			return false;
+		}
+		if(size == ops.length){
+			droppedCount++;
+			if(overflowPolicy == FlowText.FeedOverflowPolicy.DROP_NEWEST){
+				return false;
+			}
+			names[head] = null;
+			head = (head + 1) % ops.length;
+			size--;
+		}
+		int index = (head + size) % ops.length;
+		ops[index] = op;
+		names[index] = name;
+		weights[index] = weight;
+		size++;
+		return true;
+	}
+	
+	int size(){
+		return size;
+	}
+	
+	/**
+	 * 获取给定顺序的操作
+	 * @param position 顺序，0是最早的
+	 */
+	byte getOp(int position){
+		return ops[(head + position) % ops.length];
+	}
+	
+	String getName(int position){
+		return names[(head + position) % ops.length];
+	}
+	
+	float getWeight(int position){
+		return weights[(head + position) % ops.length];
+	}
+	
+	/**
+	 * 清空所有的操作
+	 */
+	void clear(){
+		for(int w = 0; w < size; w++){
+			names[(head + w) % ops.length] = null;
+		}
+		head = 0;
+		size = 0;
+	}
+	
+	/**
+	 * 获取因为溢出而丢弃的操作的个数
+	 * @return 累计丢弃的操作的个数
+	 */
+	int getDroppedCount(){
+		return droppedCount;
+	}
+	
+	int getCapacity(){
+		return ops.length;
+	}
+	
+	/**
+	 * 设置容量，已有的操作超出新的容量的话丢弃最早的
+	 * @param capacity 容量
+	 */
+	void setCapacity(int capacity){
+		capacity = Math.max(capacity, 0);
+		byte[] newOps = new byte[capacity];
+		String[] newNames = new String[capacity];
+		float[] newWeights = new float[capacity];
+		int keep = Math.min(size, capacity);
+		int skip = size - keep;
+		for(int w = 0; w < keep; w++){
+			int index = (head + skip + w) % ops.length;
+			newOps[w] = ops[index];
+			newNames[w] = names[index];
+			newWeights[w] = weights[index];
+		}
+		droppedCount += skip;
+		ops = newOps;
+		names = newNames;
+		weights = newWeights;
+		head = 0;
+		size = keep;
+	}
+}
@@ -0,0 +1,319 @@
+/*
+ * Copyright (C) 2013 Peng fei Pan <sky@xiaopan.me>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.xiaopan.android.flowtext;
+
+import java.util.List;
+import java.util.Random;
+
+import me.xiaopan.android.flowtext.FlowText.Keyword;
+import android.graphics.Canvas;
+
+/**
+ * 漂流模式，保存漂流场、碰撞检测网格、替换游标和计时，负责初始化、推进、替换和绘制漂流中的关键字
+ * <br>漂流期间关键字的位置只保存在漂流场中，停止时才写回关键字。每帧由FlowText安排，只在主线程中使用
+ */
+class KeywordFlow {
+	/**
+	 * 显示的关键字，和漂流场一一对应
+	 */
+	private List<Keyword> displayKeywordList;
+	/**
+	 * 没有显示的关键字，依次用来替换淡出的关键字
+	 */
+	private List<Keyword> unplacedKeywordList;
+	/**
+	 * 每个显示的关键字的位置、速度和透明度
+	 */
+	private FlowField flowField;
+	/**
+	 * 碰撞检测网格
+	 */
+	private CollisionGrid collisionGrid;
+	/**
+	 * 每帧完全淡出的关键字的位置
+	 */
+	private int[] fadedIndexes;
+	/**
+	 * 下一个用来替换的没有显示的关键字的位置，被替换下来的关键字放回这个位置，依次轮换
+	 */
+	private int replaceCursor;
+	/**
+	 * 关键字的最大速度，单位像素每秒
+	 */
+	private float speed;
+	/**
+	 * 关键字碰到边缘时的处理方式
+	 */
+	private FlowField.Edge edge;
+	/**
+	 * 每隔多长时间替换一个关键字
+	 */
+	private long replaceInterval;
+	/**
+	 * 是否处理关键字之间的碰撞
+	 */
+	private boolean collisionEnabled;
+	/**
+	 * 是否已经开始
+	 */
+	private boolean running;
+	/**
+	 * 漂流场是否已经按照当前显示的关键字初始化了
+	 */
+	private boolean initialized;
+	/**
+	 * 上一帧的时间
+	 */
+	private long lastFrameTime;
+	/**
+	 * 距离上次替换关键字过去的时间
+	 */
+	private long replaceElapsed;
+	
+	/**
+	 * 创建漂流模式
+	 * @param displayKeywordList 显示的关键字列表，替换时会修改
+	 * @param unplacedKeywordList 没有显示的关键字列表，替换时会修改
+	 */
+	public KeywordFlow(List<Keyword> displayKeywordList, List<Keyword> unplacedKeywordList){
+		this.displayKeywordList = displayKeywordList;
+		this.unplacedKeywordList = unplacedKeywordList;
+		this.flowField = new FlowField();
+		this.collisionGrid = new CollisionGrid();
+		this.fadedIndexes = new int[0];
+	}
+	
+	/**
+	 * 开始漂流，漂流场要等到init()时才按照显示的关键字初始化
+	 * @return false：已经开始了
+	 */
+	public boolean start(){
+		if(running){
+			return false;
+		}
+		running = true;
+		initialized = false;
+		flowField.setCount(0);
+		return true;
+	}
+	
+	/**
+	 * 停止漂流，把漂流场中的位置写回关键字
+	 * @return false：还没有开始
+	 */
+	public boolean stop(){
+		if(!running){
+			return false;
+		}
+		running = false;
+		if(initialized){
+			for(int w = 0; w < flowField.getCount(); w++){
+				Keyword keyword = displayKeywordList.get(w);
+				keyword.setLeftMargin((int) flowField.getX(w));
+				keyword.setTopMargin((int) flowField.getY(w));
+			}
+		}
+		initialized = false;
+		flowField.setCount(0);
+		collisionGrid.clear();
+		return true;
+	}
+	
+	/**
+	 * 按照当前显示的关键字初始化漂流场，正在显示的关键字从原位置开始漂流，否则淡入
+	 * @param shown 关键字是否正在显示
+	 * @param fade 透明度每秒变化多少
+	 * @param random 随机器
+	 */
+	public void init(boolean shown, float fade, Random random){
+		int count = displayKeywordList.size();
+		flowField.setCount(count);
+		if(fadedIndexes.length < count){
+			fadedIndexes = new int[count];
+		}
+		for(int w = 0; w < count; w++){
+			Keyword keyword = displayKeywordList.get(w);
+			flowField.setBounds(w, keyword.getLeftMargin(), keyword.getTopMargin(), keyword.getWidth(), keyword.getHeight());
+			flowField.setRandomVelocity(w, speed, random);
+			flowField.setAlpha(w, shown ? 1 : 0, shown ? 0 : fade);
+		}
+		lastFrameTime = 0;
+		replaceElapsed = 0;
+		replaceCursor = 0;
+		initialized = true;
+	}
+	
+	/**
+	 * 推进一帧，移动关键字、替换完全淡出的关键字并处理碰撞，每帧不分配任何对象
+	 * @param frameTime 这一帧的时间，单位毫秒
+	 * @param width 容器的宽
+	 * @param height 容器的高
+	 * @param fade 透明度每秒变化多少
+	 * @param random 随机器
+	 * @param cycleMetrics 统计碰撞检测的耗时，为null时不统计
+	 */
+	public void step(long frameTime, int width, int height, float fade, Random random, CycleMetrics cycleMetrics){
+		//两帧之间最多按50毫秒推进，以免暂停之后跳得太远
+		long elapsed = lastFrameTime > 0 ? Math.min(frameTime - lastFrameTime, 50) : 0;
+		lastFrameTime = frameTime;
+		int fadedCount = flowField.step(elapsed / 1000f, width, height, edge, fadedIndexes);
+		for(int w = 0; w < fadedCount; w++){
+			replace(fadedIndexes[w], width, height, fade, random);
+		}
+		
+		//推开重叠的关键字
+		if(collisionEnabled){
+			long startTime = cycleMetrics != null ? System.nanoTime() : 0;
+			collisionGrid.resolve(flowField, width, height);
+			if(cycleMetrics != null){
+				cycleMetrics.collisionNanos += System.nanoTime() - startTime;
+				cycleMetrics.collisionPairCount += collisionGrid.getPairCount();
+				cycleMetrics.collisionCount += collisionGrid.getCollisionCount();
+			}
+		}
+		
+		//定期淡出一个关键字，完全淡出之后替换
+		replaceElapsed += elapsed;
+		if(replaceInterval > 0 && replaceElapsed >= replaceInterval && flowField.getCount() > 0){
+			replaceElapsed = 0;
+			int index = random.nextInt(flowField.getCount());
+			if(!flowField.isFading(index)){
+				flowField.setAlpha(index, flowField.getAlpha(index), -fade);
+			}
+		}
+	}
+	
+	/**
+	 * 用没有显示的关键字替换已经完全淡出的关键字，没有的话换个位置重新淡入
+	 * <br>没有显示的关键字按游标依次取出，被替换下来的放回同一个位置，效果和从队首取出、放回队尾一样，但不需要移动列表
+	 * @param index 关键字在显示列表中的位置
+	 */
+	private void replace(int index, int width, int height, float fade, Random random){
+		Keyword keyword = displayKeywordList.get(index);
+		if(unplacedKeywordList.size() > 0){
+			if(replaceCursor >= unplacedKeywordList.size()){
+				replaceCursor = 0;
+			}
+			Keyword nextKeyword = unplacedKeywordList.set(replaceCursor, keyword);
+			replaceCursor++;
+			displayKeywordList.set(index, nextKeyword);
+			keyword = nextKeyword;
+		}
+		float x = random.nextFloat() * Math.max(width - keyword.getWidth(), 0);
+		float y = random.nextFloat() * Math.max(height - keyword.getHeight(), 0);
+		flowField.setBounds(index, x, y, keyword.getWidth(), keyword.getHeight());
+		flowField.setRandomVelocity(index, speed, random);
+		flowField.setAlpha(index, 0, fade);
+	}
+	
+	/**
+	 * 在各自的当前位置绘制所有可见的关键字
+	 * @param canvas 画布
+	 * @param keywordDrawer 在已经平移到关键字左上角的画布上绘制单个关键字
+	 */
+	public void draw(Canvas canvas, KeywordDrawer keywordDrawer){
+		for(int w = 0; w < flowField.getCount(); w++){
+			float alpha = flowField.getAlpha(w);
+			if(alpha <= 0){
+				continue;
+			}
+			int saveCount = canvas.save();
+			canvas.translate(flowField.getX(w), flowField.getY(w));
+			keywordDrawer.drawKeyword(canvas, w, displayKeywordList.get(w), alpha);
+			canvas.restoreToCount(saveCount);
+		}
+	}
+	
+	/**
+	 * 按照漂流场中的当前位置查找包含给定坐标的可见关键字，后绘制的优先
+	 * @param x X轴坐标
+	 * @param y Y轴坐标
+	 * @return 包含给定坐标的关键字，没有的话返回null
+	 */
+	public Keyword findKeyword(float x, float y){
+		for(int w = flowField.getCount() - 1; w >= 0; w--){
+			Keyword keyword = displayKeywordList.get(w);
+			float left = flowField.getX(w);
+			float top = flowField.getY(w);
+			if(flowField.getAlpha(w) > 0 && x >= left && x < left + keyword.getWidth() && y >= top && y < top + keyword.getHeight()){
+				return keyword;
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * 暂停之后重新开始计时，下一帧不推进
+	 */
+	public void resetFrameTime(){
+		lastFrameTime = 0;
+	}
+	
+	public boolean isRunning() {
+		return running;
+	}
+	
+	public boolean isInitialized() {
+		return initialized;
+	}
+
+	public float getSpeed() {
+		return speed;
+	}
+
+	public void setSpeed(float speed) {
+		this.speed = speed;
+	}
+
+	public FlowField.Edge getEdge() {
+		return edge;
+	}
+
+	public void setEdge(FlowField.Edge edge) {
+		this.edge = edge;
+	}
+
+	public long getReplaceInterval() {
+		return replaceInterval;
+	}
+
+	public void setReplaceInterval(long replaceInterval) {
+		this.replaceInterval = replaceInterval;
+	}
+
+	public boolean isCollisionEnabled() {
+		return collisionEnabled;
+	}
+
+	public void setCollisionEnabled(boolean collisionEnabled) {
+		this.collisionEnabled = collisionEnabled;
+	}
+	
+	/**
+	 * 绘制单个关键字
+	 */
+	interface KeywordDrawer{
+		/**
+		 * 在已经平移到关键字左上角的画布上绘制给定的关键字
+		 * @param canvas 画布
+		 * @param index 关键字在显示列表中的位置
+		 * @param keyword 关键字
+		 * @param alpha 透明度
+		 */
+		void drawKeyword(Canvas canvas, int index, Keyword keyword, float alpha);
+	}
+}
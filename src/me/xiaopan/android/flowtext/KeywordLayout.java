@@ -0,0 +1,338 @@
+/*
+ * Copyright (C) 2013 Peng fei Pan <sky@xiaopan.me>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.xiaopan.android.flowtext;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import me.xiaopan.android.flowtext.FlowText.Keyword;
+import me.xiaopan.android.flowtext.TextLayoutCache.WrappedText;
+import android.graphics.Paint;
+import android.os.Process;
+import android.text.TextPaint;
+import android.util.DisplayMetrics;
+import android.util.TypedValue;
+
+/**
+ * 关键字布局，根据创建时的关键字和容器尺寸的快照计算每个关键字的文字大小、颜色、尺寸和坐标
+ * <br>计算过程只读写自己的数组，不会修改关键字对象，因此可以在后台线程中执行，计算结果由FlowText在主线程中应用
+ */
+class KeywordLayout implements Runnable {
+	/**
+	 * 默认的后台布局执行器
+	 */
+	private static Executor defaultExecutor;
+	/**
+	 * 创建时的布局版本号，用来判断结果是否已经过期
+	 */
+	final int generation;
+	/**
+	 * 创建时的关键字快照
+	 */
+	final Keyword[] keywords;
+	/**
+	 * 关键字的名字
+	 */
+	final String[] names;
+	/**
+	 * 关键字的权重
+	 */
+	private final float[] weights;
+	int containerWidth;
+	int containerHeight;
+	int textSizeMin;
+	int textSizeMax;
+	int textShadowRadius;
+	int textShadowDX;
+	int textShadowDY;
+	/**
+	 * 用来将SP转换成像素
+	 */
+	DisplayMetrics displayMetrics;
+	/**
+	 * 测量用的画笔
+	 */
+	TextPaint paint;
+	/**
+	 * 文字测量缓存，为null时每次都重新测量
+	 */
+	TextMeasureCache textMeasureCache;
+	/**
+	 * 文字排版缓存，为null时每次都重新换行
+	 */
+	TextLayoutCache textLayoutCache;
+	/**
+	 * 关键字的最大宽度，超出的话换行，小于等于0时不换行
+	 */
+	int keywordMaxWidth;
+	/**
+	 * 关键字布局器，为null时按平均宽、高随机分配坐标
+	 */
+	KeywordPlacer keywordPlacer;
+	Random random;
+	/**
+	 * 按权重计算文字大小时用的文字大小表，单位像素，从小到大排列，为null时随机选择文字大小
+	 */
+	float[] textSizeTable;
+	/**
+	 * 按权重计算文字大小时，权重的取值范围，最小值大于最大值时根据快照中的关键字计算
+	 */
+	float minWeight = Float.MAX_VALUE;
+	float maxWeight = -Float.MAX_VALUE;
+	/**
+	 * 按权重计算文字大小时，文字大小表的缩放比例。place()会搜索能让所有关键字都放得下的最大的缩放比例并更新它
+	 */
+	float scale = 1;
+	/**
+	 * 计算完成后执行，可以为null
+	 */
+	Runnable onComputedRunnable;
+	/**
+	 * 是否已经计算完毕，在后台线程中写入，在主线程中读取
+	 */
+	volatile boolean computed;
+	/**
+	 * 异步刷新执行完毕时的回调，可以为null
+	 */
+	FlowText.OnTransitionListener onTransitionListener;
+	/**
+	 * 是否统计耗时
+	 */
+	boolean timed;
+	/**
+	 * 测量文字的耗时，单位纳秒，只在timed为true时统计
+	 */
+	long measureNanos;
+	
+	/* 计算结果 */
+	float[] textSizes;
+	int[] textColors;
+	int[] widths;
+	int[] heights;
+	/**
+	 * 换行宽度，0表示不换行
+	 */
+	int[] wrapWidths;
+	/**
+	 * 测量时换好行的文字，不需要换行的为null；从布局缓存中恢复的布局没有这一项，按wrapWidths重新取
+	 */
+	WrappedText[] wrappedTexts;
+	int[] lefts;
+	int[] tops;
+	int averageWidth;
+	int averageHeight;
+	private Paint.FontMetrics fontMetrics;
+	private float[] measureSize;
+	
+	/**
+	 * 创建关键字布局
+	 * @param generation 布局版本号
+	 * @param keywordList 关键字列表，会复制一份
+	 */
+	KeywordLayout(int generation, List<Keyword> keywordList){
+		this.generation = generation;
+		this.keywords = keywordList.toArray(new Keyword[keywordList.size()]);
+		this.names = new String[keywords.length];
+		this.weights = new float[keywords.length];
+		for(int w = 0; w < keywords.length; w++){
+			names[w] = keywords[w].getName();
+			weights[w] = keywords[w].getWeight();
+		}
+	}
+	
+	/**
+	 * 获取默认的后台布局执行器，只有一个低优先级的守护线程，所有的FlowText共用
+	 * @return 默认的后台布局执行器
+	 */
+	static synchronized Executor getDefaultExecutor(){
+		if(defaultExecutor == null){
+			defaultExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(final Runnable runnable) {
+					Thread thread = new Thread(new Runnable() {
+						@Override
+						public void run() {
+							Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+							runnable.run();
+						}
+					}, "FlowText-Layout");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return defaultExecutor;
+	}
+	
+	@Override
+	public void run() {
+		measure();
+		place();
+		computed = true;
+		if(onComputedRunnable != null){
+			onComputedRunnable.run();
+		}
+	}
+	
+	/**
+	 * 为每个关键字选择文字大小和颜色并测量其实际尺寸
+	 */
+	void measure(){
+		TraceCompat.beginSection("FlowText.measure");
+		long startTime = timed ? System.nanoTime() : 0;
+		int count = keywords.length;
+		textSizes = new float[count];
+		textColors = new int[count];
+		widths = new int[count];
+		heights = new int[count];
+		wrapWidths = new int[count];
+		wrappedTexts = new WrappedText[count];
+		measureSize = new float[2];
+		if(textSizeTable != null && minWeight > maxWeight){
+			for(float weight : weights){
+				minWeight = Math.min(minWeight, weight);
+				maxWeight = Math.max(maxWeight, weight);
+			}
+		}
+		for(int w = 0; w < count; w++){
+			if(textSizeTable != null){
+				textSizes[w] = textSizeTable[getTextSizeLevel(weights[w])] * scale;
+			}else{
+				textSizes[w] = TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, textSizeMin + random.nextInt(textSizeMax - textSizeMin), displayMetrics);
+			}
+			textColors[w] = 0xff000000 | random.nextInt(0x0077ffff);
+			measureKeyword(w);
+		}
+		if(timed){
+			measureNanos += System.nanoTime() - startTime;
+		}
+		TraceCompat.endSection();
+	}
+	
+	/**
+	 * 按照当前的文字大小测量给定的关键字，太长的话用同样的文字大小按最大宽度换行，用换行之后的实际尺寸布局
+	 * @param index 关键字的位置
+	 */
+	private void measureKeyword(int index){
+		paint.setTextSize(textSizes[index]);
+		//优先从文字测量缓存中取
+		if(textMeasureCache != null){
+			textMeasureCache.measure(paint, names[index], textShadowRadius, textShadowDX, textShadowDY, measureSize);
+		}else{
+			if(fontMetrics == null){
+				fontMetrics = new Paint.FontMetrics();
+			}
+			paint.getFontMetrics(fontMetrics);
+			measureSize[0] = paint.measureText(names[index]);
+			measureSize[1] = fontMetrics.bottom - fontMetrics.top;
+		}
+		widths[index] = (int)Math.ceil(measureSize[0]);
+		heights[index] = (int)Math.ceil(measureSize[1]);
+		wrapWidths[index] = 0;
+		wrappedTexts[index] = null;
+		if(keywordMaxWidth > 0 && widths[index] > keywordMaxWidth){
+			wrapWidths[index] = keywordMaxWidth;
+			wrappedTexts[index] = wrapText(index);
+			widths[index] = wrappedTexts[index].getWidth();
+			heights[index] = wrappedTexts[index].getHeight();
+		}
+	}
+	
+	/**
+	 * 用给定关键字的文字大小和换行宽度换行，测量和显示都通过这里取换好行的文字，保证两者一致
+	 * @param index 关键字的位置
+	 * @return 换好行的文字
+	 */
+	private WrappedText wrapText(int index){
+		paint.setTextSize(textSizes[index]);
+		return textLayoutCache != null ? textLayoutCache.obtain(paint, names[index], wrapWidths[index]) : TextLayoutCache.create(paint, names[index], wrapWidths[index]);
+	}
+	
+	/**
+	 * 获取给定关键字换好行的文字，测量时换过行的直接返回，从布局缓存中恢复的按同样的文字大小和换行宽度重新取，一般会命中文字排版缓存
+	 * @param index 关键字的位置
+	 * @return 换好行的文字，不需要换行时为null
+	 */
+	WrappedText getWrappedText(int index){
+		if(wrapWidths[index] <= 0){
+			return null;
+		}
+		if(wrappedTexts == null || wrappedTexts[index] == null){
+			if(wrappedTexts == null){
+				wrappedTexts = new WrappedText[wrapWidths.length];
+			}
+			wrappedTexts[index] = wrapText(index);
+		}
+		return wrappedTexts[index];
+	}
+	
+	/**
+	 * 根据权重在文字大小表中选择一个级别，按对数比例分布，权重相同时选择中间的级别
+	 * @param weight 权重
+	 * @return 文字大小表中的位置
+	 */
+	private int getTextSizeLevel(float weight){
+		double low = Math.log1p(Math.max(0, minWeight));
+		double high = Math.log1p(Math.max(0, maxWeight));
+		double ratio = high > low ? (Math.log1p(Math.max(0, weight)) - low) / (high - low) : 0.5;
+		int level = (int) Math.round(ratio * (textSizeTable.length - 1));
+		return level < 0 ? 0 : (level >= textSizeTable.length ? textSizeTable.length - 1 : level);
+	}
+	
+	/**
+	 * 为每个关键字分配坐标，放不下的关键字的坐标为KeywordPlacer.NOT_PLACED。按权重计算文字大小时先搜索能让所有关键字都放得下的最大的缩放比例
+	 */
+	void place(){
+		TraceCompat.beginSection("FlowText.place");
+		int count = keywords.length;
+		lefts = new int[count];
+		tops = new int[count];
+		//设置平均宽、高
+		averageWidth = containerWidth / count;
+		averageHeight = containerHeight / count;
+		KeywordLayoutEngine keywordLayoutEngine = new KeywordLayoutEngine(keywordPlacer);
+		if(textSizeTable != null){
+			float fitScale = keywordLayoutEngine.fit(count, widths, heights, containerWidth, containerHeight, random, lefts, tops);
+			//按缩放之后的文字大小重新测量，换行宽度不随文字缩放，超出最大宽度的关键字按缩放之后的文字大小重新换行
+			long startTime = timed ? System.nanoTime() : 0;
+			boolean grown = false;
+			for(int w = 0; w < count; w++){
+				textSizes[w] *= fitScale;
+				int estimatedWidth = KeywordLayoutEngine.scaleExtent(widths[w], fitScale);
+				int estimatedHeight = KeywordLayoutEngine.scaleExtent(heights[w], fitScale);
+				measureKeyword(w);
+				if(widths[w] > estimatedWidth || heights[w] > estimatedHeight){
+					grown = true;
+				}
+			}
+			if(timed){
+				measureNanos += System.nanoTime() - startTime;
+			}
+			//重新换行之后比估算的大的话原来的坐标可能重叠，按实际尺寸重新放置
+			if(grown){
+				keywordLayoutEngine.place(count, widths, heights, containerWidth, containerHeight, random, lefts, tops);
+			}
+			scale *= fitScale;
+		}else{
+			keywordLayoutEngine.place(count, widths, heights, containerWidth, containerHeight, random, lefts, tops);
+		}
+		TraceCompat.endSection();
+	}
+}
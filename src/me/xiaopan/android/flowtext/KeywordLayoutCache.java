@@ -0,0 +1,413 @@
+/*
+ * Copyright (C) 2013 Peng fei Pan <sky@xiaopan.me>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.xiaopan.android.flowtext;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import android.os.Parcel;
+
+/**
+ * 关键字布局缓存，按（关键字集合、容器的宽和高、样式）缓存计算好的每个关键字的文字大小、颜色、尺寸和坐标，最近最少使用的先淘汰
+ * <br>关键字集合只看名字不看顺序，因此同样的关键字换个顺序放入也能命中。只能在主线程中使用
+ */
+public class KeywordLayoutCache {
+	/**
+	 * 默认的最大缓存条数
+	 */
+	public static final int DEFAULT_MAX_SIZE = 8;
+	/**
+	 * 缓存，按访问顺序排列
+	 */
+	private LinkedHashMap<LayoutKey, Entry> cache;
+	/**
+	 * 查找时用的键，复用以免每次查找都分配
+	 */
+	private LayoutKey lookupKey;
+	/**
+	 * 恢复时记录给定布局中每个关键字在缓存的布局中的位置，复用以免每次恢复都分配
+	 */
+	private int[] restoreIndexes;
+	/**
+	 * 恢复时标记缓存的布局中的关键字是否已经被匹配过
+	 */
+	private boolean[] restoreMatched;
+	/**
+	 * 最大缓存条数
+	 */
+	private int maxSize;
+	/**
+	 * 命中次数
+	 */
+	private int hitCount;
+	/**
+	 * 未命中次数
+	 */
+	private int missCount;
+	
+	/**
+	 * 创建一个关键字布局缓存
+	 * @param maxSize 最大缓存条数
+	 */
+	public KeywordLayoutCache(int maxSize){
+		this.cache = new LinkedHashMap<LayoutKey, Entry>(16, 0.75f, true){
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<LayoutKey, Entry> eldest) {
+				return size() > getMaxSize();
+			}
+		};
+		this.lookupKey = new LayoutKey();
+		this.restoreIndexes = new int[0];
+		this.restoreMatched = new boolean[0];
+		setMaxSize(maxSize);
+	}
+	
+	/**
+	 * 从缓存中取出和给定布局的关键字、容器尺寸、样式都相同的布局，填充到给定的布局中
+	 * @param keywordLayout 给定的布局，命中的话会填充其计算结果
+	 * @param styleHash 样式的哈希值，影响布局结果的设置不同时不能复用
+	 * @return 是否命中
+	 */
+	boolean restore(KeywordLayout keywordLayout, int styleHash){
+		lookupKey.set(keywordLayout.names, keywordLayout.containerWidth, keywordLayout.containerHeight, styleHash);
+		Entry entry = cache.get(lookupKey);
+		if(entry != null && restoreIndexes.length < entry.names.length){
+			restoreIndexes = new int[entry.names.length];
+			restoreMatched = new boolean[entry.names.length];
+		}
+		if(entry == null || !entry.restore(keywordLayout, restoreIndexes, restoreMatched)){
+			missCount++;
+			return false;
+		}
+		hitCount++;
+		return true;
+	}
+	
+	/**
+	 * 将给定的已经计算好的布局放入缓存
+	 * @param keywordLayout 已经计算好的布局
+	 * @param styleHash 样式的哈希值
+	 */
+	void put(KeywordLayout keywordLayout, int styleHash){
+		LayoutKey key = new LayoutKey();
+		key.set(keywordLayout.names, keywordLayout.containerWidth, keywordLayout.containerHeight, styleHash);
+		cache.put(key, new Entry(key, keywordLayout));
+	}
+	
+	/**
+	 * 将给定缓存中和给定的关键字、容器尺寸、样式都相同的那一个布局放入缓存，不影响给定缓存的命中次数和淘汰顺序
+	 * @param other 给定的缓存
+	 * @param names 关键字的名字
+	 * @param containerWidth 容器的宽
+	 * @param containerHeight 容器的高
+	 * @param styleHash 样式的哈希值
+	 * @return 给定的缓存中是否有这个布局
+	 */
+	boolean putFrom(KeywordLayoutCache other, String[] names, int containerWidth, int containerHeight, int styleHash){
+		LayoutKey key = new LayoutKey();
+		key.set(names, containerWidth, containerHeight, styleHash);
+		for(Entry entry : other.cache.values()){
+			if(entry.key.equals(key)){
+				cache.put(entry.key, entry);
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * 将给定缓存中的所有布局放入缓存
+	 * @param other 给定的缓存
+	 */
+	void putAll(KeywordLayoutCache other){
+		for(Entry entry : other.cache.values()){
+			cache.put(entry.key, entry);
+		}
+	}
+	
+	/**
+	 * 将所有的布局写入给定的Parcel中，最近使用的在最后
+	 * @param parcel 给定的Parcel
+	 */
+	void writeToParcel(Parcel parcel){
+		parcel.writeInt(cache.size());
+		for(Entry entry : cache.values()){
+			entry.writeToParcel(parcel);
+		}
+	}
+	
+	/**
+	 * 从给定的Parcel中读取布局放入缓存
+	 * @param parcel 给定的Parcel
+	 */
+	void readFromParcel(Parcel parcel){
+		int count = parcel.readInt();
+		for(int w = 0; w < count; w++){
+			Entry entry = new Entry(parcel);
+			cache.put(entry.key, entry);
+		}
+	}
+	
+	/**
+	 * 清空缓存
+	 */
+	public void clear(){
+		cache.clear();
+	}
+	
+	/**
+	 * 获取当前的缓存条数
+	 * @return 当前的缓存条数
+	 */
+	public int getSize(){
+		return cache.size();
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * 设置最大缓存条数
+	 * @param maxSize 最大缓存条数
+	 */
+	public void setMaxSize(int maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * 获取命中次数
+	 * @return 命中次数
+	 */
+	public int getHitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * 获取未命中次数
+	 * @return 未命中次数
+	 */
+	public int getMissCount() {
+		return missCount;
+	}
+	
+	/**
+	 * 缓存的键，关键字集合的哈希值与顺序无关
+	 */
+	private static class LayoutKey{
+		private int keywordsHash;
+		private int keywordCount;
+		private int containerWidth;
+		private int containerHeight;
+		private int styleHash;
+		
+		public void set(String[] names, int containerWidth, int containerHeight, int styleHash){
+			int hash = 0;
+			for(String name : names){
+				hash += name.hashCode();
+			}
+			set(hash, names.length, containerWidth, containerHeight, styleHash);
+		}
+		
+		public void set(int keywordsHash, int keywordCount, int containerWidth, int containerHeight, int styleHash){
+			this.keywordsHash = keywordsHash;
+			this.keywordCount = keywordCount;
+			this.containerWidth = containerWidth;
+			this.containerHeight = containerHeight;
+			this.styleHash = styleHash;
+		}
+		
+		@Override
+		public int hashCode() {
+			int result = keywordsHash;
+			result = 31 * result + keywordCount;
+			result = 31 * result + containerWidth;
+			result = 31 * result + containerHeight;
+			result = 31 * result + styleHash;
+			return result;
+		}
+		
+		@Override
+		public boolean equals(Object o) {
+			if(this == o){
+				return true;
+			}
+			if(!(o instanceof LayoutKey)){
+				return false;
+			}
+			LayoutKey other = (LayoutKey) o;
+			return keywordsHash == other.keywordsHash && keywordCount == other.keywordCount && containerWidth == other.containerWidth && containerHeight == other.containerHeight && styleHash == other.styleHash;
+		}
+	}
+	
+	/**
+	 * 缓存的布局，保存了关键字的名字以便在哈希值相同时核对。所有的数组都按名字排好序，恢复时二分查找
+	 */
+	private static class Entry{
+		private LayoutKey key;
+		private String[] names;
+		private float[] textSizes;
+		private int[] textColors;
+		private int[] widths;
+		private int[] heights;
+		private int[] wrapWidths;
+		private int[] lefts;
+		private int[] tops;
+		private int averageWidth;
+		private int averageHeight;
+		private float scale;
+		/**
+		 * 是否有重名的关键字，有的话无法按名字恢复
+		 */
+		private boolean duplicated;
+		
+		public Entry(LayoutKey key, KeywordLayout keywordLayout){
+			this.key = key;
+			//按名字排序
+			final String[] layoutNames = keywordLayout.names;
+			int count = layoutNames.length;
+			Integer[] order = new Integer[count];
+			for(int w = 0; w < count; w++){
+				order[w] = w;
+			}
+			Arrays.sort(order, new Comparator<Integer>() {
+				@Override
+				public int compare(Integer lhs, Integer rhs) {
+					return layoutNames[lhs].compareTo(layoutNames[rhs]);
+				}
+			});
+			this.names = new String[count];
+			this.textSizes = new float[count];
+			this.textColors = new int[count];
+			this.widths = new int[count];
+			this.heights = new int[count];
+			this.wrapWidths = new int[count];
+			this.lefts = new int[count];
+			this.tops = new int[count];
+			for(int w = 0; w < count; w++){
+				int index = order[w];
+				names[w] = layoutNames[index];
+				textSizes[w] = keywordLayout.textSizes[index];
+				textColors[w] = keywordLayout.textColors[index];
+				widths[w] = keywordLayout.widths[index];
+				heights[w] = keywordLayout.heights[index];
+				wrapWidths[w] = keywordLayout.wrapWidths[index];
+				lefts[w] = keywordLayout.lefts[index];
+				tops[w] = keywordLayout.tops[index];
+			}
+			this.duplicated = hasDuplicatedName();
+			this.averageWidth = keywordLayout.averageWidth;
+			this.averageHeight = keywordLayout.averageHeight;
+			this.scale = keywordLayout.scale;
+		}
+		
+		public Entry(Parcel parcel){
+			this.key = new LayoutKey();
+			this.key.set(parcel.readInt(), parcel.readInt(), parcel.readInt(), parcel.readInt(), parcel.readInt());
+			this.names = parcel.createStringArray();
+			this.textSizes = parcel.createFloatArray();
+			this.textColors = parcel.createIntArray();
+			this.widths = parcel.createIntArray();
+			this.heights = parcel.createIntArray();
+			this.wrapWidths = parcel.createIntArray();
+			this.lefts = parcel.createIntArray();
+			this.tops = parcel.createIntArray();
+			this.averageWidth = parcel.readInt();
+			this.averageHeight = parcel.readInt();
+			this.scale = parcel.readFloat();
+			this.duplicated = hasDuplicatedName();
+		}
+		
+		/**
+		 * 检查排好序的名字中有没有重名的
+		 */
+		private boolean hasDuplicatedName(){
+			for(int w = 1; w < names.length; w++){
+				if(names[w].equals(names[w - 1])){
+					return true;
+				}
+			}
+			return false;
+		}
+		
+		public void writeToParcel(Parcel parcel){
+			parcel.writeInt(key.keywordsHash);
+			parcel.writeInt(key.keywordCount);
+			parcel.writeInt(key.containerWidth);
+			parcel.writeInt(key.containerHeight);
+			parcel.writeInt(key.styleHash);
+			parcel.writeStringArray(names);
+			parcel.writeFloatArray(textSizes);
+			parcel.writeIntArray(textColors);
+			parcel.writeIntArray(widths);
+			parcel.writeIntArray(heights);
+			parcel.writeIntArray(wrapWidths);
+			parcel.writeIntArray(lefts);
+			parcel.writeIntArray(tops);
+			parcel.writeInt(averageWidth);
+			parcel.writeInt(averageHeight);
+			parcel.writeFloat(scale);
+		}
+		
+		/**
+		 * 按名字将缓存的结果填充到给定的布局中
+		 * @param indexes 用来记录每个关键字在缓存中的位置，长度不小于关键字的个数
+		 * @param matched 用来标记缓存中的关键字是否已经被匹配过，长度不小于关键字的个数
+		 * @return 关键字集合不一样或者有重名的关键字时返回false
+		 */
+		public boolean restore(KeywordLayout keywordLayout, int[] indexes, boolean[] matched){
+			int count = names.length;
+			if(duplicated || keywordLayout.names.length != count){
+				return false;
+			}
+			Arrays.fill(matched, 0, count, false);
+			for(int w = 0; w < count; w++){
+				int index = Arrays.binarySearch(names, keywordLayout.names[w]);
+				if(index < 0 || matched[index]){
+					return false;
+				}
+				matched[index] = true;
+				indexes[w] = index;
+			}
+			keywordLayout.textSizes = new float[count];
+			keywordLayout.textColors = new int[count];
+			keywordLayout.widths = new int[count];
+			keywordLayout.heights = new int[count];
+			keywordLayout.wrapWidths = new int[count];
+			keywordLayout.lefts = new int[count];
+			keywordLayout.tops = new int[count];
+			for(int w = 0; w < count; w++){
+				int index = indexes[w];
+				keywordLayout.textSizes[w] = textSizes[index];
+				keywordLayout.textColors[w] = textColors[index];
+				keywordLayout.widths[w] = widths[index];
+				keywordLayout.heights[w] = heights[index];
+				keywordLayout.wrapWidths[w] = wrapWidths[index];
+				keywordLayout.lefts[w] = lefts[index];
+				keywordLayout.tops[w] = tops[index];
+			}
+			keywordLayout.averageWidth = averageWidth;
+			keywordLayout.averageHeight = averageHeight;
+			keywordLayout.scale = scale;
+			return true;
+		}
+	}
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2013 Peng fei Pan <sky@xiaopan.me>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.xiaopan.android.flowtext;
+
+import android.animation.Animator;
+import android.animation.Animator.AnimatorListener;
+import android.animation.ValueAnimator;
+import android.animation.ValueAnimator.AnimatorUpdateListener;
+import android.annotation.TargetApi;
+import android.os.Build;
+
+/**
+ * 关键字过渡动画时钟，用一个ValueAnimator在每一帧回调当前的进度，驱动所有关键字的动画
+ * <br>只能在Android 3.0及以上版本使用，FlowText只在满足版本要求时才会创建它
+ */
+@TargetApi(Build.VERSION_CODES.HONEYCOMB)
+class KeywordTransitionAnimator implements AnimatorUpdateListener, AnimatorListener{
+	/**
+	 * 时钟
+	 */
+	private ValueAnimator animator;
+	/**
+	 * 回调
+	 */
+	private Callback callback;
+	/**
+	 * 是否被取消了
+	 */
+	private boolean canceled;
+	
+	public KeywordTransitionAnimator(Callback callback){
+		this.callback = callback;
+		this.animator = ValueAnimator.ofFloat(0.0f, 1.0f);
+		//进度必须是线性的，插值由每个象限的动画自己处理
+		this.animator.setInterpolator(null);
+		this.animator.addUpdateListener(this);
+		this.animator.addListener(this);
+	}
+	
+	/**
+	 * 开始
+	 * @param duration 持续时间
+	 */
+	public void start(long duration){
+		animator.cancel();
+		animator.setDuration(duration);
+		animator.start();
+	}
+	
+	/**
+	 * 取消，会回调Callback.onTransitionEnd(true)
+	 */
+	public void cancel(){
+		animator.cancel();
+	}
+	
+	/**
+	 * 立即结束，直接跳到最后一帧，会回调Callback.onTransitionEnd(false)
+	 */
+	public void end(){
+		animator.end();
+	}
+	
+	/**
+	 * 是否正在执行
+	 * @return 是否正在执行
+	 */
+	public boolean isRunning(){
+		return animator.isStarted();
+	}
+
+	@Override
+	public void onAnimationUpdate(ValueAnimator animation) {
+		callback.onTransitionFrame(animation.getAnimatedFraction());
+	}
+
+	@Override
+	public void onAnimationStart(Animator animation) {
+		canceled = false;
+	}
+
+	@Override
+	public void onAnimationEnd(Animator animation) {
+		callback.onTransitionEnd(canceled);
+	}
+
+	@Override
+	public void onAnimationCancel(Animator animation) {
+		canceled = true;
+	}
+
+	@Override
+	public void onAnimationRepeat(Animator animation) {
+	}
+	
+	/**
+	 * 回调
+	 */
+	interface Callback{
+		/**
+		 * 每一帧回调一次
+		 * @param fraction 当前进度，0.0～1.0
+		 */
+		void onTransitionFrame(float fraction);
+		
+		/**
+		 * 结束
+		 * @param canceled 是否是被取消的
+		 */
+		void onTransitionEnd(boolean canceled);
+	}
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2013 Peng fei Pan <sky@xiaopan.me>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.xiaopan.android.flowtext;
+
+import android.graphics.Matrix;
+import android.view.animation.AnimationSet;
+import android.view.animation.Transformation;
+
+/**
+ * 一个象限的进入动画或退出动画，这个象限的所有关键字共用，每帧只计算一次
+ * <br>同样配置的动画有三个实例，分别按宽、高为0，只有宽和只有高初始化。缩放和旋转各自绕自己的轴心点变换，轴心点随宽、高线性变化，
+ * 所以任意尺寸的关键字的变换矩阵除了位移都一样，位移是宽、高的线性函数，用这三个实例的位移就可以精确地组合出来
+ */
+class QuadrantAnimation {
+	/**
+	 * 只有宽或只有高的实例初始化时用的尺寸
+	 */
+	private static final int BASIS_SIZE = 1000;
+	private AnimationSet animationSet;
+	private AnimationSet widthAnimationSet;
+	private AnimationSet heightAnimationSet;
+	private Transformation transformation;
+	private Transformation basisTransformation;
+	private float[] values;
+	private float[] keywordValues;
+	/**
+	 * 宽、高每增加1像素位移的增量
+	 */
+	private float widthTranslateX;
+	private float widthTranslateY;
+	private float heightTranslateX;
+	private float heightTranslateY;
+	/**
+	 * 当前的变换是在哪一时刻计算的
+	 */
+	private long time;
+	/**
+	 * 当前时刻之后是否还有下一帧
+	 */
+	private boolean more;
+	
+	/**
+	 * 创建一个象限的动画
+	 * @param animationSet 按宽、高为0初始化的实例，动画的监听器设置在它上面
+	 * @param widthAnimationSet 只按宽初始化的实例，配置和animationSet一样
+	 * @param heightAnimationSet 只按高初始化的实例，配置和animationSet一样
+	 */
+	public QuadrantAnimation(AnimationSet animationSet, AnimationSet widthAnimationSet, AnimationSet heightAnimationSet){
+		this.animationSet = animationSet;
+		this.widthAnimationSet = widthAnimationSet;
+		this.heightAnimationSet = heightAnimationSet;
+		this.transformation = new Transformation();
+		this.basisTransformation = new Transformation();
+		this.values = new float[9];
+		this.keywordValues = new float[9];
+	}
+	
+	/**
+	 * 重置，开始新一轮动画之前调用
+	 */
+	public void reset(){
+		animationSet.reset();
+		widthAnimationSet.reset();
+		heightAnimationSet.reset();
+	}
+	
+	/**
+	 * 初始化并设置开始时间，本轮只需调用一次
+	 * @param parentWidth 容器的宽
+	 * @param parentHeight 容器的高
+	 * @param startTime 开始时间，可以是Animation.START_ON_FIRST_FRAME
+	 */
+	public void start(int parentWidth, int parentHeight, long startTime){
+		animationSet.initialize(0, 0, parentWidth, parentHeight);
+		widthAnimationSet.initialize(BASIS_SIZE, 0, parentWidth, parentHeight);
+		heightAnimationSet.initialize(0, BASIS_SIZE, parentWidth, parentHeight);
+		animationSet.setStartTime(startTime);
+		widthAnimationSet.setStartTime(startTime);
+		heightAnimationSet.setStartTime(startTime);
+		time = Long.MIN_VALUE;
+	}
+	
+	/**
+	 * 计算给定时刻的变换，同一时刻只计算一次
+	 * @param currentTime 时刻
+	 * @return 之后是否还有下一帧
+	 */
+	public boolean compute(long currentTime){
+		if(currentTime == time){
+			return more;
+		}
+		time = currentTime;
+		transformation.clear();
+		more = animationSet.getTransformation(currentTime, transformation);
+		transformation.getMatrix().getValues(values);
+		float translateX = values[Matrix.MTRANS_X];
+		float translateY = values[Matrix.MTRANS_Y];
+		
+		basisTransformation.clear();
+		widthAnimationSet.getTransformation(currentTime, basisTransformation);
+		basisTransformation.getMatrix().getValues(keywordValues);
+		widthTranslateX = (keywordValues[Matrix.MTRANS_X] - translateX) / BASIS_SIZE;
+		widthTranslateY = (keywordValues[Matrix.MTRANS_Y] - translateY) / BASIS_SIZE;
+		
+		basisTransformation.clear();
+		heightAnimationSet.getTransformation(currentTime, basisTransformation);
+		basisTransformation.getMatrix().getValues(keywordValues);
+		heightTranslateX = (keywordValues[Matrix.MTRANS_X] - translateX) / BASIS_SIZE;
+		heightTranslateY = (keywordValues[Matrix.MTRANS_Y] - translateY) / BASIS_SIZE;
+		return more;
+	}
+	
+	/**
+	 * 获取当前时刻的透明度
+	 * @return 透明度
+	 */
+	public float getAlpha(){
+		return transformation.getAlpha();
+	}
+	
+	/**
+	 * 获取当前时刻按宽、高为0计算的变换，除了位移和任意尺寸的关键字都一样
+	 * @return 变换
+	 */
+	public Transformation getTransformation(){
+		return transformation;
+	}
+	
+	/**
+	 * 获取给定尺寸的关键字在当前时刻的X轴位移
+	 * @param width 关键字的宽
+	 * @param height 关键字的高
+	 * @return X轴位移
+	 */
+	public float getTranslateX(int width, int height){
+		return values[Matrix.MTRANS_X] + widthTranslateX * width + heightTranslateX * height;
+	}
+	
+	/**
+	 * 获取给定尺寸的关键字在当前时刻的Y轴位移
+	 * @param width 关键字的宽
+	 * @param height 关键字的高
+	 * @return Y轴位移
+	 */
+	public float getTranslateY(int width, int height){
+		return values[Matrix.MTRANS_Y] + widthTranslateY * width + heightTranslateY * height;
+	}
+	
+	/**
+	 * 获取给定尺寸的关键字在当前时刻的变换矩阵，和按关键字自己的尺寸初始化动画计算出来的一样
+	 * @param width 关键字的宽
+	 * @param height 关键字的高
+	 * @param outMatrix 用来存放结果
+	 */
+	public void getMatrix(int width, int height, Matrix outMatrix){
+		System.arraycopy(values, 0, keywordValues, 0, values.length);
+		keywordValues[Matrix.MTRANS_X] = getTranslateX(width, height);
+		keywordValues[Matrix.MTRANS_Y] = getTranslateY(width, height);
+		outMatrix.setValues(keywordValues);
+	}
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2013 Peng fei Pan <sky@xiaopan.me>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.xiaopan.android.flowtext;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.SystemClock;
+import android.view.Choreographer;
+
+/**
+ * 共享的帧时钟，多个FlowText的定时任务合并到一个Choreographer回调中，同一帧到期的任务在同一个回调中依次执行
+ * <br>只能在主线程中使用
+ */
+@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+class SharedFrameClock implements Choreographer.FrameCallback {
+	/**
+	 * 已经安排的任务和到期时间，按安排的顺序排列
+	 */
+	private OnFrameListener[] listeners;
+	private long[] deadlines;
+	private int count;
+	/**
+	 * 本帧到期的任务，复用以免每帧分配
+	 */
+	private OnFrameListener[] dueListeners;
+	/**
+	 * 已经向Choreographer安排的回调的时间，-1表示没有安排
+	 */
+	private long scheduledTime;
+	
+	SharedFrameClock(){
+		listeners = new OnFrameListener[4];
+		deadlines = new long[4];
+		dueListeners = new OnFrameListener[4];
+		scheduledTime = -1;
+	}
+	
+	/**
+	 * 在给定的延迟之后的下一帧开始时执行给定的任务，同一个任务之前安排的会被替换
+	 * @param listener 任务
+	 * @param delayMillis 延迟，单位毫秒
+	 */
+	void post(OnFrameListener listener, long delayMillis){
+		remove(listener);
+		if(count == listeners.length){
+			OnFrameListener[] newListeners = new OnFrameListener[count << 1];
+			long[] newDeadlines = new long[count << 1];
+			System.arraycopy(listeners, 0, newListeners, 0, count);
+			System.arraycopy(deadlines, 0, newDeadlines, 0, count);
+			listeners = newListeners;
+			deadlines = newDeadlines;
+			dueListeners = new OnFrameListener[count << 1];
+		}
+		long deadline = SystemClock.uptimeMillis() + Math.max(delayMillis, 0);
+		listeners[count] = listener;
+		deadlines[count] = deadline;
+		count++;
+		schedule();
+	}
+	
+	/**
+	 * 取消给定的任务
+	 * @param listener 任务
+	 */
+	void remove(OnFrameListener listener){
+		for(int w = 0; w < count; w++){
+			if(listeners[w] == listener){
+				System.arraycopy(listeners, w + 1, listeners, w, count - w - 1);
+				System.arraycopy(deadlines, w + 1, deadlines, w, count - w - 1);
+				count--;
+				listeners[count] = null;
+				return;
+			}
+		}
+	}
+	
+	@Override
+	public void doFrame(long frameTimeNanos) {
+		scheduledTime = -1;
+		long now = SystemClock.uptimeMillis();
+		long frameTimeMillis = frameTimeNanos / 1000000;
+		
+		//先取出所有到期的任务，任务执行时可以重新安排自己
+		int dueCount = 0;
+		int remaining = 0;
+		for(int w = 0; w < count; w++){
+			if(deadlines[w] <= now){
+				dueListeners[dueCount++] = listeners[w];
+			}else{
+				listeners[remaining] = listeners[w];
+				deadlines[remaining] = deadlines[w];
+				remaining++;
+			}
+		}
+		for(int w = remaining; w < count; w++){
+			listeners[w] = null;
+		}
+		count = remaining;
+		for(int w = 0; w < dueCount; w++){
+			OnFrameListener listener = dueListeners[w];
+			dueListeners[w] = null;
+			listener.onFrame(frameTimeMillis);
+		}
+		schedule();
+	}
+	
+	/**
+	 * 按照最早的到期时间向Choreographer安排回调
+	 */
+	private void schedule(){
+		if(count == 0){
+			if(scheduledTime != -1){
+				Choreographer.getInstance().removeFrameCallback(this);
+				scheduledTime = -1;
+			}
+			return;
+		}
+		long earliest = deadlines[0];
+		for(int w = 1; w < count; w++){
+			earliest = Math.min(earliest, deadlines[w]);
+		}
+		if(scheduledTime != -1 && scheduledTime <= earliest){
+			return;
+		}
+		Choreographer choreographer = Choreographer.getInstance();
+		choreographer.removeFrameCallback(this);
+		choreographer.postFrameCallbackDelayed(this, Math.max(earliest - SystemClock.uptimeMillis(), 0));
+		scheduledTime = earliest;
+	}
+	
+	/**
+	 * 帧任务
+	 */
+	interface OnFrameListener{
+		/**
+		 * 到期之后的下一帧开始时执行
+		 * @param frameTimeMillis 这一帧的时间，和SystemClock.uptimeMillis()同一个时基
+		 */
+		void onFrame(long frameTimeMillis);
+	}
+}
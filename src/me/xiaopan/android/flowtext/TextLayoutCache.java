@@ -0,0 +1,309 @@
+/*
+ * Copyright (C) 2013 Peng fei Pan <sky@xiaopan.me>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.xiaopan.android.flowtext;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+
+/**
+ * 文字排版缓存，按（文字、文字大小、字体、换行宽度）缓存换好行的结果，最近最少使用的先淘汰，同样的长关键字再次显示时不需要重新断行
+ * <br>缓存的是每一行的位置，不包含画笔，绘制时使用调用者自己的画笔，因此可以被多个FlowText和后台布局线程共用
+ * <br>默认所有的FlowText共用一个实例，线程安全，只有查找和放入时持有锁，未命中时在锁外排版
+ */
+public class TextLayoutCache {
+	/**
+	 * 默认的最大缓存条数
+	 */
+	public static final int DEFAULT_MAX_SIZE = 128;
+	/**
+	 * 共享实例
+	 */
+	private static TextLayoutCache instance;
+	/**
+	 * 缓存，按访问顺序排列
+	 */
+	private LinkedHashMap<LayoutKey, WrappedText> cache;
+	/**
+	 * 查找时用的键，复用以免每次查找都分配
+	 */
+	private LayoutKey lookupKey;
+	/**
+	 * 最大缓存条数
+	 */
+	private int maxSize;
+	/**
+	 * 命中次数
+	 */
+	private int hitCount;
+	/**
+	 * 未命中次数
+	 */
+	private int missCount;
+	
+	/**
+	 * 创建一个文字排版缓存
+	 * @param maxSize 最大缓存条数
+	 */
+	public TextLayoutCache(int maxSize){
+		this.cache = new LinkedHashMap<LayoutKey, WrappedText>(16, 0.75f, true){
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<LayoutKey, WrappedText> eldest) {
+				return size() > getMaxSize();
+			}
+		};
+		this.lookupKey = new LayoutKey();
+		setMaxSize(maxSize);
+	}
+	
+	/**
+	 * 获取所有FlowText共用的实例
+	 * @return 共享的文字排版缓存
+	 */
+	public static synchronized TextLayoutCache getInstance(){
+		if(instance == null){
+			instance = new TextLayoutCache(DEFAULT_MAX_SIZE);
+		}
+		return instance;
+	}
+	
+	/**
+	 * 获取给定文字按给定宽度换行之后的排版，缓存中有的话直接返回缓存的结果
+	 * @param paint 已经设置好文字大小和字体的画笔，不会被修改
+	 * @param text 要换行的文字
+	 * @param wrapWidth 换行宽度
+	 * @return 换好行的文字，其宽度是最长的一行的宽度，多行居中对齐
+	 */
+	public WrappedText obtain(TextPaint paint, String text, int wrapWidth){
+		WrappedText wrappedText;
+		synchronized(this){
+			lookupKey.set(text, paint.getTextSize(), paint.getTypeface(), wrapWidth);
+			wrappedText = cache.get(lookupKey);
+			if(wrappedText != null){
+				hitCount++;
+				return wrappedText;
+			}
+			missCount++;
+		}
+		//未命中的话在锁外排版，排版比测量慢得多，不能让其它线程等待
+		wrappedText = create(paint, text, wrapWidth);
+		LayoutKey key = new LayoutKey();
+		key.set(text, paint.getTextSize(), paint.getTypeface(), wrapWidth);
+		synchronized(this){
+			cache.put(key, wrappedText);
+		}
+		return wrappedText;
+	}
+	
+	/**
+	 * 将给定文字按给定宽度换行，不使用缓存。先按换行宽度断行，再按最长的一行的宽度重新排版，这样排版的宽度就是文字实际占用的宽度，断行的位置不变
+	 * @param paint 已经设置好文字大小和字体的画笔，不会被修改，排版使用它的副本
+	 * @param text 要换行的文字
+	 * @param wrapWidth 换行宽度
+	 * @return 换好行的文字
+	 */
+	public static WrappedText create(TextPaint paint, String text, int wrapWidth){
+		TextPaint layoutPaint = new TextPaint(paint);
+		StaticLayout textLayout = new StaticLayout(text, layoutPaint, wrapWidth, Layout.Alignment.ALIGN_CENTER, 1, 0, true);
+		float maxLineWidth = 0;
+		for(int w = 0; w < textLayout.getLineCount(); w++){
+			maxLineWidth = Math.max(maxLineWidth, textLayout.getLineWidth(w));
+		}
+		int width = (int) Math.ceil(maxLineWidth);
+		if(width > 0 && width < wrapWidth){
+			textLayout = new StaticLayout(text, layoutPaint, width, Layout.Alignment.ALIGN_CENTER, 1, 0, true);
+		}
+		return new WrappedText(text, textLayout);
+	}
+	
+	/**
+	 * 清空缓存，命中次数和未命中次数也会清零
+	 */
+	public synchronized void clear(){
+		cache.clear();
+		hitCount = 0;
+		missCount = 0;
+	}
+	
+	/**
+	 * 获取当前缓存的条数
+	 * @return 当前缓存的条数
+	 */
+	public synchronized int getSize(){
+		return cache.size();
+	}
+	
+	public synchronized int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * 设置最大缓存条数，超出的部分会在下次放入时淘汰
+	 * @param maxSize 最大缓存条数
+	 */
+	public synchronized void setMaxSize(int maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * 获取命中次数
+	 * @return 命中次数
+	 */
+	public synchronized int getHitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * 获取未命中次数
+	 * @return 未命中次数
+	 */
+	public synchronized int getMissCount() {
+		return missCount;
+	}
+
+	/**
+	 * 换好行的文字，只记录每一行的起止位置、左边距和基线，创建之后不再修改，可以在多个线程中共用
+	 */
+	public static final class WrappedText{
+		private final String text;
+		private final int width;
+		private final int height;
+		private final int[] lineStarts;
+		private final int[] lineEnds;
+		private final float[] lineLefts;
+		private final int[] lineBaselines;
+		private final String brokenText;
+		
+		private WrappedText(String text, StaticLayout textLayout){
+			this.text = text;
+			this.width = textLayout.getWidth();
+			this.height = textLayout.getHeight();
+			int lineCount = textLayout.getLineCount();
+			this.lineStarts = new int[lineCount];
+			this.lineEnds = new int[lineCount];
+			this.lineLefts = new float[lineCount];
+			this.lineBaselines = new int[lineCount];
+			for(int w = 0; w < lineCount; w++){
+				lineStarts[w] = textLayout.getLineStart(w);
+				lineEnds[w] = textLayout.getLineVisibleEnd(w);
+				lineLefts[w] = textLayout.getLineLeft(w);
+				lineBaselines[w] = textLayout.getLineBaseline(w);
+			}
+			//在每一行的末尾插入换行符，TextView显示的时候就只会在这些位置换行
+			StringBuilder builder = new StringBuilder(text.length() + lineCount);
+			for(int w = 0; w < lineCount; w++){
+				if(w > 0){
+					builder.append('\n');
+				}
+				builder.append(text, lineStarts[w], lineEnds[w]);
+			}
+			this.brokenText = builder.toString();
+		}
+		
+		/**
+		 * 用给定的画笔在画布的原点逐行绘制，不会修改画笔
+		 * @param canvas 画布
+		 * @param paint 已经设置好文字大小、字体、颜色和阴影的画笔，文字大小和字体要和换行时一样
+		 */
+		public void draw(Canvas canvas, Paint paint){
+			for(int w = 0; w < lineStarts.length; w++){
+				canvas.drawText(text, lineStarts[w], lineEnds[w], lineLefts[w], lineBaselines[w], paint);
+			}
+		}
+		
+		/**
+		 * 获取宽度，也就是最长的一行的宽度
+		 * @return 宽度
+		 */
+		public int getWidth() {
+			return width;
+		}
+		
+		/**
+		 * 获取所有行的总高度
+		 * @return 高度
+		 */
+		public int getHeight() {
+			return height;
+		}
+		
+		/**
+		 * 获取行数
+		 * @return 行数
+		 */
+		public int getLineCount() {
+			return lineStarts.length;
+		}
+		
+		/**
+		 * 获取在每一行的末尾插入了换行符的文字，视图模式下TextView显示这个文字，和绘制时的断行完全一样
+		 * @return 插入了换行符的文字
+		 */
+		public String getBrokenText() {
+			return brokenText;
+		}
+	}
+
+	/**
+	 * 排版缓存的键
+	 */
+	private static class LayoutKey{
+		private String text;
+		private float textSize;
+		private Typeface typeface;
+		private int wrapWidth;
+		private int hashCode;
+		
+		public void set(String text, float textSize, Typeface typeface, int wrapWidth){
+			this.text = text;
+			this.textSize = textSize;
+			this.typeface = typeface;
+			this.wrapWidth = wrapWidth;
+			int result = text.hashCode();
+			result = 31 * result + Float.floatToIntBits(textSize);
+			result = 31 * result + (typeface != null ? typeface.hashCode() : 0);
+			result = 31 * result + wrapWidth;
+			this.hashCode = result;
+		}
+		
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+		
+		@Override
+		public boolean equals(Object o) {
+			if(this == o){
+				return true;
+			}
+			if(!(o instanceof LayoutKey)){
+				return false;
+			}
+			LayoutKey other = (LayoutKey) o;
+			return hashCode == other.hashCode && textSize == other.textSize && typeface == other.typeface 
+					&& wrapWidth == other.wrapWidth && text.equals(other.text);
+		}
+	}
+}
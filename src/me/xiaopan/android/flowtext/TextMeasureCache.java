@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2013 Peng fei Pan <sky@xiaopan.me>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.xiaopan.android.flowtext;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import android.graphics.Paint;
+import android.graphics.Typeface;
+
+/**
+ * 文字测量缓存，按（文字、文字大小、字体、阴影参数）缓存测量出的宽和高，最近最少使用的先淘汰
+ * <br>默认所有的FlowText共用一个实例，线程安全，只有查找和放入时持有锁，未命中时在锁外测量，后台布局不会阻塞主线程的查找
+ */
+public class TextMeasureCache {
+	/**
+	 * 默认的最大缓存条数
+	 */
+	public static final int DEFAULT_MAX_SIZE = 512;
+	/**
+	 * 共享实例
+	 */
+	private static TextMeasureCache instance;
+	/**
+	 * 缓存，按访问顺序排列
+	 */
+	private LinkedHashMap<MeasureKey, float[]> cache;
+	/**
+	 * 查找时用的键，复用以免每次查找都分配
+	 */
+	private MeasureKey lookupKey;
+	/**
+	 * 最大缓存条数
+	 */
+	private int maxSize;
+	/**
+	 * 命中次数
+	 */
+	private int hitCount;
+	/**
+	 * 未命中次数
+	 */
+	private int missCount;
+	
+	/**
+	 * 创建一个文字测量缓存
+	 * @param maxSize 最大缓存条数
+	 */
+	public TextMeasureCache(int maxSize){
+		this.cache = new LinkedHashMap<MeasureKey, float[]>(16, 0.75f, true){
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<MeasureKey, float[]> eldest) {
+				return size() > getMaxSize();
+			}
+		};
+		this.lookupKey = new MeasureKey();
+		setMaxSize(maxSize);
+	}
+	
+	/**
+	 * 获取所有FlowText共用的实例
+	 * @return 共享的文字测量缓存
+	 */
+	public static synchronized TextMeasureCache getInstance(){
+		if(instance == null){
+			instance = new TextMeasureCache(DEFAULT_MAX_SIZE);
+		}
+		return instance;
+	}
+	
+	/**
+	 * 测量给定文字的宽和高，缓存中有的话直接返回缓存的结果
+	 * @param paint 已经设置好文字大小和字体的画笔
+	 * @param text 要测量的文字
+	 * @param shadowRadius 阴影半径
+	 * @param shadowDX 阴影X轴坐标
+	 * @param shadowDY 阴影Y轴坐标
+	 * @param outSize 用来存放测量结果，[0]是宽，[1]是高
+	 */
+	public void measure(Paint paint, String text, float shadowRadius, float shadowDX, float shadowDY, float[] outSize){
+		float[] size;
+		synchronized(this){
+			lookupKey.set(text, paint.getTextSize(), paint.getTypeface(), shadowRadius, shadowDX, shadowDY);
+			size = cache.get(lookupKey);
+			if(size != null){
+				hitCount++;
+			}else{
+				missCount++;
+			}
+		}
+		//未命中的话在锁外测量，多个线程同时测量同一个文字时后放入的覆盖先放入的，结果是一样的
+		if(size == null){
+			Paint.FontMetrics fontMetrics = paint.getFontMetrics();
+			size = new float[]{paint.measureText(text), fontMetrics.bottom - fontMetrics.top};
+			MeasureKey key = new MeasureKey();
+			key.set(text, paint.getTextSize(), paint.getTypeface(), shadowRadius, shadowDX, shadowDY);
+			synchronized(this){
+				cache.put(key, size);
+			}
+		}
+		outSize[0] = size[0];
+		outSize[1] = size[1];
+	}
+	
+	/**
+	 * 清空缓存，命中次数和未命中次数也会清零
+	 */
+	public synchronized void clear(){
+		cache.clear();
+		hitCount = 0;
+		missCount = 0;
+	}
+	
+	/**
+	 * 获取当前缓存的条数
+	 * @return 当前缓存的条数
+	 */
+	public synchronized int getSize(){
+		return cache.size();
+	}
+	
+	public synchronized int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * 设置最大缓存条数，超出的部分会在下次放入时淘汰
+	 * @param maxSize 最大缓存条数
+	 */
+	public synchronized void setMaxSize(int maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * 获取命中次数
+	 * @return 命中次数
+	 */
+	public synchronized int getHitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * 获取未命中次数
+	 * @return 未命中次数
+	 */
+	public synchronized int getMissCount() {
+		return missCount;
+	}
+
+	/**
+	 * 测量缓存的键
+	 */
+	private static class MeasureKey{
+		private String text;
+		private float textSize;
+		private Typeface typeface;
+		private float shadowRadius;
+		private float shadowDX;
+		private float shadowDY;
+		private int hashCode;
+		
+		public void set(String text, float textSize, Typeface typeface, float shadowRadius, float shadowDX, float shadowDY){
+			this.text = text;
+			this.textSize = textSize;
+			this.typeface = typeface;
+			this.shadowRadius = shadowRadius;
+			this.shadowDX = shadowDX;
+			this.shadowDY = shadowDY;
+			int result = text.hashCode();
+			result = 31 * result + Float.floatToIntBits(textSize);
+			result = 31 * result + (typeface != null ? typeface.hashCode() : 0);
+			result = 31 * result + Float.floatToIntBits(shadowRadius);
+			result = 31 * result + Float.floatToIntBits(shadowDX);
+			result = 31 * result + Float.floatToIntBits(shadowDY);
+			this.hashCode = result;
+		}
+		
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+		
+		@Override
+		public boolean equals(Object o) {
+			if(this == o){
+				return true;
+			}
+			if(!(o instanceof MeasureKey)){
+				return false;
+			}
+			MeasureKey other = (MeasureKey) o;
+			return hashCode == other.hashCode && textSize == other.textSize && typeface == other.typeface 
+					&& shadowRadius == other.shadowRadius && shadowDX == other.shadowDX && shadowDY == other.shadowDY 
+					&& text.equals(other.text);
+		}
+	}
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2013 Peng fei Pan <sky@xiaopan.me>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.xiaopan.android.flowtext;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Trace;
+
+/**
+ * 在支持的版本上向systrace输出区段，低于Android 4.3时什么也不做
+ */
+class TraceCompat {
+	private TraceCompat(){
+	}
+	
+	/**
+	 * 开始一个区段，必须和endSection()在同一个线程中成对调用
+	 * @param sectionName 区段名
+	 */
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+	static void beginSection(String sectionName){
+		if(Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2){
+			Trace.beginSection(sectionName);
+		}
+	}
+	
+	/**
+	 * 结束最近开始的区段
+	 */
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+	static void endSection(){
+		if(Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2){
+			Trace.endSection();
+		}
+	}
+}
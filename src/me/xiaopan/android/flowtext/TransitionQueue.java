@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2013 Peng fei Pan <sky@xiaopan.me>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.xiaopan.android.flowtext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import me.xiaopan.android.flowtext.FlowText.OnTransitionListener;
+
+/**
+ * 等待执行的过渡动画队列，放入时会合并多余的请求
+ * <br>合并规则：和队尾同方向的请求直接合并，刷新包含了进入，所以进入和刷新合并为刷新；队尾是一对相反的请求时，再来一个和倒数第二个同方向的请求就把最后一个抵消掉，被抵消的请求由调用者通知它的回调失败
+ */
+class TransitionQueue {
+	/**
+	 * 进入
+	 */
+	public static final int TYPE_IN = 1;
+	/**
+	 * 退出
+	 */
+	public static final int TYPE_OUT = 2;
+	/**
+	 * 刷新，即重新布局之后再进入
+	 */
+	public static final int TYPE_REFRESH = 3;
+	/**
+	 * 增量更新，只有新增和删除的关键字执行动画
+	 */
+	public static final int TYPE_UPDATE = 4;
+	/**
+	 * 等待执行的过渡动画
+	 */
+	private List<Transition> transitionList;
+	
+	public TransitionQueue(){
+		transitionList = new ArrayList<Transition>();
+	}
+	
+	/**
+	 * 放入一个请求，能合并的话就合并
+	 * @param type 类型
+	 * @param listener 执行完毕时的回调，可以为null
+	 * @return 被抵消掉的请求，调用者需要通知它的回调失败；没有的话返回null
+	 */
+	public Transition offer(int type, OnTransitionListener listener){
+		int size = transitionList.size();
+		if(size > 0){
+			Transition last = transitionList.get(size - 1);
+			//和队尾同方向的直接合并
+			if(isSameDirection(last.type, type)){
+				last.merge(type, listener);
+				return null;
+			}
+			//队尾是一对相反的请求，再来一个和倒数第二个同方向的就把队尾抵消掉，刷新要重新布局所以不能抵消
+			if(size > 1 && (last.type == TYPE_IN || last.type == TYPE_OUT) && isSameDirection(transitionList.get(size - 2).type, type)){
+				transitionList.remove(size - 1);
+				transitionList.get(size - 2).merge(type, listener);
+				return last;
+			}
+		}
+		Transition transition = new Transition(type);
+		transition.merge(type, listener);
+		transitionList.add(transition);
+		return null;
+	}
+	
+	/**
+	 * 取出队首的请求
+	 * @return 队首的请求，没有的话返回null
+	 */
+	public Transition poll(){
+		return transitionList.size() > 0 ? transitionList.remove(0) : null;
+	}
+	
+	/**
+	 * 是否为空
+	 * @return 是否为空
+	 */
+	public boolean isEmpty(){
+		return transitionList.isEmpty();
+	}
+	
+	/**
+	 * 清空队列并把所有的回调放到给定的列表中
+	 * @param outListeners 用来存放所有的回调
+	 */
+	public void clear(List<OnTransitionListener> outListeners){
+		for(Transition transition : transitionList){
+			outListeners.addAll(transition.listeners);
+		}
+		transitionList.clear();
+	}
+	
+	/**
+	 * 两个类型是否是同一个方向，进入和刷新都算作进入，增量更新只和增量更新合并
+	 */
+	private static boolean isSameDirection(int type1, int type2){
+		if(type1 == TYPE_UPDATE || type2 == TYPE_UPDATE){
+			return type1 == type2;
+		}
+		return (type1 == TYPE_OUT) == (type2 == TYPE_OUT);
+	}
+	
+	/**
+	 * 一个等待执行的过渡动画
+	 */
+	static class Transition{
+		/**
+		 * 类型
+		 */
+		int type;
+		/**
+		 * 执行完毕时的回调
+		 */
+		List<OnTransitionListener> listeners;
+		
+		Transition(int type){
+			this.type = type;
+			this.listeners = new ArrayList<OnTransitionListener>(1);
+		}
+		
+		/**
+		 * 合并一个同方向的请求，进入遇到刷新会升级为刷新
+		 */
+		void merge(int type, OnTransitionListener listener){
+			if(type == TYPE_REFRESH){
+				this.type = TYPE_REFRESH;
+			}
+			if(listener != null){
+				listeners.add(listener);
+			}
+		}
+	}
+}